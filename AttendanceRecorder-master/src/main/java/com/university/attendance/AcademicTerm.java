@@ -0,0 +1,88 @@
+package com.university.attendance;
+
+import java.time.LocalDate;
+import java.time.Month;
+
+/**
+ * Tanulmányi félév
+ *
+ * Őszi félév: szeptember 1. - január 31., tavaszi félév: február 1. - augusztus 31.
+ * (a vizsgaidőszakkal és a nyári szünettel együtt, így minden nap pontosan egy félévbe esik).
+ */
+public class AcademicTerm
+{
+    // A tanév kezdő éve (2025/26 -> 2025) és a félév (1 = őszi, 2 = tavaszi)
+    private final int startYear;
+    private final int half;
+
+    private AcademicTerm(int startYear, int half)
+    {
+        this.startYear = startYear;
+        this.half = half;
+    }
+
+    /**
+     * A napot tartalmazó félév
+     */
+    public static AcademicTerm of(LocalDate date)
+    {
+        int month = date.getMonthValue();
+        if (month >= Month.SEPTEMBER.getValue())
+        {
+            return new AcademicTerm(date.getYear(), 1);
+        }
+        if (month == Month.JANUARY.getValue())
+        {
+            return new AcademicTerm(date.getYear() - 1, 1);
+        }
+        return new AcademicTerm(date.getYear() - 1, 2);
+    }
+
+    public LocalDate getStart()
+    {
+        return half == 1 ? LocalDate.of(startYear, 9, 1) : LocalDate.of(startYear + 1, 2, 1);
+    }
+
+    public LocalDate getEnd()
+    {
+        return half == 1 ? LocalDate.of(startYear + 1, 1, 31) : LocalDate.of(startYear + 1, 8, 31);
+    }
+
+    public AcademicTerm next()
+    {
+        return half == 1 ? new AcademicTerm(startYear, 2) : new AcademicTerm(startYear + 1, 1);
+    }
+
+    public AcademicTerm previous()
+    {
+        return half == 2 ? new AcademicTerm(startYear, 1) : new AcademicTerm(startYear - 1, 2);
+    }
+
+    /**
+     * Fájlnévben is használható azonosító, pl. 2025-26-1
+     */
+    public String getCode()
+    {
+        return String.format("%d-%02d-%d", startYear, (startYear + 1) % 100, half);
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof AcademicTerm
+                && ((AcademicTerm) other).startYear == startYear
+                && ((AcademicTerm) other).half == half;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return startYear * 2 + half;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d/%02d/%d", startYear, (startYear + 1) % 100, half);
+    }
+}
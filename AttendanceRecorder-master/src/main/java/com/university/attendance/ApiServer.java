@@ -0,0 +1,719 @@
+package com.university.attendance;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Beágyazott HTTP/JSON API a hálózati olvasóknak és a terem kijelzőnek
+ *
+ * Végpontok:
+ * <ul>
+ *     <li>POST /api/scan - egy vagy több kód (soronként egy, vagy JSON: {"code": "..."},
+ *         {"codes": ["...", ...]}); ugyanaz a feldolgozás, mint a vonalkód olvasónál</li>
+ *     <li>GET /api/stats - mai létszám, hiányzók, alkalmak száma</li>
+ *     <li>GET /api/students[?neptun=ABC123] - hallgatónkénti jelenléti összesítő</li>
+ *     <li>GET /api/export?kind=daily|session|student&amp;format=xlsx|pdf[&amp;from=&amp;to=] - jelentés,
+ *         közvetlenül a kurzorból a válaszba írva (chunked)</li>
+ * </ul>
+ *
+ * A kapcsolatokat a JDK szerver NIO selector szála fogadja, a kéréseket néhány kezelő szál
+ * bontja ki. A blokkoló munka (napló, DB) a ScanExecutor-on fut, a válasz annak
+ * befejezésekor íródik ki, így a kezelő szálak nem várnak az adatbázisra. A statisztika a
+ * memóriában tartott pillanatképből jön, változatlan állapotnál a kész JSON bájtokból.
+ * Az FX szálat egyik végpont sem érinti.
+ */
+public class ApiServer implements AutoCloseable
+{
+    // Egy kérés törzsének és egy csoportos beolvasásnak a felső korlátja
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final int MAX_BATCH_CODES = 500;
+
+    // Egyszerre ennyi export futhat (mindegyik egy olvasó kapcsolatot foglal)
+    private static final int MAX_CONCURRENT_EXPORTS = 2;
+    private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
+    private static final int BACKLOG = 256;
+
+    private static final ReportExporter.Progress NO_PROGRESS = new ReportExporter.Progress()
+    {
+        @Override
+        public void update(long done, long total)
+        {
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return false;
+        }
+    };
+
+    // Egy pillanatképből készült JSON válasz (a pillanatkép változásáig újrahasznosítható)
+    private static class CachedJson
+    {
+        final StatisticsSnapshot snapshot;
+        final byte[] body;
+
+        CachedJson(StatisticsSnapshot snapshot, byte[] body)
+        {
+            this.snapshot = snapshot;
+            this.body = body;
+        }
+    }
+
+    private final InetSocketAddress address;
+    private final byte[] token;
+    private final BarcodeScanner scanner;
+    private final StatisticsEngine statistics;
+    private final AttendanceBitmapIndex bitmapIndex;
+    private final ReportExporter exporter;
+    private final ScanExecutor scanExecutor;
+
+    private final Semaphore exportPermits = new Semaphore(MAX_CONCURRENT_EXPORTS);
+    private volatile CachedJson statsCache;
+    private volatile CachedJson studentsCache;
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private ExecutorService exports;
+
+    /**
+     * @param token Ha nem null, minden kéréshez "Authorization: Bearer &lt;token&gt;" fejléc kell
+     */
+    public ApiServer(InetSocketAddress address, String token, BarcodeScanner scanner, StatisticsEngine statistics,
+                     AttendanceBitmapIndex bitmapIndex, ReportExporter exporter, ScanExecutor scanExecutor)
+    {
+        this.address = address;
+        this.token = token == null || token.isEmpty() ? null : ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+        this.scanner = scanner;
+        this.statistics = statistics;
+        this.bitmapIndex = bitmapIndex;
+        this.exporter = exporter;
+        this.scanExecutor = scanExecutor;
+    }
+
+    /**
+     * Szerver indítása
+     */
+    public void start() throws IOException
+    {
+        server = HttpServer.create(address, BACKLOG);
+        handlers = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                ScanExecutor.daemonFactory("api-http"));
+        exports = Executors.newCachedThreadPool(ScanExecutor.daemonFactory("api-export"));
+
+        server.createContext("/api/scan", guarded("POST", this::handleScan));
+        server.createContext("/api/stats", guarded("GET", this::handleStats));
+        server.createContext("/api/students", guarded("GET", this::handleStudents));
+        server.createContext("/api/export", guarded("GET", this::handleExport));
+        server.setExecutor(handlers);
+        server.start();
+        System.out.println("HTTP API elindult: http://" + address.getHostString() + ":" + getPort() + "/api/");
+    }
+
+    /**
+     * A ténylegesen használt port (0 megadása esetén a rendszer választja)
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Leállítás: új kapcsolat nem jön létre, a futó válaszok legfeljebb 1 másodpercig fejeződhetnek be
+     */
+    @Override
+    public void close()
+    {
+        if (server != null)
+        {
+            server.stop(1);
+            handlers.shutdownNow();
+            exports.shutdownNow();
+        }
+    }
+
+    // Metódus és jogosultság ellenőrzés, a kezelő hibái 500-as választ adnak
+
+    private HttpHandler guarded(String method, HttpHandler handler)
+    {
+        return exchange ->
+        {
+            try
+            {
+                if (!method.equals(exchange.getRequestMethod()))
+                {
+                    exchange.getResponseHeaders().set("Allow", method);
+                    sendError(exchange, 405, "Csak " + method + " kérés engedélyezett");
+                }
+                else if (!isAuthorized(exchange))
+                {
+                    sendError(exchange, 401, "Hiányzó vagy hibás token");
+                }
+                else
+                {
+                    handler.handle(exchange);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                System.err.println("HTTP API hiba: " + e.getMessage());
+                e.printStackTrace();
+                sendError(exchange, 500, "Belső hiba");
+            }
+        };
+    }
+
+    private boolean isAuthorized(HttpExchange exchange)
+    {
+        if (token == null)
+        {
+            return true;
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && MessageDigest.isEqual(token, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // POST /api/scan: a kódok feldolgozása a ScanExecutor-on, a válasz a befejezéskor megy ki
+
+    private void handleScan(HttpExchange exchange) throws IOException
+    {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody())
+        {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES)
+        {
+            sendError(exchange, 413, "Túl nagy kérés (legfeljebb " + MAX_BODY_BYTES + " bájt)");
+            return;
+        }
+
+        List<String> codes;
+        try
+        {
+            String text = new String(body, StandardCharsets.UTF_8);
+            String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+            codes = contentType != null && contentType.contains("json") ? JsonCodes.parse(text) : lines(text);
+        }
+        catch (IllegalArgumentException e)
+        {
+            sendError(exchange, 400, "Hibás kérés: " + e.getMessage());
+            return;
+        }
+        if (codes.isEmpty())
+        {
+            sendError(exchange, 400, "Nincs beolvasandó kód");
+            return;
+        }
+        if (codes.size() > MAX_BATCH_CODES)
+        {
+            sendError(exchange, 413, "Túl sok kód (legfeljebb " + MAX_BATCH_CODES + ")");
+            return;
+        }
+
+        scanExecutor.submit(() -> scanner.processBatch(codes, ScanEvent.Source.API)).whenComplete((results, error) ->
+        {
+            if (error != null)
+            {
+                System.err.println("HTTP beolvasási hiba: " + error.getMessage());
+                sendError(exchange, 500, "A beolvasás nem sikerült");
+                return;
+            }
+            send(exchange, 200, scanResultsJson(results));
+        });
+    }
+
+    // GET /api/stats
+
+    private void handleStats(HttpExchange exchange)
+    {
+        StatisticsSnapshot snapshot = statistics.snapshot();
+        CachedJson cached = statsCache;
+        if (cached == null || cached.snapshot != snapshot)
+        {
+            StringBuilder json = new StringBuilder(128);
+            json.append("{\"date\":");
+            appendString(json, snapshot.getDate());
+            json.append(",\"headcount\":").append(snapshot.getTodayHeadcount())
+                    .append(",\"absent\":").append(bitmapIndex.countAbsent(snapshot.getDate()))
+                    .append(",\"sessionDays\":").append(snapshot.getSessionDays())
+                    .append(",\"students\":").append(snapshot.getStudents().size())
+                    .append('}');
+            cached = new CachedJson(snapshot, json.toString().getBytes(StandardCharsets.UTF_8));
+            statsCache = cached;
+        }
+        send(exchange, 200, cached.body);
+    }
+
+    // GET /api/students[?neptun=...]
+
+    private void handleStudents(HttpExchange exchange)
+    {
+        StatisticsSnapshot snapshot = statistics.snapshot();
+        String neptun = queryParams(exchange).get("neptun");
+        if (neptun != null)
+        {
+            for (StatisticsSnapshot.StudentStatistics student : snapshot.getStudents())
+            {
+                if (student.getNeptun().equalsIgnoreCase(neptun))
+                {
+                    StringBuilder json = new StringBuilder(128);
+                    appendStudent(json, student);
+                    send(exchange, 200, json.toString().getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+            sendError(exchange, 404, "Ismeretlen Neptun kód: " + neptun);
+            return;
+        }
+
+        CachedJson cached = studentsCache;
+        if (cached == null || cached.snapshot != snapshot)
+        {
+            StringBuilder json = new StringBuilder(64 + snapshot.getStudents().size() * 96);
+            json.append('[');
+            for (StatisticsSnapshot.StudentStatistics student : snapshot.getStudents())
+            {
+                if (json.length() > 1)
+                {
+                    json.append(',');
+                }
+                appendStudent(json, student);
+            }
+            json.append(']');
+            cached = new CachedJson(snapshot, json.toString().getBytes(StandardCharsets.UTF_8));
+            studentsCache = cached;
+        }
+        send(exchange, 200, cached.body);
+    }
+
+    // GET /api/export: a jelentés export szálon, ideiglenes fájlba készül, siker esetén megy ki
+
+    private void handleExport(HttpExchange exchange)
+    {
+        Map<String, String> params = queryParams(exchange);
+        ReportExporter.Kind kind;
+        ReportExporter.Format format;
+        LocalDate from;
+        LocalDate to;
+        try
+        {
+            kind = ReportExporter.Kind.valueOf(params.getOrDefault("kind", "daily").toUpperCase(Locale.ROOT));
+            format = ReportExporter.Format.valueOf(params.getOrDefault("format", "xlsx").toUpperCase(Locale.ROOT));
+            from = params.containsKey("from") ? LocalDate.parse(params.get("from")) : null;
+            to = params.containsKey("to") ? LocalDate.parse(params.get("to")) : null;
+        }
+        catch (IllegalArgumentException | DateTimeParseException e)
+        {
+            sendError(exchange, 400, "Hibás paraméter (kind=daily|session|student, format=xlsx|pdf, from/to=ÉÉÉÉ-HH-NN)");
+            return;
+        }
+
+        if (!exportPermits.tryAcquire())
+        {
+            exchange.getResponseHeaders().set("Retry-After", "10");
+            sendError(exchange, 503, "Túl sok egyidejű export, próbálja később");
+            return;
+        }
+
+        exports.execute(() ->
+        {
+            Path file = null;
+            try
+            {
+                // A jelentés ideiglenes fájlba készül, és csak hibátlan elkészülés után megy ki
+                // a válasz; hiba esetén még nincs fejléc, így a kliens 500-at kap fél fájl helyett
+                file = Files.createTempFile("attendance-export", "." + format.getExtension());
+                long rows;
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), EXPORT_BUFFER_BYTES))
+                {
+                    rows = exporter.export(kind, format, from, to, out, NO_PROGRESS);
+                }
+
+                Headers headers = exchange.getResponseHeaders();
+                headers.set("Content-Type", format == ReportExporter.Format.PDF ? "application/pdf"
+                        : "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+                headers.set("Content-Disposition", "attachment; filename=\"jelentes_"
+                        + kind.name().toLowerCase(Locale.ROOT) + "." + format.getExtension() + "\"");
+                exchange.sendResponseHeaders(200, Files.size(file));
+                try (OutputStream body = exchange.getResponseBody())
+                {
+                    Files.copy(file, body);
+                }
+                System.out.println("HTTP export elkészült: " + kind.name() + " " + format.name() + " (" + rows + " sor)");
+            }
+            catch (Exception e)
+            {
+                System.err.println("HTTP export hiba: " + e.getMessage());
+                if (exchange.getResponseCode() == -1)
+                {
+                    sendError(exchange, 500, "A jelentés nem készült el");
+                }
+            }
+            finally
+            {
+                exchange.close();
+                exportPermits.release();
+                if (file != null)
+                {
+                    try
+                    {
+                        Files.deleteIfExists(file);
+                    }
+                    catch (IOException e)
+                    {
+                        System.err.println("Ideiglenes export törlési hiba: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+    private static String scanResultsJson(List<BarcodeScanner.ScanResult> results)
+    {
+        int accepted = 0;
+        StringBuilder json = new StringBuilder(64 + results.size() * 96);
+        json.append("{\"results\":[");
+        for (int i = 0; i < results.size(); i++)
+        {
+            BarcodeScanner.ScanResult result = results.get(i);
+            if (result.getStatus() == BarcodeScanner.ScanResult.Status.ACCEPTED)
+            {
+                accepted++;
+            }
+            if (i > 0)
+            {
+                json.append(',');
+            }
+            json.append("{\"code\":");
+            appendString(json, result.getCode());
+            json.append(",\"status\":");
+            appendString(json, result.getStatus().name().toLowerCase(Locale.ROOT));
+            json.append(",\"name\":");
+            appendString(json, result.getName());
+            json.append(",\"neptun\":");
+            appendString(json, result.getNeptun());
+            json.append('}');
+        }
+        json.append("],\"accepted\":").append(accepted).append('}');
+        return json.toString();
+    }
+
+    private static void appendStudent(StringBuilder json, StatisticsSnapshot.StudentStatistics student)
+    {
+        json.append("{\"neptun\":");
+        appendString(json, student.getNeptun());
+        json.append(",\"name\":");
+        appendString(json, student.getName());
+        json.append(",\"major\":");
+        appendString(json, student.getMajor());
+        json.append(",\"days\":").append(student.getAttendedDays())
+                .append(",\"percentage\":").append(Math.round(student.getPercentage() * 10) / 10.0)
+                .append('}');
+    }
+
+    // JSON szöveg literál (idézőjel, visszaperjel és vezérlő karakterek escape-elve)
+
+    static void appendString(StringBuilder json, String value)
+    {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            switch (c)
+            {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                    {
+                        json.append(String.format("\\u%04x", (int) c));
+                    }
+                    else
+                    {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static List<String> lines(String text)
+    {
+        List<String> codes = new ArrayList<>();
+        for (String line : text.split("\r?\n"))
+        {
+            if (!line.isBlank())
+            {
+                codes.add(line.trim());
+            }
+        }
+        return codes;
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange)
+    {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null)
+        {
+            return params;
+        }
+        for (String pair : query.split("&"))
+        {
+            int eq = pair.indexOf('=');
+            if (eq > 0)
+            {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message)
+    {
+        StringBuilder json = new StringBuilder(64 + message.length());
+        json.append("{\"error\":");
+        appendString(json, message);
+        json.append('}');
+        send(exchange, status, json.toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String json)
+    {
+        send(exchange, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Válasz kiírása (bármelyik szálról); ha a kliens közben bontotta a kapcsolatot, csak lezárjuk
+
+    private static void send(HttpExchange exchange, int status, byte[] body)
+    {
+        try
+        {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody())
+            {
+                out.write(body);
+            }
+        }
+        catch (IOException e)
+        {
+            // A kliens már nem várja a választ
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    /**
+     * A beolvasási kérés JSON törzsének értelmezése: {"code": "..."}, {"codes": ["...", ...]}
+     * vagy egy szöveg tömb. Csak ezt a szűk formát ismeri, más érték hibát ad.
+     */
+    static final class JsonCodes
+    {
+        private final String text;
+        private int pos;
+
+        private JsonCodes(String text)
+        {
+            this.text = text;
+        }
+
+        static List<String> parse(String text)
+        {
+            JsonCodes parser = new JsonCodes(text);
+            List<String> codes = new ArrayList<>();
+            parser.skipWhitespace();
+            if (parser.peek() == '[')
+            {
+                parser.readArray(codes);
+            }
+            else
+            {
+                parser.expect('{');
+                parser.skipWhitespace();
+                if (parser.peek() != '}')
+                {
+                    do
+                    {
+                        parser.skipWhitespace();
+                        String key = parser.readString();
+                        parser.skipWhitespace();
+                        parser.expect(':');
+                        parser.skipWhitespace();
+                        if (parser.peek() == '[')
+                        {
+                            List<String> values = new ArrayList<>();
+                            parser.readArray(values);
+                            if (key.equals("codes"))
+                            {
+                                codes.addAll(values);
+                            }
+                        }
+                        else
+                        {
+                            String value = parser.readString();
+                            if (key.equals("code"))
+                            {
+                                codes.add(value);
+                            }
+                        }
+                        parser.skipWhitespace();
+                    }
+                    while (parser.tryConsume(','));
+                }
+                parser.expect('}');
+            }
+            parser.skipWhitespace();
+            if (parser.pos != text.length())
+            {
+                throw new IllegalArgumentException("fölösleges adat a JSON után");
+            }
+            return codes;
+        }
+
+        private void readArray(List<String> values)
+        {
+            expect('[');
+            skipWhitespace();
+            if (tryConsume(']'))
+            {
+                return;
+            }
+            do
+            {
+                skipWhitespace();
+                values.add(readString());
+                skipWhitespace();
+            }
+            while (tryConsume(','));
+            expect(']');
+        }
+
+        private String readString()
+        {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true)
+            {
+                if (pos >= text.length())
+                {
+                    throw new IllegalArgumentException("lezáratlan szöveg");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"')
+                {
+                    return value.toString();
+                }
+                if (c != '\\')
+                {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length())
+                {
+                    throw new IllegalArgumentException("lezáratlan escape");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped)
+                {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length())
+                        {
+                            throw new IllegalArgumentException("hibás \\u escape");
+                        }
+                        value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                        break;
+                    default:
+                        value.append(escaped); // " \ /
+                }
+            }
+        }
+
+        private void skipWhitespace()
+        {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+            {
+                pos++;
+            }
+        }
+
+        private char peek()
+        {
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private boolean tryConsume(char c)
+        {
+            if (peek() == c)
+            {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c)
+        {
+            if (!tryConsume(c))
+            {
+                throw new IllegalArgumentException("'" + c + "' várt a(z) " + pos + ". pozíción");
+            }
+        }
+    }
+}
@@ -1,34 +1,50 @@
 package com.university.attendance;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.opencv.core.*;
-import org.opencv.videoio.VideoCapture;
-import com.google.zxing.*;
-import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
-import com.google.zxing.common.HybridBinarizer;
-
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
-import java.io.ByteArrayInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 
 public class AttendanceApp extends Application 
 {
-    // Kamera objektum a videó stream kezeléséhez
-    private VideoCapture camera;
+    // Kamera a videó stream kezeléséhez (formátum: -Dattendance.camera.format=auto|mjpeg|yuyv,
+    // -Dattendance.camera.width / height, -Dattendance.camera.buffer = driver puffer képkockákban)
+    private CameraCapture camera;
+    private static final String CAMERA_FORMAT_PROPERTY = "attendance.camera.format";
+    private static final String CAMERA_WIDTH_PROPERTY = "attendance.camera.width";
+    private static final String CAMERA_HEIGHT_PROPERTY = "attendance.camera.height";
+    private static final String CAMERA_BUFFER_PROPERTY = "attendance.camera.buffer";
+    private static final int CAMERA_FPS = 30;
     
     // UI komponensek a kamera kép és állapot megjelenítéséhez
     private ImageView imageView;
@@ -39,9 +55,66 @@ public class AttendanceApp extends Application
     // Háttérszál a folyamatos képfeldolgozáshoz
     private ScheduledExecutorService executor;
 
+    // A kamera képkocka és az előnézet pufferei indításonként egyszer foglalódnak le,
+    // minden képkocka ezeket használja újra; leállításkor a készlet felszabadul
+    private MatPool framePool;
+    private PreviewRenderer previewRenderer;
+    private long framesSinceMemoryReport;
+    private static final long MEMORY_REPORT_FRAMES = 30 * 60 * 5; // kb. 5 percenként
+
+    // Beolvasások blokkoló DB munkája ezen fut, nem az FX szálon
+    private ScanExecutor scanExecutor;
+
+    // Beolvasási események: a kamera, a vonalkód olvasó és az API ide teszi a kimenetelt,
+    // a fogyasztók (UI, metrikák, audit napló) saját pufferből, saját szálon dolgoznak
+    private ScanEventBus scanEventBus;
+    private ScanMetrics scanMetrics;
+    private ScanAuditLog scanAuditLog;
+    private static final String AUDIT_LOG_FILE = "attendance-audit.log";
+
     // Adatbázis kezelő a jelenléti adatok tárolásához
     private DatabaseManager dbManager;
 
+    // Beolvasási napló: az elfogadott beolvasások előbb ide, tartósan kerülnek
+    private ScanJournal scanJournal;
+    private static final String JOURNAL_FILE = "attendance.journal";
+
+    // Kioszkok közötti replikáció (csak ha meg van adva a közös mappa vagy a socket port)
+    private ReplicationTransport replicationTransport;
+    private static final String REPLICATION_DIR_PROPERTY = "attendance.replication.dir";
+    private static final String REPLICATION_PORT_PROPERTY = "attendance.replication.port";
+    private static final String REPLICATION_PEERS_PROPERTY = "attendance.replication.peers";
+    private static final long REPLICATION_PERIOD_SECONDS = 60;
+
+    // Karbantartás: lezárt félévek archiválása, VACUUM/ANALYZE tétlen időszakban
+    private DatabaseMaintenance databaseMaintenance;
+    private static final String ARCHIVE_DIR_PROPERTY = "attendance.archive.dir";
+    private static final String RETENTION_TERMS_PROPERTY = "attendance.retention.keepTerms";
+    private static final String MAINTENANCE_IDLE_PROPERTY = "attendance.maintenance.idleSeconds";
+    private static final long MAINTENANCE_PERIOD_SECONDS = 30;
+
+    // Helyi HTTP/JSON API (csak ha a port meg van adva)
+    private ApiServer apiServer;
+    private static final String API_PORT_PROPERTY = "attendance.api.port";
+    private static final String API_BIND_PROPERTY = "attendance.api.bind";
+    private static final String API_TOKEN_PROPERTY = "attendance.api.token";
+
+    // Élő statisztika (egyszer töltődik be, utána eseményekből frissül)
+    private StatisticsEngine statisticsEngine;
+
+    // Keresőindex a nyilvántartás ablakhoz (egyszer töltődik be, utána eseményekből frissül)
+    private SearchIndex searchIndex;
+    private static final int SEARCH_RESULT_LIMIT = 500;
+
+    // Hallgatónkénti jelenléti bitmap az alkalmak felett (hiányzók, sorozatos hiányzás)
+    private AttendanceBitmapIndex bitmapIndex;
+
+    // Ez alatti jelenléti arány esetén a hallgató veszélyeztetett
+    private static final double AT_RISK_THRESHOLD = 70.0;
+
+    // Ennyi egymást követő hiányzott alkalom után jelenik meg a hallgató a statisztikában
+    private static final int ABSENCE_STREAK_ALERT = 3;
+
     // Vonalkód scanner és hallgató kezelő
     private BarcodeScanner barcodeScanner;
     private StudentManager studentManager;
@@ -49,31 +122,48 @@ public class AttendanceApp extends Application
     // Flag a többszörös QR feldolgozás elkerülésére
     private volatile boolean isProcessing = false;
     
+    // QR dekóder; sikertelen képkockánál ennyi szálon próbálkozik előfeldolgozott változatokkal
+    // (-Dattendance.decode.threads=N, 0 = kikapcsolva)
+    // A motor: -Dattendance.decoder=zxing|opencv|chained|auto (auto: induláskori kalibráció)
+    private QRCodeDecoder qrDecoder;
+    private static final String DECODE_THREADS_PROPERTY = "attendance.decode.threads";
+    private static final String DECODER_PROPERTY = "attendance.decoder";
+
+    // Csoportos módban egy képkockán több QR kód is feldolgozásra kerül
+    private volatile boolean groupScanMode = false;
+
+    // Csoportos módban QR kódonként tartjuk az utolsó beolvasás idejét (csak FX szál)
+    private final Map<String, Long> recentScans = new HashMap<>();
+
     // Utolsó sikeresen beolvasott Neptun kód és időbélyeg
     private volatile String lastScannedNeptun = "";
     private volatile long lastScanTime = 0;
     
-    // OpenCV natív könyvtár betöltése az alkalmazás indításakor
-    static 
-    {
-        nu.pattern.OpenCV.loadLocally();
-    }
-    
+    // Betanító futáshoz (AppCDS archívum készítése): indulás után azonnal kilép
+    private static final String EXIT_AFTER_STARTUP_PROPERTY = "attendance.startup.exitAfterReady";
+
+    // Az OpenCV natív könyvtár csak a kamera indításakor töltődik be (OpenCVLoader)
+
     @Override
     public void start(Stage primaryStage) 
     {
-        // Adatbázis inicializálás és táblák létrehozása
-        dbManager = new DatabaseManager();
-        dbManager.initDatabase();
+        StartupTimeline.mark("start()");
 
-        // BarcodeScanner inicializálása
-        barcodeScanner = new BarcodeScanner(
-            dbManager,
-            message -> statusLabel.setText(message)
-        );
+        // Egy író és READER_POOL_SIZE olvasó kapcsolat van, ennél több DB feladat ne fusson egyszerre
+        scanExecutor = new ScanExecutor(DatabaseManager.READER_POOL_SIZE + 1);
+        startScanEvents();
 
-        // StudentManager inicializálása
-        studentManager = new StudentManager(dbManager);
+        // Adatbázis inicializálás és táblák létrehozása háttérszálon, amíg a felület felépül
+        dbManager = new DatabaseManager();
+        statisticsEngine = new StatisticsEngine();
+        searchIndex = new SearchIndex();
+        bitmapIndex = new AttendanceBitmapIndex();
+        CompletableFuture<Void> database = scanExecutor.submit(() ->
+        {
+            dbManager.initDatabase();
+            StartupTimeline.mark("Adatbázis séma kész");
+            return null;
+        });
 
         // Fő Konténer létrehozása
         VBox root = new VBox(15);
@@ -94,9 +184,6 @@ public class AttendanceApp extends Application
         barcodeInputField.setPromptText("Szkennelj be egy vonalkódot vagy írd be a Neptun kódot...");
         barcodeInputField.setPrefWidth(500);
 
-        // BarcodeScanner beállítása a TextField-re
-        barcodeScanner.setupBarcodeField(barcodeInputField);
-
         barcodeSection.getChildren().addAll(barcodeLabel, barcodeInputField);
 
         // Kamera képet megjelenítő terület
@@ -105,8 +192,12 @@ public class AttendanceApp extends Application
         imageView.setFitHeight(480);
         imageView.setPreserveRatio(true);
 
+        // Csoportos beolvasás: egy képkockán több hallgató QR kódja
+        CheckBox groupScanCheckBox = new CheckBox("Csoportos beolvasás");
+        groupScanCheckBox.selectedProperty().addListener((obs, oldValue, newValue) -> groupScanMode = newValue);
+
         // Állapot címke (sikeres/sikertelen beolvasás)
-        statusLabel = new Label("Készen Áll");
+        statusLabel = new Label("Indítás...");
 
         // Jelenlétet számláló címke
         attendanceCountLabel = new Label("");
@@ -119,9 +210,16 @@ public class AttendanceApp extends Application
         Button stopButton = new Button("Kamera Leállítása");
         Button addStudentButton = new Button("Új Hallgató Felvitele");
         Button viewRecordsButton = new Button("Összes Hallgató Listázása");
+        Button statisticsButton = new Button("Statisztika");
+        Button sessionButton = new Button("Kurzus Alkalom");
 
         stopButton.setDisable(true);
 
+        // Az adatbázist és a naplót használó vezérlők az indulás végéig tiltva
+        List<Control> startupControls = List.of(barcodeInputField, startButton, addStudentButton,
+                viewRecordsButton, statisticsButton, sessionButton);
+        startupControls.forEach(control -> control.setDisable(true));
+
         startButton.setOnAction(e ->
         {
             startCamera();
@@ -140,10 +238,15 @@ public class AttendanceApp extends Application
 
         viewRecordsButton.setOnAction(e -> showRecordsWindow());
 
-        buttonBox.getChildren().addAll(startButton, stopButton, addStudentButton, viewRecordsButton);
+        statisticsButton.setOnAction(e -> showStatisticsWindow());
+
+        sessionButton.setOnAction(e -> showSessionWindow());
+
+        buttonBox.getChildren().addAll(startButton, stopButton, addStudentButton, viewRecordsButton, statisticsButton,
+                sessionButton);
 
         // Összes UI elem hozzáadása a fő konténerhez
-        root.getChildren().addAll(titleLabel, barcodeSection, imageView, statusLabel,
+        root.getChildren().addAll(titleLabel, barcodeSection, imageView, groupScanCheckBox, statusLabel,
                                    attendanceCountLabel, buttonBox);
 
         // Jelenet és ablak beállítása
@@ -152,6 +255,110 @@ public class AttendanceApp extends Application
         primaryStage.setScene(scene);
         primaryStage.setOnCloseRequest(e -> cleanup());
         primaryStage.show();
+        StartupTimeline.mark(StartupTimeline.WINDOW_SHOWN);
+
+        finishStartup(database, startupControls);
+    }
+
+
+    // Indulás befejezése a háttérben: a statisztika és a keresőindex betöltése, valamint a
+    // gyorsítótár bemelegítése párhuzamosan fut, utána nyílik meg a napló (a visszajátszott
+    // bejegyzések így már a feliratkozott statisztikába és indexbe is bekerülnek).
+    // A végén engedélyezzük a beolvasást.
+
+    private void finishStartup(CompletableFuture<Void> database, List<Control> startupControls)
+    {
+        CompletableFuture<Void> statistics = database.thenCompose(v -> scanExecutor.run(() ->
+        {
+            // Statisztika betöltése, majd feliratkozás az új jelenlétekre
+            statisticsEngine.load(dbManager);
+            dbManager.addAttendanceListener(statisticsEngine::onAttendanceRecorded);
+            StartupTimeline.mark("Statisztika betöltve");
+        }));
+
+        CompletableFuture<Void> search = database.thenCompose(v -> scanExecutor.run(() ->
+        {
+            searchIndex.load(dbManager);
+            dbManager.addAttendanceListener(searchIndex::onAttendanceRecorded);
+            StartupTimeline.mark("Keresőindex betöltve");
+        }));
+
+        CompletableFuture<Void> bitmap = database.thenCompose(v -> scanExecutor.run(() ->
+        {
+            bitmapIndex.load(dbManager);
+            dbManager.addAttendanceListener(bitmapIndex::onAttendanceRecorded);
+            StartupTimeline.mark("Jelenléti bitmap betöltve");
+        }));
+
+        CompletableFuture<Void> warmUp = database.thenCompose(v -> scanExecutor.run(() ->
+        {
+            dbManager.warmUp();
+            StartupTimeline.mark("Gyorsítótár bemelegítve");
+        }));
+
+        // Napló megnyitása - az előző futásból maradt bejegyzések itt kerülnek vissza
+        CompletableFuture<ScanJournal> journal = CompletableFuture.allOf(statistics, search, bitmap)
+                .thenCompose(v -> scanExecutor.submit(() ->
+        {
+            ScanJournal opened = new ScanJournal(Path.of(JOURNAL_FILE), dbManager);
+            StartupTimeline.mark("Napló megnyitva");
+            return opened;
+        }));
+
+        CompletableFuture.allOf(journal, warmUp).whenComplete((v, error) -> Platform.runLater(() ->
+        {
+            if (error != null)
+            {
+                // Napló nélkül a beolvasások elveszhetnének, ezért nem indulunk el
+                System.err.println("Indítási hiba: " + error.getMessage());
+                error.printStackTrace();
+                // Ha az adatbázis nem készült el, a napló sem nyílt meg: az az eredeti ok
+                if (journal.isCompletedExceptionally() && !database.isCompletedExceptionally())
+                {
+                    showAlert("Napló Hiba", "A beolvasási naplót nem sikerült megnyitni: " + JOURNAL_FILE);
+                }
+                else
+                {
+                    showAlert("Indítási Hiba", "Az adatbázist nem sikerült előkészíteni!");
+                }
+                cleanup();
+                Platform.exit();
+                return;
+            }
+            scanJournal = journal.join();
+
+            // BarcodeScanner inicializálása (a callback háttérszálról érkezik)
+            barcodeScanner = new BarcodeScanner(
+                dbManager,
+                scanJournal,
+                scanExecutor,
+                scanEventBus,
+                message -> Platform.runLater(() -> statusLabel.setText(message))
+            );
+            barcodeScanner.setupBarcodeField(barcodeInputField);
+
+            // StudentManager inicializálása
+            studentManager = new StudentManager(dbManager, scanExecutor);
+
+            // Replikáció indítása, ha a közös mappa (-Dattendance.replication.dir=...) vagy a
+            // socket port és a társ kioszkok (-Dattendance.replication.port=N -Dattendance.replication.peers=...) meg vannak adva
+            startReplication();
+            startMaintenance();
+            startApi();
+
+            startupControls.forEach(control -> control.setDisable(false));
+            statusLabel.setText("Készen Áll");
+            barcodeInputField.requestFocus();
+
+            StartupTimeline.mark(StartupTimeline.READY_TO_SCAN);
+            System.out.println(StartupTimeline.report());
+
+            if (Boolean.getBoolean(EXIT_AFTER_STARTUP_PROPERTY))
+            {
+                cleanup();
+                Platform.exit();
+            }
+        }));
     }
     
     
@@ -159,83 +366,116 @@ public class AttendanceApp extends Application
     
     private void startCamera() 
     {
-        // Alapértelmezett kamera megnyitása 
-        camera = new VideoCapture(0);
+        // Az első kamera indításkor töltjük be az OpenCV natív könyvtárat
+        OpenCVLoader.ensureLoaded();
+
+        // Alapértelmezett kamera megnyitása a beállított formátummal
+        framePool = new MatPool(2);
+        camera = new CameraCapture(framePool,
+                CameraCapture.PixelFormat.choose(System.getProperty(CAMERA_FORMAT_PROPERTY)),
+                Integer.getInteger(CAMERA_WIDTH_PROPERTY, 640), Integer.getInteger(CAMERA_HEIGHT_PROPERTY, 480),
+                CAMERA_FPS, Integer.getInteger(CAMERA_BUFFER_PROPERTY, 1));
         
-        if (!camera.isOpened()) 
+        if (!camera.open(0)) 
         {
+            camera.close();
+            framePool.close();
+            camera = null;
+            framePool = null;
             showAlert("Kamera Hiba", "A kamerát nem sikerült elérni!");
             return;
         }
         
+        previewRenderer = new PreviewRenderer(imageView, framePool);
+
         // Háttérszál indítása 30 FPS-sel (33ms-onként olvas be képet)
         executor = Executors.newSingleThreadScheduledExecutor();
+
+        // Az első indításkor ZXing-gel kezdünk, a motort a háttérben futó kalibráció választja ki
+        if (qrDecoder == null)
+        {
+            qrDecoder = new QRCodeDecoder(new ZXingDecoderBackend(),
+                    Integer.getInteger(DECODE_THREADS_PROPERTY, QRCodeDecoder.DEFAULT_ENHANCEMENT_THREADS));
+            Thread calibration = new Thread(this::selectDecoderBackend, "decoder-calibration");
+            calibration.setDaemon(true);
+            calibration.start();
+        }
         executor.scheduleAtFixedRate(this::processFrame, 0, 33, TimeUnit.MILLISECONDS);
     }
     
     
+    // A beállított (vagy kalibrációval kiválasztott) motor beállítása a dekóderen
+    // Kalibrációs hiba esetén a ZXing motor marad
+
+    private void selectDecoderBackend()
+    {
+        try
+        {
+            qrDecoder.setBackend(DecoderCalibration.choose(System.getProperty(DECODER_PROPERTY)));
+        }
+        catch (RuntimeException e)
+        {
+            System.err.println("Dekóder kalibrációs hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+
     // Egyetlen kamera frame feldolgozása: kép megjelenítés és QR dekódolás
     
     private void processFrame() 
     {
-        if (camera == null || !camera.isOpened()) 
+        // Helyi másolat: a leállítás közben a mező már null lehet
+        CameraCapture capture = camera;
+        if (capture == null || !capture.isOpened()) 
         {
             return;
         }
         
-        Mat frame = new Mat();
-        camera.read(frame);
+        // A képkocka mindig ugyanabba a Mat-ba érkezik (azonos méretnél nincs újrafoglalás),
+        // a dekóder csak a fényesség csatornát kapja
+        if (!capture.read()) 
+        {
+            return;
+        }
+        Mat frame = capture.getLuminance();
+
+        // Megjelenítés (színkonverzió csak akkor, ha az előző előnézet már kirajzolódott)
+        previewRenderer.submit(capture);
         
-        if (!frame.empty()) 
+        // QR kód dekódolás megkísérlése (ha nincs épp feldolgozás alatt)
+        if (!isProcessing) 
         {
-            // OpenCV Mat konvertálása JavaFX Image-be és megjelenítés
-            Image img = matToImage(frame);
-            Platform.runLater(() -> imageView.setImage(img));
-            
-            // QR kód dekódolás megkísérlése (ha nincs épp feldolgozás alatt)
-            if (!isProcessing) 
+            isProcessing = true;
+            if (groupScanMode)
+            {
+                List<String> codes = qrDecoder.decodeAll(frame);
+                if (!codes.isEmpty())
+                {
+                    Platform.runLater(() -> handleQRBatch(codes));
+                }
+            }
+            else
             {
-                isProcessing = true;
-                String qrData = decodeQRCode(frame);
-                
-                if (qrData != null) 
+                String qrData = qrDecoder.decode(frame);
+
+                if (qrData != null)
                 {
                     // UI frissítés a JavaFX Application szálon
                     Platform.runLater(() -> handleQRData(qrData));
                 }
-                isProcessing = false;
             }
-            
-            // Mat felszabadítása
-            frame.release();
+            isProcessing = false;
         }
-    }
-    
-    
-    // QR kód dekódolás a képből a ZXing könyvtár segítségével
-    // return: QR kód szöveg, vagy null ha nincs érvényes QR kód
-    
-    private String decodeQRCode(Mat frame) 
-    {
-        try 
-        {
-            // OpenCV Mat -> BufferedImage konverzió
-            BufferedImage bufferedImage = matToBufferedImage(frame);
-            LuminanceSource source = new BufferedImageLuminanceSource(bufferedImage);
-            BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(source));
-            
-            // QR kód dekódolás
-            Result result = new MultiFormatReader().decode(bitmap);
-            return result.getText();
-        } 
-        catch (NotFoundException e) 
+
+        if (++framesSinceMemoryReport >= MEMORY_REPORT_FRAMES)
         {
-            // Nincs QR kód
-            return null;
+            framesSinceMemoryReport = 0;
+            System.out.println(NativeMemory.summary() + ", kihagyott előnézet: " + previewRenderer.getDroppedFrames());
         }
     }
     
-
+    
     // Beolvasott QR kód adat feldolgozása és adatbázisba mentés
     // Elfogadott formátum: Name=Pelda János;Major=PeldaMernok;Neptun=ABC123
     
@@ -251,137 +491,710 @@ public class AttendanceApp extends Application
                 return;
             }
             
-            // QR adat szétbontása kulcs-érték párokra
-            String[] parts = qrData.split(";");
-            String name = "", major = "", neptun = "";
-            
-            for (String part : parts) 
+            // A feldolgozás (formátum, napi egyszeri jelenlét, naplózás) a BarcodeScanner kamerás
+            // útján, háttérszálon fut; az eredményt az FX szálon jelenítjük meg
+            barcodeScanner.processCameraCode(qrData).whenComplete((scan, error) -> Platform.runLater(() ->
             {
-                String[] keyValue = part.split("=");
-                if (keyValue.length == 2) 
+                if (error != null)
                 {
-                    switch (keyValue[0].trim()) 
-                    {
-                        case "Name":
-                            name = keyValue[1].trim();
-                            break;
-                        case "Major":
-                            major = keyValue[1].trim();
-                            break;
-                        case "Neptun":
-                            neptun = keyValue[1].trim();
-                            break;
-                    }
+                    showQRError(error);
+                    return;
                 }
-            }
-            
-            // Kötelező mezők ellenőrzése
-            if (name.isEmpty() || neptun.isEmpty()) 
+                BarcodeScanner.ScanResult result = scan.getResult();
+                switch (result.getStatus())
+                {
+                    case INVALID_FORMAT:
+                        statusLabel.setText("Helytelen QR-kód Formátum!");
+                        statusLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: red;");
+                        break;
+                    case UNKNOWN_STUDENT:
+                        statusLabel.setText("Ismeretlen Neptun kód: " + result.getNeptun());
+                        statusLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: red;");
+                        break;
+                    default:
+                        showScanResult(result.getName(), result.getNeptun(), scan.getTotalScans(), currentTime);
+                        break;
+                }
+            }));
+        } 
+        catch (Exception e) 
+        {
+            showQRError(e);
+        }
+    }
+
+
+    // Csoportos beolvasás: egy képkocka összes QR kódja egyetlen napló írással (FX szál)
+    // A 3 másodpercen belül ismételt kódokat csendben kihagyjuk
+
+    private void handleQRBatch(List<String> codes)
+    {
+        long currentTime = System.currentTimeMillis();
+        recentScans.values().removeIf(time -> currentTime - time >= 3000);
+
+        List<String> scanCodes = new ArrayList<>();
+        for (String code : codes)
+        {
+            if (recentScans.putIfAbsent(code, currentTime) == null)
             {
-                statusLabel.setText("Helytelen QR-kód Formátum!");
-                statusLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: red;");
-                return;
+                scanCodes.add(code);
             }
-            
-            // Mai dátum ellenőrzése mert egy hallgató naponta csak egyszer jelentkezhet be
-            LocalDate today = LocalDate.now();
-            if (dbManager.hasScannedToday(neptun, today.toString())) 
+        }
+
+        if (scanCodes.isEmpty())
+        {
+            return;
+        }
+
+        barcodeScanner.processCameraBatch(scanCodes).whenComplete((results, error) -> Platform.runLater(() ->
             {
-                statusLabel.setText("Ma Már Beszkennelted a Kódot!");
-                statusLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: orange; -fx-font-weight: bold;");
-                attendanceCountLabel.setText("");
-            } 
-            else 
+                if (error != null)
+                {
+                    showQRError(error);
+                    return;
+                }
+                showBatchResult(results);
+            }));
+    }
+
+
+    // Csoportos beolvasás eredményének megjelenítése (FX szál)
+
+    private void showBatchResult(List<BarcodeScanner.ScanResult> results)
+    {
+        List<String> names = new ArrayList<>();
+        int duplicates = 0;
+        for (BarcodeScanner.ScanResult result : results)
+        {
+            if (result.getStatus() == BarcodeScanner.ScanResult.Status.ACCEPTED)
             {
-                // Jelenlét rögzítése az adatbázisban
-                dbManager.recordAttendance(name, major, neptun, today.toString());
-                int totalScans = dbManager.getTotalScans(neptun);
-
-                // Sikeres beolvasás jelzése
-                statusLabel.setText("Sikeres Adatrögzítés!");
-                statusLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: green; -fx-font-weight: bold;");
-                attendanceCountLabel.setText(String.format("%s - Megjelent ennyi alkalommal: %d", name, totalScans));
-                
-                // Utolsó sikeres beolvasás mentése
-                lastScannedNeptun = neptun;
-                lastScanTime = currentTime;
+                names.add(result.getName());
             }
-            
-            // Állapot visszaállítása 3 másodperc után
-            new Thread(() -> 
+            else if (result.getStatus() == BarcodeScanner.ScanResult.Status.ALREADY_SCANNED)
             {
-                try 
-                {
-                    Thread.sleep(3000);
-                    Platform.runLater(() -> 
-                    {
-                        statusLabel.setText("Készen Áll a QR-kód Szkennelésre");
-                        statusLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #555;");
-                        attendanceCountLabel.setText("");
-                    });
-                } 
-                catch (InterruptedException e) 
-                {
-                    e.printStackTrace();
-                }
-            }).start();
-            
-        } 
-        catch (Exception e) 
+                duplicates++;
+            }
+        }
+
+        statusLabel.setText(String.format("Csoportos Beolvasás: %d Sikeres, %d Már Beolvasva", names.size(), duplicates));
+        statusLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: " + (names.isEmpty() ? "orange" : "green")
+                + "; -fx-font-weight: bold;");
+        attendanceCountLabel.setText(String.join(", ", names));
+
+        // Állapot visszaállítása 3 másodperc után
+        scanExecutor.schedule(() -> Platform.runLater(() ->
         {
-            statusLabel.setText("Hiba történt a QR feldolgozása során!");
-            statusLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: red;");
-            e.printStackTrace();
+            statusLabel.setText("Készen Áll a QR-kód Szkennelésre");
+            statusLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #555;");
+            attendanceCountLabel.setText("");
+        }), 3, TimeUnit.SECONDS);
+    }
+
+
+    // Beolvasás eredményének megjelenítése (FX szál)
+    // totalScans < 0 esetén a hallgató ma már be volt olvasva
+
+    private void showScanResult(String name, String neptun, int totalScans, long scanTime)
+    {
+        if (totalScans < 0)
+        {
+            statusLabel.setText("Ma Már Beszkennelted a Kódot!");
+            statusLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: orange; -fx-font-weight: bold;");
+            attendanceCountLabel.setText("");
         }
+        else
+        {
+            // Sikeres beolvasás jelzése
+            statusLabel.setText("Sikeres Adatrögzítés!");
+            statusLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: green; -fx-font-weight: bold;");
+            attendanceCountLabel.setText(String.format("%s - Megjelent ennyi alkalommal: %d", name, totalScans));
+
+            // Utolsó sikeres beolvasás mentése
+            lastScannedNeptun = neptun;
+            lastScanTime = scanTime;
+        }
+
+        // Állapot visszaállítása 3 másodperc után
+        scanExecutor.schedule(() -> Platform.runLater(() ->
+        {
+            statusLabel.setText("Készen Áll a QR-kód Szkennelésre");
+            statusLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #555;");
+            attendanceCountLabel.setText("");
+        }), 3, TimeUnit.SECONDS);
+    }
+
+
+    // Hibás QR feldolgozás jelzése (FX szál)
+
+    private void showQRError(Throwable e)
+    {
+        statusLabel.setText("Hiba történt a QR feldolgozása során!");
+        statusLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: red;");
+        e.printStackTrace();
     }
     
     
-    // Új ablak megnyitása az összes jelenléti rekord megjelenítésére
+    // Nyilvántartás ablak: keresés név / Neptun kód szerint gépelés közben,
+    // szak és dátum szűréssel (a memóriában tartott keresőindexből)
     
     private void showRecordsWindow() 
     {
         Stage recordsStage = new Stage();
         recordsStage.setTitle("Minden Jelenléti Adat");
-        
-        // Szöveges terület az adatok megjelenítésére
-        TextArea textArea = new TextArea();
-        textArea.setEditable(false);
-        textArea.setStyle("-fx-font-family: monospace; -fx-font-size: 12px;");
-        
-        // Összes rekord lekérése és megjelenítése
-        String records = dbManager.getAllRecords();
-        textArea.setText(records);
-        
+
+        // Keresőmező és szűrők
+        TextField searchField = new TextField();
+        searchField.setPromptText("Keresés név vagy Neptun kód alapján...");
+        HBox.setHgrow(searchField, Priority.ALWAYS);
+
+        String allMajors = "Összes szak";
+        ComboBox<String> majorBox = new ComboBox<>();
+        majorBox.getItems().add(allMajors);
+        majorBox.getItems().addAll(searchIndex.getMajors());
+        majorBox.setValue(allMajors);
+
+        DatePicker fromPicker = new DatePicker();
+        fromPicker.setPromptText("Ettől");
+        fromPicker.setPrefWidth(130);
+        DatePicker toPicker = new DatePicker();
+        toPicker.setPromptText("Eddig");
+        toPicker.setPrefWidth(130);
+
+        HBox filterBox = new HBox(10, searchField, majorBox, fromPicker, toPicker);
+        filterBox.setAlignment(Pos.CENTER_LEFT);
+
+        // Találatok táblázata
+        TableView<SearchIndex.Result> table = new TableView<>();
+        table.getColumns().add(column("Név", 220, SearchIndex.Result::getName));
+        table.getColumns().add(column("Neptun", 90, SearchIndex.Result::getNeptun));
+        table.getColumns().add(column("Szak", 200, SearchIndex.Result::getMajor));
+        table.getColumns().add(column("Alkalmak", 80, result -> String.valueOf(result.getAttendedDays())));
+        table.getColumns().add(column("Utolsó jelenlét", 120, SearchIndex.Result::getLastDate));
+        table.setPlaceholder(new Label("Nincs találat"));
+        VBox.setVgrow(table, Priority.ALWAYS);
+
+        Label resultLabel = new Label();
+
+        // Minden változásnál azonnal újrakeres (az index ms alatt válaszol)
+        Runnable runSearch = () ->
+        {
+            long start = System.nanoTime();
+            String major = allMajors.equals(majorBox.getValue()) ? null : majorBox.getValue();
+            List<SearchIndex.Result> results = searchIndex.search(searchField.getText(), major,
+                    fromPicker.getValue(), toPicker.getValue(), SEARCH_RESULT_LIMIT);
+            table.getItems().setAll(results);
+            resultLabel.setText(String.format("%d találat%s (%.1f ms)", results.size(),
+                    results.size() == SEARCH_RESULT_LIMIT ? "+" : "", (System.nanoTime() - start) / 1_000_000.0));
+        };
+        searchField.textProperty().addListener((obs, oldValue, newValue) -> runSearch.run());
+        majorBox.valueProperty().addListener((obs, oldValue, newValue) -> runSearch.run());
+        fromPicker.valueProperty().addListener((obs, oldValue, newValue) -> runSearch.run());
+        toPicker.valueProperty().addListener((obs, oldValue, newValue) -> runSearch.run());
+        runSearch.run();
+
         // CSV export gomb
         Button exportButton = new Button("Export CSV-be");
         exportButton.setOnAction(e -> 
         {
-            dbManager.exportToCSV("attendance_export.csv");
-            showAlert("Export Kész", "Az Adatok Exportálva Ide: attendance_export.csv");
+            exportButton.setDisable(true);
+            scanExecutor.run(() -> dbManager.exportToCSV("attendance_export.csv"))
+                    .whenComplete((ignored, error) -> Platform.runLater(() ->
+                    {
+                        exportButton.setDisable(false);
+                        showAlert("Export Kész", "Az Adatok Exportálva Ide: attendance_export.csv");
+                    }));
         });
-        
+
+        // Jelentés export (XLSX / PDF) a fenti dátum szűrővel, háttérben, folyamatjelzővel
+        ComboBox<ReportExporter.Kind> reportKindBox = new ComboBox<>();
+        reportKindBox.getItems().addAll(ReportExporter.Kind.values());
+        reportKindBox.setValue(ReportExporter.Kind.DAILY);
+        ComboBox<ReportExporter.Format> reportFormatBox = new ComboBox<>();
+        reportFormatBox.getItems().addAll(ReportExporter.Format.values());
+        reportFormatBox.setValue(ReportExporter.Format.XLSX);
+
+        ProgressBar reportProgress = new ProgressBar(0);
+        reportProgress.setVisible(false);
+        Button cancelReportButton = new Button("Mégse");
+        cancelReportButton.setVisible(false);
+        Button reportButton = new Button("Jelentés...");
+        reportButton.setOnAction(e -> exportReport(recordsStage, reportKindBox.getValue(), reportFormatBox.getValue(),
+                fromPicker.getValue(), toPicker.getValue(), reportButton, reportProgress, cancelReportButton));
+
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox bottomBox = new HBox(10, resultLabel, spacer, reportKindBox, reportFormatBox, reportButton,
+                reportProgress, cancelReportButton, exportButton);
+        bottomBox.setAlignment(Pos.CENTER_LEFT);
+
         VBox vbox = new VBox(10);
         vbox.setPadding(new Insets(10));
-        vbox.getChildren().addAll(textArea, exportButton);
+        vbox.getChildren().addAll(filterBox, table, bottomBox);
         
-        Scene scene = new Scene(vbox, 800, 600);
+        Scene scene = new Scene(vbox, 900, 600);
         recordsStage.setScene(scene);
         recordsStage.show();
+        searchField.requestFocus();
+    }
+
+
+    // Jelentés készítése: mentési hely választás, majd háttérszálon futó Task folyamatjelzővel.
+    // Saját szálon fut (nem a scanExecutor-on), hogy a hosszú export ne foglaljon beolvasási helyet.
+
+    private void exportReport(Stage owner, ReportExporter.Kind kind, ReportExporter.Format format,
+                              LocalDate from, LocalDate to, Button reportButton, ProgressBar progressBar, Button cancelButton)
+    {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Jelentés mentése");
+        chooser.setInitialFileName("jelenlet_" + kind.name().toLowerCase() + "_" + LocalDate.now() + "." + format.getExtension());
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter(format.toString(), "*." + format.getExtension()));
+        File file = chooser.showSaveDialog(owner);
+        if (file == null)
+        {
+            return;
+        }
+
+        ReportTask task = new ReportTask(new ReportExporter(dbManager), kind, format, from, to, file.toPath());
+        progressBar.progressProperty().bind(task.progressProperty());
+        progressBar.setVisible(true);
+        cancelButton.setVisible(true);
+        cancelButton.setOnAction(e -> task.cancel());
+        reportButton.setDisable(true);
+
+        Runnable reset = () ->
+        {
+            progressBar.progressProperty().unbind();
+            progressBar.setVisible(false);
+            cancelButton.setVisible(false);
+            reportButton.setDisable(false);
+        };
+        task.setOnSucceeded(e ->
+        {
+            reset.run();
+            showAlert("Jelentés Kész", String.format("%d sor exportálva ide: %s", task.getValue(), file));
+        });
+        task.setOnFailed(e ->
+        {
+            reset.run();
+            System.err.println("Jelentés hiba: " + task.getException().getMessage());
+            task.getException().printStackTrace();
+            showAlert("Jelentés Hiba", "A jelentés nem készült el: " + task.getException().getMessage());
+        });
+        task.setOnCancelled(e -> reset.run());
+
+        Thread worker = new Thread(task, "report-export");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+
+    /**
+     * Jelentés háttérfeladat: a Task előrehaladása és megszakítása egyben az exportáló Progress-e
+     */
+    private static class ReportTask extends Task<Long> implements ReportExporter.Progress
+    {
+        private final ReportExporter exporter;
+        private final ReportExporter.Kind kind;
+        private final ReportExporter.Format format;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final Path target;
+
+        ReportTask(ReportExporter exporter, ReportExporter.Kind kind, ReportExporter.Format format,
+                   LocalDate from, LocalDate to, Path target)
+        {
+            this.exporter = exporter;
+            this.kind = kind;
+            this.format = format;
+            this.from = from;
+            this.to = to;
+            this.target = target;
+        }
+
+        @Override
+        protected Long call() throws Exception
+        {
+            return exporter.export(kind, format, from, to, target, this);
+        }
+
+        @Override
+        public void update(long done, long total)
+        {
+            updateProgress(done, Math.max(1, total));
+        }
+    }
+
+
+    // Csak olvasható szöveges táblázat oszlop
+
+    private static <T> TableColumn<T, String> column(String title, double width, Function<T, String> value)
+    {
+        TableColumn<T, String> column = new TableColumn<>(title);
+        column.setPrefWidth(width);
+        column.setCellValueFactory(cell -> new ReadOnlyStringWrapper(value.apply(cell.getValue())));
+        return column;
     }
     
     
+    // Kurzus alkalom indítása / lezárása: aktív alkalom alatt a beolvasások ahhoz az alkalomhoz
+    // rögzülnek, így egy nap több órája is külön jelenlétet kap; lezárás után a napi alapértelmezett
+    // alkalom érvényes
+
+    private void showSessionWindow()
+    {
+        Stage sessionStage = new Stage();
+        sessionStage.setTitle("Kurzus Alkalom");
+
+        VBox sessionBox = new VBox(15);
+        sessionBox.setPadding(new Insets(20));
+
+        Label activeLabel = new Label(formatActiveSession(dbManager.getActiveSession()));
+        activeLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+
+        TextField codeField = new TextField();
+        codeField.setPromptText("pl. PROG1");
+        TextField nameField = new TextField();
+        nameField.setPromptText("pl. Programozás 1");
+        TextField timeField = new TextField(LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm")));
+        timeField.setPromptText("pl. 10:15");
+
+        grid.add(new Label("Kurzus kód:"), 0, 0);
+        grid.add(codeField, 1, 0);
+        grid.add(new Label("Kurzus név:"), 0, 1);
+        grid.add(nameField, 1, 1);
+        grid.add(new Label("Kezdés:"), 0, 2);
+        grid.add(timeField, 1, 2);
+
+        HBox buttonBox = new HBox(10);
+        buttonBox.setAlignment(Pos.CENTER);
+
+        Button openButton = new Button("Alkalom Indítása");
+        Button closeButton = new Button("Alkalom Lezárása");
+        closeButton.setDisable(dbManager.getActiveSession() == null);
+
+        openButton.setOnAction(e ->
+        {
+            String code = codeField.getText().trim().toUpperCase();
+            String name = nameField.getText().trim();
+            String time = timeField.getText().trim();
+            if (code.isEmpty() || time.isEmpty())
+            {
+                showAlert("Hiányzó adatok", "A kurzus kódot és a kezdés időpontját meg kell adni!");
+                return;
+            }
+
+            openButton.setDisable(true);
+            scanExecutor.submit(() -> dbManager.startSession(code, name.isEmpty() ? code : name,
+                            LocalDate.now().toString(), time))
+                    .whenComplete((session, error) -> Platform.runLater(() ->
+                    {
+                        openButton.setDisable(false);
+                        if (error != null || session == null)
+                        {
+                            showAlert("Alkalom Hiba", "Az alkalmat nem sikerült elindítani!");
+                            return;
+                        }
+                        activeLabel.setText(formatActiveSession(session));
+                        closeButton.setDisable(false);
+                    }));
+        });
+
+        closeButton.setOnAction(e ->
+        {
+            dbManager.setActiveSession(null);
+            System.out.println("Aktív alkalom lezárva, napi alapértelmezett alkalom");
+            activeLabel.setText(formatActiveSession(null));
+            closeButton.setDisable(true);
+        });
+
+        buttonBox.getChildren().addAll(openButton, closeButton);
+        sessionBox.getChildren().addAll(activeLabel, grid, buttonBox);
+
+        sessionStage.setScene(new Scene(sessionBox, 380, 260));
+        sessionStage.show();
+    }
+
+    private static String formatActiveSession(DatabaseManager.SessionInfo session)
+    {
+        return session == null ? "Aktív alkalom: nincs (napi alapértelmezett)"
+                : "Aktív alkalom: " + session.getCourseCode() + " " + session.getDate() + " " + session.getStartTime();
+    }
+
+
+    // Élő statisztika ablak: másodpercenként frissül a memóriában tartott pillanatképből
+
+    private void showStatisticsWindow()
+    {
+        Stage statsStage = new Stage();
+        statsStage.setTitle("Jelenléti Statisztika");
+
+        TextArea textArea = new TextArea();
+        textArea.setEditable(false);
+        textArea.setStyle("-fx-font-family: monospace; -fx-font-size: 12px;");
+
+        // A pillanatkép változatlan állapotnál cache-ből jön, így olcsó a gyakori frissítés
+        Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(1),
+                e -> textArea.setText(formatStatistics(statisticsEngine.snapshot()))));
+        refresh.setCycleCount(Timeline.INDEFINITE);
+        textArea.setText(formatStatistics(statisticsEngine.snapshot()));
+        refresh.play();
+        statsStage.setOnHidden(e -> refresh.stop());
+
+        // Adatbázis méret és töredezettség (a dbstat bejárás lassú, ezért csak kérésre)
+        TextArea storageArea = new TextArea();
+        storageArea.setEditable(false);
+        storageArea.setStyle("-fx-font-family: monospace; -fx-font-size: 12px;");
+        storageArea.setPrefRowCount(8);
+        storageArea.setVisible(false);
+        storageArea.setManaged(false);
+
+        Button storageButton = new Button("Adatbázis állapot");
+        storageButton.setOnAction(e ->
+        {
+            storageButton.setDisable(true);
+            scanExecutor.submit(dbManager::getStorageReport)
+                    .whenComplete((report, error) -> Platform.runLater(() ->
+                    {
+                        storageButton.setDisable(false);
+                        storageArea.setText(error != null ? "Tárhely jelentés hiba: " + error.getMessage() : report.toString());
+                        storageArea.setVisible(true);
+                        storageArea.setManaged(true);
+                    }));
+        });
+
+        // Régi adatbázis átállítása inkrementális VACUUM-ra (egyszeri teljes VACUUM, kérésre)
+        Button vacuumButton = new Button("Inkrementális VACUUM bekapcsolása");
+        vacuumButton.setDisable(databaseMaintenance == null);
+        vacuumButton.setOnAction(e ->
+        {
+            vacuumButton.setDisable(true);
+            scanExecutor.submit(databaseMaintenance::enableIncrementalVacuum)
+                    .whenComplete((converted, error) -> Platform.runLater(() ->
+                    {
+                        vacuumButton.setDisable(false);
+                        storageArea.setText(error != null ? "VACUUM hiba: " + error.getMessage()
+                                : converted ? "Inkrementális VACUUM bekapcsolva." : "Az inkrementális VACUUM már be volt kapcsolva.");
+                        storageArea.setVisible(true);
+                        storageArea.setManaged(true);
+                    }));
+        });
+
+        VBox vbox = new VBox(10);
+        vbox.setPadding(new Insets(10));
+        vbox.getChildren().addAll(textArea, new HBox(10, storageButton, vacuumButton), storageArea);
+        VBox.setVgrow(textArea, Priority.ALWAYS);
+
+        statsStage.setScene(new Scene(vbox, 600, 500));
+        statsStage.show();
+    }
+
+
+    // Pillanatkép szöveges megjelenítése a statisztika ablakhoz
+
+    private String formatStatistics(StatisticsSnapshot snapshot)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Mai létszám (%s): %d, hiányzik: %d%n", snapshot.getDate(), snapshot.getTodayHeadcount(),
+                bitmapIndex.countAbsent(snapshot.getDate())));
+        sb.append(String.format("Alkalmak száma: %d%n%n", snapshot.getSessionDays()));
+
+        sb.append("Jelenléti arány szakonként:\n");
+        for (Map.Entry<String, Double> entry : snapshot.getMajorRates().entrySet())
+        {
+            sb.append(String.format("  %-35s %6.1f%%%n", entry.getKey(), entry.getValue()));
+        }
+
+        List<StatisticsSnapshot.StudentStatistics> atRisk = snapshot.getStudentsAtRisk(AT_RISK_THRESHOLD);
+        sb.append(String.format("%nVeszélyeztetett hallgatók (%.0f%% alatt): %d%n", AT_RISK_THRESHOLD, atRisk.size()));
+        for (StatisticsSnapshot.StudentStatistics student : atRisk)
+        {
+            sb.append(String.format("  %-8s %-25s %3d nap %6.1f%%%n",
+                    student.getNeptun(), student.getName(), student.getAttendedDays(), student.getPercentage()));
+        }
+
+        List<AttendanceBitmapIndex.AbsenceStreak> streaks = bitmapIndex.getAbsenceStreaks(ABSENCE_STREAK_ALERT);
+        sb.append(String.format("%nLegalább %d alkalmat egymás után hiányzott: %d%n", ABSENCE_STREAK_ALERT, streaks.size()));
+        for (AttendanceBitmapIndex.AbsenceStreak streak : streaks)
+        {
+            sb.append(String.format("  %-8s %-25s leghosszabb: %3d, jelenleg: %3d%n", streak.getStudent().getNeptun(),
+                    streak.getStudent().getName(), streak.getLongest(), streak.getCurrent()));
+        }
+
+        sb.append("\nBeolvasások ebben a futásban:\n").append(scanMetrics.summary()).append('\n');
+        sb.append(scanEventBus.summary()).append('\n');
+        return sb.toString();
+    }
+
+
+    // Beolvasási esemény busz és a nem UI fogyasztók. A metrika csak számol, az audit napló
+    // lemezre ír: mindkettő az új eseményt ejti el, ha lemarad (a kiesés a statisztikában látszik)
+
+    private void startScanEvents()
+    {
+        scanEventBus = new ScanEventBus();
+        scanMetrics = new ScanMetrics();
+        scanEventBus.subscribe("metrikák", 1024, ScanEventBus.OverflowPolicy.DROP_NEWEST, scanMetrics);
+        try
+        {
+            scanAuditLog = new ScanAuditLog(Path.of(AUDIT_LOG_FILE));
+            scanEventBus.subscribe("audit", 4096, ScanEventBus.OverflowPolicy.DROP_NEWEST, scanAuditLog);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Audit napló megnyitási hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+
+    // Adatbázis karbantartás: tétlen időszakokban archiválás, VACUUM, ANALYZE
+
+    private void startMaintenance()
+    {
+        databaseMaintenance = new DatabaseMaintenance(dbManager,
+                Path.of(System.getProperty(ARCHIVE_DIR_PROPERTY, "archive")),
+                Integer.getInteger(RETENTION_TERMS_PROPERTY, 1),
+                Long.getLong(MAINTENANCE_IDLE_PROPERTY, 300));
+        dbManager.addAttendanceListener(databaseMaintenance::onAttendanceRecorded);
+        scanExecutor.scheduleAtFixedRate(databaseMaintenance::runIdleStep,
+                MAINTENANCE_PERIOD_SECONDS, MAINTENANCE_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+
+    // Helyi HTTP/JSON API a hálózati olvasóknak és a kijelzőnek (-Dattendance.api.port=8080)
+
+    private void startApi()
+    {
+        Integer port = Integer.getInteger(API_PORT_PROPERTY);
+        if (port == null)
+        {
+            return;
+        }
+
+        try
+        {
+            apiServer = new ApiServer(
+                    new InetSocketAddress(System.getProperty(API_BIND_PROPERTY, "127.0.0.1"), port),
+                    System.getProperty(API_TOKEN_PROPERTY),
+                    barcodeScanner, statisticsEngine, bitmapIndex, new ReportExporter(dbManager), scanExecutor);
+            apiServer.start();
+        }
+        catch (IOException e)
+        {
+            System.err.println("HTTP API indítási hiba: " + e.getMessage());
+            e.printStackTrace();
+            apiServer = null;
+        }
+    }
+
+
+    // Időszakos szinkronizáció a többi kioszkkal egy közös mappán, vagy ha az nincs megadva,
+    // TCP socketen keresztül (helyi hálózat)
+
+    private void startReplication()
+    {
+        String folder = System.getProperty(REPLICATION_DIR_PROPERTY);
+        Integer port = Integer.getInteger(REPLICATION_PORT_PROPERTY);
+        if ((folder == null || folder.isBlank()) && port == null)
+        {
+            return;
+        }
+
+        try
+        {
+            String target;
+            if (folder != null && !folder.isBlank())
+            {
+                replicationTransport = new SharedFolderTransport(Path.of(folder));
+                target = folder;
+            }
+            else
+            {
+                List<InetSocketAddress> peers = SocketTransport.parsePeers(System.getProperty(REPLICATION_PEERS_PROPERTY, ""));
+                SocketTransport socketTransport = new SocketTransport(port, peers);
+                replicationTransport = socketTransport;
+                target = "port " + socketTransport.getLocalPort() + ", társak: " + peers;
+            }
+            ReplicationService replication = new ReplicationService(dbManager, replicationTransport);
+            scanExecutor.scheduleAtFixedRate(replication::synchronize, 0, REPLICATION_PERIOD_SECONDS, TimeUnit.SECONDS);
+            System.out.println("Replikáció bekapcsolva: " + target + " (kioszk: " + replication.getKioskId() + ")");
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            System.err.println("Replikációs transport hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+
     // Kamera leállítása és erőforrások felszabadítása
     
     private void stopCamera() 
     {
+        boolean stopped = true;
         if (executor != null) 
         {
             executor.shutdown();
+            try
+            {
+                // Az éppen futó frame feldolgozás befejezése a kamera elengedése előtt
+                stopped = executor.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                stopped = false;
+            }
+        }
+        if (camera != null) 
+        {
+            camera.releaseDevice();
+        }
+        if (framePool == null)
+        {
+            return;
         }
-        if (camera != null && camera.isOpened()) 
+
+        // A képkocka puffereket csak akkor szabadítjuk fel, ha már biztosan nem fut rajtuk feldolgozás:
+        // ha a futó frame túllépte a határidőt, egy háttérszál a végrehajtó leállása után engedi el őket
+        CameraCapture stoppedCamera = camera;
+        MatPool stoppedPool = framePool;
+        camera = null;
+        framePool = null;
+        if (stopped)
         {
-            camera.release();
+            releaseFrameBuffers(stoppedCamera, stoppedPool);
+            return;
         }
+        ScheduledExecutorService stoppingExecutor = executor;
+        Thread release = new Thread(() ->
+        {
+            try
+            {
+                while (!stoppingExecutor.awaitTermination(1, TimeUnit.SECONDS))
+                {
+                    // A képkocka feldolgozás még fut
+                }
+                releaseFrameBuffers(stoppedCamera, stoppedPool);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }, "camera-release");
+        release.setDaemon(true);
+        release.start();
+    }
+
+    private static void releaseFrameBuffers(CameraCapture stoppedCamera, MatPool stoppedPool)
+    {
+        stoppedCamera.close();
+        stoppedPool.close();
+        System.out.println("Kamera leállítva. " + NativeMemory.summary());
     }
     
     
@@ -390,36 +1203,64 @@ public class AttendanceApp extends Application
     private void cleanup() 
     {
         stopCamera();
-        if (dbManager != null) 
+        if (qrDecoder != null)
         {
-            dbManager.close();
+            qrDecoder.close();
         }
-    }
-    
-    
-    // OpenCV Mat konvertálása JavaFX Image objektummá
-    
-    private Image matToImage(Mat frame) 
-    {
-        MatOfByte buffer = new MatOfByte();
-        org.opencv.imgcodecs.Imgcodecs.imencode(".png", frame, buffer);
-        return new Image(new ByteArrayInputStream(buffer.toArray()));
-    }
-    
-    
-    // OpenCV Mat konvertálása Java BufferedImage objektummá ZXing-nek
-    
-    private BufferedImage matToBufferedImage(Mat mat) 
-    {
-        int type = BufferedImage.TYPE_BYTE_GRAY;
-        if (mat.channels() > 1) 
+        // Új HTTP kérés ne érkezzen, mire a végrehajtó leáll
+        if (apiServer != null)
         {
-            type = BufferedImage.TYPE_3BYTE_BGR;
+            apiServer.close();
+        }
+        // Futó beolvasások befejezése a kapcsolat lezárása előtt
+        if (scanExecutor != null)
+        {
+            scanExecutor.close();
+        }
+        // A még pufferelt események kézbesítése, utána az audit napló lezárása
+        if (scanEventBus != null)
+        {
+            scanEventBus.close();
+        }
+        if (scanAuditLog != null)
+        {
+            try
+            {
+                scanAuditLog.close();
+            }
+            catch (IOException e)
+            {
+                System.err.println("Audit napló lezárási hiba: " + e.getMessage());
+            }
+        }
+        if (replicationTransport != null)
+        {
+            try
+            {
+                replicationTransport.close();
+            }
+            catch (IOException e)
+            {
+                System.err.println("Replikáció lezárási hiba: " + e.getMessage());
+            }
+        }
+        // A még sorban álló naplóbejegyzések beírása (ami kimarad, induláskor visszajátszódik)
+        if (scanJournal != null)
+        {
+            try
+            {
+                scanJournal.close();
+            }
+            catch (IOException e)
+            {
+                System.err.println("Napló lezárási hiba: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        if (dbManager != null) 
+        {
+            dbManager.close();
         }
-        
-        BufferedImage image = new BufferedImage(mat.cols(), mat.rows(), type);
-        mat.get(0, 0, ((DataBufferByte) image.getRaster().getDataBuffer()).getData());
-        return image;
     }
     
     
@@ -0,0 +1,511 @@
+package com.university.attendance;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Jelenléti bitmap: hallgatónként egy bitsor az alkalmak (jelenléttel rendelkező napok)
+ * rendezett sorozata felett
+ *
+ * Ugyanaz a mátrix alkalmanként is megvan (egy bitsor a jelen lévő hallgatókkal), így a
+ * hiányzók listája egy komplementer, a jelenléti arány egy bitszámlálás, a sorozatos
+ * hiányzás pedig eltolt bitsorok ÉS kapcsolata - táblabejárás és COUNT(*) nélkül.
+ * Egy félév ~100-200 alkalma hallgatónként néhány long, így több ezer hallgató is
+ * mikroszekundumok alatt bejárható.
+ *
+ * Induláskor egyszer töltődik be, utána a jelenlét eseményekből frissül (mint a StatisticsEngine).
+ * Mint ott, minden alkalom minden nyilvántartott hallgatóra számít (a később regisztráltakra is).
+ */
+public class AttendanceBitmapIndex
+{
+    private static final Comparator<Row> BY_NAME = Comparator.comparing(row -> row.name);
+
+    // Egy hallgató sora; a bitek az alkalmak indexei
+    private static class Row
+    {
+        final int id;
+        final String neptun;
+        String name;
+        String major;
+        final BitSet days = new BitSet();
+
+        Row(int id, String neptun)
+        {
+            this.id = id;
+            this.neptun = neptun;
+        }
+    }
+
+    /**
+     * Egy hallgató a lekérdezés eredményében
+     */
+    public static class Student
+    {
+        private final String neptun;
+        private final String name;
+        private final String major;
+        private final int attendedDays;
+
+        public Student(String neptun, String name, String major, int attendedDays)
+        {
+            this.neptun = neptun;
+            this.name = name;
+            this.major = major;
+            this.attendedDays = attendedDays;
+        }
+
+        public String getNeptun()
+        {
+            return neptun;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getMajor()
+        {
+            return major;
+        }
+
+        public int getAttendedDays()
+        {
+            return attendedDays;
+        }
+    }
+
+    /**
+     * Sorozatos hiányzás: a leghosszabb és a jelenleg is tartó (az utolsó alkalomig érő) sorozat
+     */
+    public static class AbsenceStreak
+    {
+        private final Student student;
+        private final int longest;
+        private final int current;
+
+        public AbsenceStreak(Student student, int longest, int current)
+        {
+            this.student = student;
+            this.longest = longest;
+            this.current = current;
+        }
+
+        public Student getStudent()
+        {
+            return student;
+        }
+
+        public int getLongest()
+        {
+            return longest;
+        }
+
+        public int getCurrent()
+        {
+            return current;
+        }
+    }
+
+    /**
+     * A teljes jelenléti mátrix pillanatképe (a további frissítések nem módosítják)
+     */
+    public static class Matrix
+    {
+        private final List<String> dates;
+        private final List<Student> students;
+        private final List<BitSet> rows;
+
+        Matrix(List<String> dates, List<Student> students, List<BitSet> rows)
+        {
+            this.dates = Collections.unmodifiableList(dates);
+            this.students = Collections.unmodifiableList(students);
+            this.rows = rows;
+        }
+
+        /**
+         * Az alkalmak növekvő sorrendben (oszlopok)
+         */
+        public List<String> getDates()
+        {
+            return dates;
+        }
+
+        /**
+         * A hallgatók névsorban (sorok)
+         */
+        public List<Student> getStudents()
+        {
+            return students;
+        }
+
+        public boolean isPresent(int student, int date)
+        {
+            return rows.get(student).get(date);
+        }
+    }
+
+    private final Map<String, Row> byNeptun = new HashMap<>();
+    private final List<Row> rows = new ArrayList<>();
+
+    // Alkalmak növekvő sorrendben, és alkalmanként a jelen lévő hallgatók azonosítói
+    private final List<String> dates = new ArrayList<>();
+    private final List<BitSet> columns = new ArrayList<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Egyszeri betöltés az adatbázisból (olvasó kapcsolaton)
+     * Ezután a {@link #onAttendanceRecorded} tartja naprakészen.
+     */
+    public void load(DatabaseManager dbManager)
+    {
+        long start = System.nanoTime();
+        dbManager.forEachStudent(this::onStudent);
+        dbManager.forEachAttendance(this::onAttendanceRecorded);
+
+        lock.readLock().lock();
+        try
+        {
+            System.out.printf("Jelenléti bitmap betöltve: %d hallgató, %d alkalom (%d ms)%n",
+                    rows.size(), dates.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Új jelenlét beépítése (a DatabaseManager listenereként hívódik)
+     */
+    public void onAttendanceRecorded(AttendanceEvent event)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            Row row = register(event.getNeptun(), event.getName(), event.getMajor());
+            int column = column(event.getDate());
+            row.days.set(column);
+            columns.get(column).set(row.id);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Nyilvántartott hallgató felvétele (jelenlét nélkül is a hiányzók között szerepel)
+     */
+    public void onStudent(DatabaseManager.StudentInfo student)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            register(student.getNeptun(), student.getName(), student.getMajor());
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Az alkalmak száma
+     */
+    public int getSessionCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return dates.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Egy hallgató jelenléti aránya százalékban (ismeretlen hallgató vagy alkalom nélkül 0)
+     */
+    public double getAttendanceRate(String neptun)
+    {
+        lock.readLock().lock();
+        try
+        {
+            Row row = byNeptun.get(neptun.toUpperCase());
+            return row == null || dates.isEmpty() ? 0.0 : 100.0 * row.days.cardinality() / dates.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Az adott napon hiányzó hallgatók névsorban (ha aznap még senki nem jelent meg, mindenki)
+     * @param date YYYY-MM-DD
+     */
+    public List<Student> getAbsent(String date)
+    {
+        lock.readLock().lock();
+        try
+        {
+            BitSet absent = new BitSet(rows.size());
+            absent.set(0, rows.size());
+            int column = Collections.binarySearch(dates, date);
+            if (column >= 0)
+            {
+                absent.andNot(columns.get(column));
+            }
+            return students(absent);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Az adott napon hiányzók száma (a listánál olcsóbb, pl. másodpercenkénti frissítéshez)
+     */
+    public int countAbsent(String date)
+    {
+        lock.readLock().lock();
+        try
+        {
+            int column = Collections.binarySearch(dates, date);
+            return rows.size() - (column >= 0 ? columns.get(column).cardinality() : 0);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Legalább {@code minLength} egymást követő alkalmat hiányzó hallgatók
+     * @return Elöl a jelenleg is tartó, leghosszabb sorozatok
+     */
+    public List<AbsenceStreak> getAbsenceStreaks(int minLength)
+    {
+        lock.readLock().lock();
+        try
+        {
+            int dayCount = dates.size();
+            List<AbsenceStreak> streaks = new ArrayList<>();
+            if (minLength < 1 || dayCount < minLength)
+            {
+                return streaks;
+            }
+
+            // Jelöltek oszloponként: aki minden k hosszú ablakban legalább egyszer jelen volt,
+            // annak nincs k hosszú hiányzás sorozata (ablakonként k darab VAGY, majd ÉS)
+            BitSet seenInEveryWindow = new BitSet(rows.size());
+            seenInEveryWindow.set(0, rows.size());
+            BitSet window = new BitSet(rows.size());
+            for (int start = 0; start + minLength <= dayCount && !seenInEveryWindow.isEmpty(); start++)
+            {
+                window.clear();
+                for (int day = start; day < start + minLength; day++)
+                {
+                    window.or(columns.get(day));
+                }
+                seenInEveryWindow.and(window);
+            }
+            BitSet candidates = new BitSet(rows.size());
+            candidates.set(0, rows.size());
+            candidates.andNot(seenInEveryWindow);
+
+            long[] absent = new long[(dayCount + 63) / 64];
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1))
+            {
+                Row row = rows.get(id);
+                fillAbsent(row.days, dayCount, absent);
+
+                // Egy k hosszú sorozat ott kezdődik, ahol a hiányzás bitsor k-1 eltolással vett
+                // ÉS kapcsolata nem nulla; az eltolások számáig tart, amíg maradt bit
+                int longest = 0;
+                while (!isZero(absent))
+                {
+                    longest++;
+                    andShifted(absent);
+                }
+                if (longest >= minLength)
+                {
+                    int current = dayCount - 1 - row.days.previousSetBit(dayCount - 1);
+                    streaks.add(new AbsenceStreak(student(row), longest, current));
+                }
+            }
+
+            streaks.sort(Comparator.comparingInt(AbsenceStreak::getCurrent)
+                    .thenComparingInt(AbsenceStreak::getLongest).reversed()
+                    .thenComparing(streak -> streak.getStudent().getName()));
+            return streaks;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A teljes mátrix pillanatképe (a bitsorok másolatok)
+     */
+    public Matrix getMatrix()
+    {
+        lock.readLock().lock();
+        try
+        {
+            List<Row> ordered = new ArrayList<>(rows);
+            ordered.sort(BY_NAME);
+
+            List<Student> students = new ArrayList<>(ordered.size());
+            List<BitSet> copies = new ArrayList<>(ordered.size());
+            for (Row row : ordered)
+            {
+                students.add(student(row));
+                copies.add((BitSet) row.days.clone());
+            }
+            return new Matrix(new ArrayList<>(dates), students, copies);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Hallgató felvétele vagy adatainak frissítése (írási zár alatt)
+
+    private Row register(String neptun, String name, String major)
+    {
+        String key = neptun.toUpperCase();
+        Row row = byNeptun.get(key);
+        if (row == null)
+        {
+            row = new Row(rows.size(), key);
+            row.name = name;
+            row.major = major;
+            rows.add(row);
+            byNeptun.put(key, row);
+            return row;
+        }
+        if (!name.isEmpty())
+        {
+            row.name = name;
+        }
+        if (!major.isEmpty())
+        {
+            row.major = major;
+        }
+        return row;
+    }
+
+    // A nap oszlopa; új nap általában a végére kerül, korábbi nap (pl. replikációból)
+    // beszúrásakor a hallgatói sorok későbbi bitjei eggyel feljebb tolódnak
+
+    private int column(String date)
+    {
+        int last = dates.size() - 1;
+        if (last >= 0 && dates.get(last).equals(date))
+        {
+            return last;
+        }
+
+        int index = Collections.binarySearch(dates, date);
+        if (index >= 0)
+        {
+            return index;
+        }
+        index = -index - 1;
+        dates.add(index, date);
+        columns.add(index, new BitSet());
+        if (index < last + 1)
+        {
+            for (Row row : rows)
+            {
+                insertZero(row.days, index);
+            }
+        }
+        return index;
+    }
+
+    private static void insertZero(BitSet bits, int index)
+    {
+        BitSet moved = bits.get(index, Math.max(index, bits.length()));
+        bits.clear(index, Math.max(index, bits.length()));
+        for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1))
+        {
+            bits.set(index + 1 + i);
+        }
+    }
+
+    // A hiányzások bitsora: a jelenlét komplementere az első dayCount biten
+
+    private static void fillAbsent(BitSet days, int dayCount, long[] absent)
+    {
+        long[] present = days.toLongArray();
+        for (int i = 0; i < absent.length; i++)
+        {
+            absent[i] = ~(i < present.length ? present[i] : 0L);
+        }
+        int tail = dayCount % 64;
+        if (tail != 0)
+        {
+            absent[absent.length - 1] &= (1L << tail) - 1;
+        }
+    }
+
+    // bits &= bits >>> 1 a teljes (több long-os) bitsoron
+
+    private static void andShifted(long[] bits)
+    {
+        for (int i = 0; i < bits.length; i++)
+        {
+            long next = i + 1 < bits.length ? bits[i + 1] : 0L;
+            bits[i] &= (bits[i] >>> 1) | (next << 63);
+        }
+    }
+
+    private static boolean isZero(long[] bits)
+    {
+        for (long word : bits)
+        {
+            if (word != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<Student> students(BitSet ids)
+    {
+        List<Row> selected = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+        {
+            selected.add(rows.get(id));
+        }
+        selected.sort(BY_NAME);
+
+        List<Student> result = new ArrayList<>(selected.size());
+        for (Row row : selected)
+        {
+            result.add(student(row));
+        }
+        return result;
+    }
+
+    private static Student student(Row row)
+    {
+        return new Student(row.neptun, row.name, row.major, row.days.cardinality());
+    }
+}
@@ -0,0 +1,43 @@
+package com.university.attendance;
+
+/**
+ * Egy rögzített jelenlét (hallgató + nap)
+ *
+ * A DatabaseManager minden sikeres (új) rögzítés után kiküldi a feliratkozóknak,
+ * így a memóriában tartott nézetek (statisztika, keresés) újralekérdezés nélkül frissülnek.
+ */
+public class AttendanceEvent
+{
+    private final String name;
+    private final String major;
+    private final String neptun;
+    private final String date;
+
+    public AttendanceEvent(String name, String major, String neptun, String date)
+    {
+        this.name = name;
+        this.major = major;
+        this.neptun = neptun;
+        this.date = date;
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    public String getMajor()
+    {
+        return major;
+    }
+
+    public String getNeptun()
+    {
+        return neptun;
+    }
+
+    public String getDate()
+    {
+        return date;
+    }
+}
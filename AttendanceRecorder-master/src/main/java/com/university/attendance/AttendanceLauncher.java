@@ -0,0 +1,16 @@
+package com.university.attendance;
+
+/**
+ * Belépési pont classpath-ról indításhoz (pl. AppCDS archívummal)
+ *
+ * Az Application leszármazott main osztályt a JavaFX csak modulútvonalról engedi indítani,
+ * ezért classpath-os indításnál (java -cp ... -XX:SharedArchiveFile=...) ez az osztály a main.
+ */
+public class AttendanceLauncher
+{
+    public static void main(String[] args)
+    {
+        StartupTimeline.mark("main");
+        AttendanceApp.main(args);
+    }
+}
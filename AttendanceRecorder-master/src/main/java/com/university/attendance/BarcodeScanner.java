@@ -1,9 +1,19 @@
 package com.university.attendance;
 
-import javafx.application.Platform;
 import javafx.scene.control.TextField;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Clock;
 import java.time.LocalDate;
-import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 /**
@@ -11,22 +21,55 @@ import java.util.function.Consumer;
  *
  * Ez az osztály kezeli a fizikai vonalkód olvasóból / billentyüzetből érkező adatokat,
  * feldolgozza a vonalkód tartalmát és rögzíti a jelenlétet.
+ *
+ * A billentyűleütéseket a KeystrokeBurstCapture kódonként lezárja, a kódok egy lock-free
+ * sorba kerülnek, amit egyetlen háttérfeladat dolgoz fel érkezési sorrendben - az FX szál
+ * soha nem vár az adatbázisra. Minden kódnál mérjük a bemenet -> visszajelzés időt.
+ *
+ * A beolvasások kimenetele a ScanEventBus-ra kerül; a képernyős visszajelzés ennek egy
+ * fogyasztója, ami mindig csak a legutolsó eseményt jeleníti meg.
  */
 public class BarcodeScanner
 {
     private DatabaseManager dbManager;
+    private ScanJournal scanJournal;
+    private ScanExecutor scanExecutor;
+    private ScanEventBus eventBus;
     private Consumer<String> statusUpdateCallback;
 
+    // A beolvasás napja ebből az órából jön (terheléses tesztnél napról napra léptethető)
+    private Clock clock = Clock.systemDefaultZone();
+
+    // Lezárt, még fel nem dolgozott kódok; egyszerre legfeljebb egy feladat üríti
+    private final Queue<KeystrokeBurstCapture.CapturedCode> inputQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    // Első billentyű -> visszajelzés (olvasónál), Enter -> visszajelzés (kézi gépelésnél)
+    private final LatencyRecorder inputLatency = new LatencyRecorder(1024);
+
     /**
      * Konstruktor
      * @param dbManager Adatbázis kezelő kiegészítő
-     * @param statusUpdateCallback Státusz frissítés (callback)
+     * @param scanJournal Beolvasási napló - az elfogadott beolvasások ide kerülnek a DB előtt
+     * @param scanExecutor A blokkoló DB munkát futtató háttér végrehajtó
+     * @param eventBus A beolvasási események közzététele (a visszajelzés is innen jön)
+     * @param statusUpdateCallback Státusz frissítés (callback) - háttérszálról hívódik,
+     *                             a UI frissítést a hívónak kell az FX szálra átadnia
      */
     public BarcodeScanner(DatabaseManager dbManager,
+                          ScanJournal scanJournal,
+                          ScanExecutor scanExecutor,
+                          ScanEventBus eventBus,
                           Consumer<String> statusUpdateCallback)
     {
         this.dbManager = dbManager;
+        this.scanJournal = scanJournal;
+        this.scanExecutor = scanExecutor;
+        this.eventBus = eventBus;
         this.statusUpdateCallback = statusUpdateCallback;
+
+        // A kijelzőn csak a legutolsó beolvasás számít, a régebbiek nyugodtan kieshetnek
+        eventBus.subscribe("ui", 1, ScanEventBus.OverflowPolicy.DROP_OLDEST, this::showResult);
     }
 
     /**
@@ -35,127 +78,327 @@ public class BarcodeScanner
      */
     public void setupBarcodeField(TextField barcodeField)
     {
-        barcodeField.setOnAction(e -> handleBarcodeInput(barcodeField));
+        new KeystrokeBurstCapture(this::enqueueInput).attach(barcodeField);
+    }
+
+    // Terheléses teszthez: a tartós futás minden rohama új napra essen
+
+    void setClock(Clock clock)
+    {
+        this.clock = clock;
     }
 
     /**
-     * Vonalkód input kezelése
-     * @param barcodeField A vonalkód mező
+     * Bemenet -> visszajelzés késleltetés mérések
      */
-    private void handleBarcodeInput(TextField barcodeField)
+    public LatencyRecorder getInputLatency()
     {
-        String barcodeData = barcodeField.getText().trim();
-        barcodeField.clear();
+        return inputLatency;
+    }
 
-        if (barcodeData.isEmpty())
+    /**
+     * Lezárt kód sorba állítása (FX szál) és a feldolgozó elindítása, ha nem fut
+     */
+    private void enqueueInput(KeystrokeBurstCapture.CapturedCode code)
+    {
+        System.out.println("Beolvasott vonalkód: " + code.getText()
+                + (code.isScannerBurst() ? " (olvasó)" : " (kézi)"));
+        inputQueue.offer(code);
+        if (draining.compareAndSet(false, true))
         {
-            return;
+            scanExecutor.run(this::drainInput);
         }
+    }
 
-        System.out.println("Beolvasott vonalkód: " + barcodeData);
+    /**
+     * A sor feldolgozása érkezési sorrendben (háttérszál)
+     */
+    private void drainInput()
+    {
+        do
+        {
+            KeystrokeBurstCapture.CapturedCode code;
+            while ((code = inputQueue.poll()) != null)
+            {
+                handleCodeData(code.getText(), ScanEvent.Source.BARCODE);
 
-        // Vonalkód adat feldolgozása
-        processCodeData(barcodeData, "Vonalkód");
+                long latency = System.nanoTime() - code.getFirstKeyNanos();
+                inputLatency.record(latency);
+                System.out.printf("Beolvasás késleltetés: %.1f ms (gépelés: %.1f ms) - %s%n",
+                        latency / 1_000_000.0,
+                        (code.getCompletedNanos() - code.getFirstKeyNanos()) / 1_000_000.0,
+                        inputLatency);
+            }
+            draining.set(false);
+            // Ha a jelző visszaállítása előtt érkezett új kód, azt is mi dolgozzuk fel
+        }
+        while (!inputQueue.isEmpty() && draining.compareAndSet(false, true));
     }
 
     /**
-     * Vonalkód/QR-kód adat feldolgozása
+     * Vonalkód/QR-kód adat feldolgozása háttérszálon
      * @param codeData A beolvasott kód tartalma
-     * @param codeType A kód típusa (Vonalkód vagy QR-kód)
+     * @param source A kód forrása (vonalkód olvasó, kamera, API)
+     * @return Akkor teljesül, amikor a beolvasás feldolgozása megtörtént (a visszajelzés a
+     *         ScanEventBus-on keresztül, aszinkron érkezik)
+     */
+    public CompletableFuture<Void> processCodeData(String codeData, ScanEvent.Source source)
+    {
+        return scanExecutor.run(() -> handleCodeData(codeData, source));
+    }
+
+    /**
+     * Kamerán dekódolt QR kód feldolgozása háttérszálon (az alkalmazás kamerás útja)
+     * Ugyanaz a feldolgozás, mint a processBatch-nél, kamera forrással; elfogadott
+     * beolvasásnál a kijelzéshez a hallgató jelenléti alkalmainak számát is lekéri.
+     * @return Az eredmény és a jelenléti alkalmak száma (-1, ha nem új jelenlét)
+     */
+    public CompletableFuture<CameraScan> processCameraCode(String qrData)
+    {
+        return scanExecutor.submit(() ->
+        {
+            ScanResult result = processBatch(List.of(qrData), ScanEvent.Source.CAMERA).get(0);
+            int totalScans = result.getStatus() == ScanResult.Status.ACCEPTED
+                    ? scanJournal.getTotalScans(result.getNeptun()) : -1;
+            return new CameraScan(result, totalScans);
+        });
+    }
+
+    /**
+     * Egy képkocka összes QR kódja egyetlen napló írással, háttérszálon (csoportos kamerás mód)
+     * @return Kódonként az eredmény, a bemenet sorrendjében
      */
-    public void processCodeData(String codeData, String codeType)
+    public CompletableFuture<List<ScanResult>> processCameraBatch(List<String> codes)
+    {
+        return scanExecutor.submit(() -> processBatch(codes, ScanEvent.Source.CAMERA));
+    }
+
+    /**
+     * Kamerás beolvasás eredménye a kijelzéshez
+     */
+    public static class CameraScan
+    {
+        private final ScanResult result;
+        private final int totalScans;
+
+        public CameraScan(ScanResult result, int totalScans)
+        {
+            this.result = result;
+            this.totalScans = totalScans;
+        }
+
+        public ScanResult getResult()
+        {
+            return result;
+        }
+
+        public int getTotalScans()
+        {
+            return totalScans;
+        }
+    }
+
+    /**
+     * Egy kód feldolgozásának eredménye
+     */
+    public static class ScanResult
+    {
+        public enum Status
+        {
+            // Új jelenlét (naplózva)
+            ACCEPTED,
+            // Ma már be volt olvasva
+            ALREADY_SCANNED,
+            // Csak Neptun kód, de nincs ilyen hallgató a rendszerben
+            UNKNOWN_STUDENT,
+            // Hiányzó név vagy Neptun kód
+            INVALID_FORMAT
+        }
+
+        private final String code;
+        private final Status status;
+        private final String name;
+        private final String neptun;
+
+        public ScanResult(String code, Status status, String name, String neptun)
+        {
+            this.code = code;
+            this.status = status;
+            this.name = name;
+            this.neptun = neptun;
+        }
+
+        public String getCode()
+        {
+            return code;
+        }
+
+        public Status getStatus()
+        {
+            return status;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getNeptun()
+        {
+            return neptun;
+        }
+    }
+
+    /**
+     * A beolvasás teljes DB sorozata (keresés, ellenőrzés, rögzítés) - nem az FX szálon fut
+     */
+    private void handleCodeData(String codeData, ScanEvent.Source source)
     {
         try
         {
             System.out.println("Feldolgozás: " + codeData);
-            String name = "", major = "", neptun = "";
+            ScanResult result = processBatch(List.of(codeData), source).get(0);
+            System.out.println("Eredmény - Név: '" + result.getName() + "', Neptun: '" + result.getNeptun()
+                    + "': " + result.getStatus());
+        }
+        catch (Exception e)
+        {
+            updateStatus("Hiba történt a " + source.getLabel() + " feldolgozása során!");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Képernyős visszajelzés egy beolvasásról (a ScanEventBus "ui" fogyasztója).
+     * A kamerás beolvasásnak saját, részletesebb kijelzése van az ablakban.
+     */
+    private void showResult(ScanEvent event)
+    {
+        if (event.getSource() == ScanEvent.Source.CAMERA)
+        {
+            return;
+        }
+        ScanResult result = event.getResult();
+        switch (result.getStatus())
+        {
+            case UNKNOWN_STUDENT:
+                updateStatus("Ismeretlen Neptun kód: " + result.getNeptun());
+                return;
+            case INVALID_FORMAT:
+                updateStatus("Helytelen " + event.getSource().getLabel() + " Formátum!");
+                return;
+            case ALREADY_SCANNED:
+                updateStatus(result.getName() + " ebben az alkalomban már be lett olvasva!");
+                break;
+            case ACCEPTED:
+            default:
+                updateStatus(result.getName() + " sikeresen beolvasva! (" + event.getSource().getLabel() + ")");
+                break;
+        }
+
+        // Státusz visszaállítása 3 másodperc után
+        resetStatusAfterDelay();
+    }
+
+    /**
+     * Kódok feldolgozása a mai napra (blokkoló, háttérszálon hívandó; státusz frissítés nélkül)
+     * A kódok formátuma: Name=...;Major=...;Neptun=... vagy csak a Neptun kód (a hallgatót a
+     * nyilvántartásból keressük). Az érvényes kódok egyetlen napló írással kerülnek rögzítésre,
+     * minden eredmény a ScanEventBus-ra is kikerül.
+     * @param source A kódok forrása
+     * @return Kódonként az eredmény, a bemenet sorrendjében
+     */
+    public List<ScanResult> processBatch(List<String> codes, ScanEvent.Source source) throws IOException, SQLException
+    {
+        String date = LocalDate.now(clock).toString();
+        ScanResult[] results = new ScanResult[codes.size()];
+        List<AttendanceEvent> scans = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+
+        for (int i = 0; i < codes.size(); i++)
+        {
+            String codeData = codes.get(i);
+            AttendanceEvent scan;
 
             // Ellenőrizzük, hogy strukturált adat-e (tartalmaz '=' karaktert) vagy csak Neptun kód
             if (codeData.contains("="))
             {
-                // Strukturált formátum: Name=...;Major=...;Neptun=...
-                System.out.println("Strukturált formátum feldolgozása");
-                String[] parts = codeData.split(";");
-
-                for (String part : parts)
+                scan = parseStructured(codeData, date);
+                if (scan == null)
                 {
-                    String[] keyValue = part.split("=");
-                    if (keyValue.length == 2)
-                    {
-                        String key = keyValue[0].trim();
-                        String value = keyValue[1].trim();
-
-                        switch (key)
-                        {
-                            case "Name":
-                                name = value;
-                                break;
-                            case "Major":
-                                major = value;
-                                break;
-                            case "Neptun":
-                                neptun = value;
-                                break;
-                        }
-                    }
+                    results[i] = new ScanResult(codeData, ScanResult.Status.INVALID_FORMAT, "", "");
+                    continue;
                 }
             }
             else
             {
-                // Egyszerű formátum: csak Neptun kód (pl. ABC123)
-                System.out.println("Egyszerű formátum (csak Neptun kód)");
-                neptun = codeData.trim().toUpperCase();
-
-                // Keressük meg a hallgatót közvetlenül az adatbázisban
-                DatabaseManager.StudentInfo student = dbManager.getStudent(neptun);
-                if (student != null)
-                {
-                    name = student.getName();
-                    major = student.getMajor();
-                    neptun = student.getNeptun();
-                    System.out.println("Hallgató megtalálva: " + name + " - " + neptun + " (" + major + ")");
-                }
-                else
+                // Egyszerű formátum: csak Neptun kód (pl. ABC123), a hallgatót az adatbázisban keressük
+                String neptun = codeData.trim().toUpperCase();
+                DatabaseManager.StudentInfo student = neptun.isEmpty() ? null : dbManager.getStudent(neptun);
+                if (student == null)
                 {
-                    System.out.println("Hallgató nem található a rendszerben: " + neptun);
-                    updateStatus("Ismeretlen Neptun kód: " + neptun);
-                    return;
+                    results[i] = new ScanResult(codeData, neptun.isEmpty()
+                            ? ScanResult.Status.INVALID_FORMAT : ScanResult.Status.UNKNOWN_STUDENT, "", neptun);
+                    continue;
                 }
+                scan = new AttendanceEvent(student.getName(), student.getMajor(), student.getNeptun(), date);
             }
+            scans.add(scan);
+            positions.add(i);
+        }
 
-            System.out.println("Eredmény - Név: '" + name + "', Szak: '" + major + "', Neptun: '" + neptun + "'");
-
-            if (name.isEmpty() || neptun.isEmpty())
+        // Jelenlét naplózása - az adatbázisba a napló háttérszála írja be
+        if (!scans.isEmpty())
+        {
+            boolean[] accepted = scanJournal.recordBatch(scans);
+            for (int j = 0; j < scans.size(); j++)
             {
-                updateStatus("Helytelen " + codeType + " Formátum!");
-                return;
+                AttendanceEvent scan = scans.get(j);
+                int i = positions.get(j);
+                results[i] = new ScanResult(codes.get(i), accepted[j] ? ScanResult.Status.ACCEPTED
+                        : ScanResult.Status.ALREADY_SCANNED, scan.getName(), scan.getNeptun());
             }
+        }
+        for (ScanResult result : results)
+        {
+            eventBus.publish(new ScanEvent(source, result));
+        }
+        return Arrays.asList(results);
+    }
 
-            // Ellenőrizzük, hogy ma már beolvasták-e
-            LocalDate today = LocalDate.now();
-            LocalTime scanTime = LocalTime.now();
+    // Strukturált formátum: Name=...;Major=...;Neptun=...
+    // return: a beolvasás, vagy null ha hiányzik a név vagy a Neptun kód
 
-            if (dbManager.hasScannedToday(neptun, today.toString()))
-            {
-                updateStatus(name + " ma már be lett olvasva!");
-            }
-            else
+    private static AttendanceEvent parseStructured(String codeData, String date)
+    {
+        String name = "", major = "", neptun = "";
+        for (String part : codeData.split(";"))
+        {
+            String[] keyValue = part.split("=");
+            if (keyValue.length == 2)
             {
-                // Jelenlét rögzítése időbélyeggel
-                dbManager.recordAttendance(name, major, neptun, today.toString(), scanTime);
+                String key = keyValue[0].trim();
+                String value = keyValue[1].trim();
 
-                updateStatus(name + " sikeresen beolvasva! (" + codeType + ")");
+                switch (key)
+                {
+                    case "Name":
+                        name = value;
+                        break;
+                    case "Major":
+                        major = value;
+                        break;
+                    case "Neptun":
+                        neptun = value;
+                        break;
+                }
             }
-
-            // Státusz visszaállítása 3 másodperc után
-            resetStatusAfterDelay();
-
         }
-        catch (Exception e)
+        if (name.isEmpty() || neptun.isEmpty())
         {
-            updateStatus("Hiba történt a " + codeType + " feldolgozása során!");
-            e.printStackTrace();
+            return null;
         }
+        return new AttendanceEvent(name, major, neptun, date);
     }
 
     /**
@@ -174,20 +417,6 @@ public class BarcodeScanner
      */
     private void resetStatusAfterDelay()
     {
-        new Thread(() ->
-        {
-            try
-            {
-                Thread.sleep(3000);
-                Platform.runLater(() ->
-                {
-                    updateStatus("Készen Áll");
-                });
-            }
-            catch (InterruptedException e)
-            {
-                e.printStackTrace();
-            }
-        }).start();
+        scanExecutor.schedule(() -> updateStatus("Készen Áll"), 3, TimeUnit.SECONDS);
     }
 }
@@ -0,0 +1,335 @@
+package com.university.attendance;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.VideoWriter;
+import org.opencv.videoio.Videoio;
+
+/**
+ * Kamera megnyitása a kívánt képformátummal, és a képkockák átadása dekódolásra / előnézetre
+ *
+ * Megnyitáskor beállítja a pixelformátumot (MJPEG vagy YUYV), a felbontást, az FPS-t és a
+ * driver puffer méretét, majd kikapcsolja az OpenCV automatikus BGR konverzióját. A
+ * dekódoláshoz így csak a fényesség (Y) csatorna készül el: YUYV-nél ez egy csatorna
+ * kimásolása, MJPEG-nél szürkeárnyalatos JPEG dekódolás (a színcsatornák kimaradnak). A
+ * teljes színkonverzió csak a ténylegesen megjelenített előnézeti képkockákra fut le.
+ *
+ * Ha a driver nem a kért formátumot adja, vagy figyelmen kívül hagyja a konverzió
+ * kikapcsolását, a képkocka alakjából derül ki, mit kaptunk (BGR esetén a szürke kép
+ * cvtColor-ral készül, mint korábban).
+ */
+public class CameraCapture implements AutoCloseable
+{
+    /**
+     * Kért pixelformátum
+     */
+    public enum PixelFormat
+    {
+        // Tömörítetlen formátum, ha a sávszélesség engedi, különben MJPEG
+        AUTO,
+        // Tömörített: kis USB sávszélesség, de képkockánként JPEG dekódolás
+        MJPEG,
+        // Tömörítetlen 4:2:2: a Y csatorna dekódolás nélkül kimásolható
+        YUYV;
+
+        /**
+         * Formátum a beállítás alapján (auto|mjpeg|yuyv), ismeretlen vagy hiányzó esetén AUTO
+         */
+        public static PixelFormat choose(String setting)
+        {
+            String name = setting == null ? "auto" : setting.trim().toLowerCase();
+            switch (name)
+            {
+                case "mjpeg":
+                    return MJPEG;
+                case "yuyv":
+                    return YUYV;
+                default:
+                    return AUTO;
+            }
+        }
+    }
+
+    // A kamerától kapott nyers képkocka szerkezete
+    private enum Layout
+    {
+        YUYV, MJPEG, GRAY, BGR
+    }
+
+    // Ennél nagyobb tömörítetlen adatfolyamnál AUTO módban MJPEG (az USB 2.0 gyakorlati
+    // sávszélességének kb. fele, hogy egy hubon több eszköz is elférjen)
+    private static final long RAW_BANDWIDTH_LIMIT = 20L * 1024 * 1024;
+
+    private final MatPool pool;
+    private final PixelFormat requestedFormat;
+    private final int requestedWidth;
+    private final int requestedHeight;
+    private final int requestedFps;
+    private final int bufferSize;
+
+    private VideoCapture camera;
+    private String description = "";
+
+    // A kamera a nyers képkockát mindig ugyanabba a Mat-ba olvassa; a szürke kép külön puffer
+    private Mat raw;
+    private Mat gray;
+    private Mat luminance;
+    private Layout layout;
+
+    /**
+     * @param bufferSize A driver által tartott képkockák száma (1 = mindig a legfrissebb kép)
+     */
+    public CameraCapture(MatPool pool, PixelFormat format, int width, int height, int fps, int bufferSize)
+    {
+        this.pool = pool;
+        this.requestedFormat = format;
+        this.requestedWidth = width;
+        this.requestedHeight = height;
+        this.requestedFps = fps;
+        this.bufferSize = bufferSize;
+    }
+
+    // Teszteléshez: kamera nélkül, a load()-dal betöltött képkockákkal
+
+    CameraCapture(MatPool pool)
+    {
+        this(pool, PixelFormat.AUTO, 0, 0, 0, 0);
+        this.raw = pool.acquire(0, 0, CvType.CV_8UC1);
+        this.gray = pool.acquire(0, 0, CvType.CV_8UC1);
+    }
+
+    /**
+     * Kamera megnyitása és a formátum egyeztetése
+     * @return Hamis, ha a kamera nem érhető el
+     */
+    public boolean open(int index)
+    {
+        camera = new VideoCapture(index);
+        if (!camera.isOpened())
+        {
+            return false;
+        }
+
+        PixelFormat format = requestedFormat;
+        if (format == PixelFormat.AUTO)
+        {
+            long rawBytesPerSecond = (long) requestedWidth * requestedHeight * 2 * requestedFps;
+            format = rawBytesPerSecond <= RAW_BANDWIDTH_LIMIT ? PixelFormat.YUYV : PixelFormat.MJPEG;
+        }
+
+        // V4L2-n a FOURCC-t a felbontás előtt kell beállítani
+        camera.set(Videoio.CAP_PROP_FOURCC, format == PixelFormat.MJPEG
+                ? VideoWriter.fourcc('M', 'J', 'P', 'G') : VideoWriter.fourcc('Y', 'U', 'Y', 'V'));
+        camera.set(Videoio.CAP_PROP_FRAME_WIDTH, requestedWidth);
+        camera.set(Videoio.CAP_PROP_FRAME_HEIGHT, requestedHeight);
+        camera.set(Videoio.CAP_PROP_FPS, requestedFps);
+        camera.set(Videoio.CAP_PROP_BUFFERSIZE, bufferSize);
+        camera.set(Videoio.CAP_PROP_CONVERT_RGB, 0);
+
+        int width = (int) camera.get(Videoio.CAP_PROP_FRAME_WIDTH);
+        int height = (int) camera.get(Videoio.CAP_PROP_FRAME_HEIGHT);
+        description = String.format("%s %dx%d @ %.0f FPS (kért: %s %dx%d), puffer: %.0f",
+                fourccName((int) camera.get(Videoio.CAP_PROP_FOURCC)), width, height, camera.get(Videoio.CAP_PROP_FPS),
+                format, requestedWidth, requestedHeight, camera.get(Videoio.CAP_PROP_BUFFERSIZE));
+        System.out.println("Kamera formátum: " + description);
+
+        raw = pool.acquire(height, width, format == PixelFormat.MJPEG ? CvType.CV_8UC1 : CvType.CV_8UC2);
+        gray = pool.acquire(height, width, CvType.CV_8UC1);
+        return true;
+    }
+
+    public boolean isOpened()
+    {
+        return camera != null && camera.isOpened();
+    }
+
+    /**
+     * A megnyitáskor egyeztetett formátum leírása
+     */
+    public String getDescription()
+    {
+        return description;
+    }
+
+    /**
+     * Következő képkocka beolvasása és a fényesség csatorna előállítása
+     * @return Hamis, ha nem jött (értelmezhető) képkocka
+     */
+    public boolean read()
+    {
+        boolean read = camera.read(raw) && update();
+        accountBuffers();
+        return read;
+    }
+
+    // Teszteléshez: képkocka betöltése kamera helyett (a szerkezete ugyanúgy derül ki)
+
+    boolean load(Mat frame)
+    {
+        frame.copyTo(raw);
+        boolean loaded = update();
+        accountBuffers();
+        return loaded;
+    }
+
+    // A beolvasás és a konverzió újrafoglalhatja a puffereket (más felbontás, vagy a teszt
+    // konstruktor 0x0 méretű Mat-jai): a készlet nyilvántartása kövesse a tényleges méretet
+
+    private void accountBuffers()
+    {
+        pool.updateSize(raw);
+        pool.updateSize(gray);
+    }
+
+    /**
+     * Az utolsó képkocka fényesség (Y) csatornája, 8 bites szürke kép (a következő read()-ig érvényes)
+     */
+    public Mat getLuminance()
+    {
+        return luminance;
+    }
+
+    public int getWidth()
+    {
+        return luminance.cols();
+    }
+
+    public int getHeight()
+    {
+        return luminance.rows();
+    }
+
+    /**
+     * Az utolsó képkocka RGB színes képe (csak a megjelenített előnézethez)
+     * @param rgb Cél, getHeight() x getWidth() méretű CV_8UC3
+     */
+    public void toRgb(Mat rgb)
+    {
+        switch (layout)
+        {
+            case YUYV:
+                Imgproc.cvtColor(raw, rgb, Imgproc.COLOR_YUV2RGB_YUYV);
+                break;
+            case MJPEG:
+                Mat decoded = Imgcodecs.imdecode(raw, Imgcodecs.IMREAD_COLOR);
+                try
+                {
+                    Imgproc.cvtColor(decoded, rgb, Imgproc.COLOR_BGR2RGB);
+                }
+                finally
+                {
+                    decoded.release();
+                }
+                break;
+            case GRAY:
+                Imgproc.cvtColor(luminance, rgb, Imgproc.COLOR_GRAY2RGB);
+                break;
+            case BGR:
+            default:
+                Imgproc.cvtColor(raw, rgb, Imgproc.COLOR_BGR2RGB);
+                break;
+        }
+    }
+
+    /**
+     * Csak a kamera eszköz elengedése (a pufferek maradnak, ha még futhat rajtuk feldolgozás)
+     */
+    public void releaseDevice()
+    {
+        if (camera != null && camera.isOpened())
+        {
+            camera.release();
+        }
+    }
+
+    /**
+     * Kamera és pufferek felszabadítása
+     */
+    @Override
+    public void close()
+    {
+        releaseDevice();
+        pool.release(raw);
+        pool.release(gray);
+        raw = null;
+        gray = null;
+        luminance = null;
+    }
+
+    // A képkocka szerkezetének felismerése és a szürke kép előállítása
+
+    private boolean update()
+    {
+        if (raw.empty())
+        {
+            return false;
+        }
+        layout = detectLayout(raw);
+        switch (layout)
+        {
+            case YUYV:
+                // Y0 U0 Y1 V0 ...: a 2 csatornás képen a 0. csatorna a pixelenkénti Y
+                Core.extractChannel(raw, gray, 0);
+                luminance = gray;
+                break;
+            case MJPEG:
+                // Szürkeárnyalatos dekódolásnál a JPEG színcsatornái nem készülnek el
+                Mat decoded = Imgcodecs.imdecode(raw, Imgcodecs.IMREAD_GRAYSCALE);
+                try
+                {
+                    if (decoded.empty())
+                    {
+                        return false; // sérült képkocka (pl. USB hiba)
+                    }
+                    decoded.copyTo(gray);
+                }
+                finally
+                {
+                    decoded.release();
+                }
+                luminance = gray;
+                break;
+            case GRAY:
+                luminance = raw;
+                break;
+            case BGR:
+            default:
+                Imgproc.cvtColor(raw, gray, Imgproc.COLOR_BGR2GRAY);
+                luminance = gray;
+                break;
+        }
+        return true;
+    }
+
+    private static Layout detectLayout(Mat frame)
+    {
+        if (frame.channels() == 2)
+        {
+            return Layout.YUYV;
+        }
+        if (frame.channels() == 1)
+        {
+            // A tömörített képkocka egy sor (vagy oszlop) bájt
+            return Math.min(frame.rows(), frame.cols()) == 1 ? Layout.MJPEG : Layout.GRAY;
+        }
+        return Layout.BGR;
+    }
+
+    private static String fourccName(int fourcc)
+    {
+        if (fourcc == 0)
+        {
+            return "?";
+        }
+        char[] name = new char[4];
+        for (int i = 0; i < 4; i++)
+        {
+            name[i] = (char) ((fourcc >> (8 * i)) & 0xFF);
+        }
+        return new String(name);
+    }
+}
@@ -0,0 +1,209 @@
+package com.university.attendance;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tartós (soak) teszt a kamera ciklus memóriahasználatára
+ *
+ * A kalibráció szintetikus képkockáit játssza le a kamera ciklus lépéseivel: képkocka a
+ * közös pufferbe (BGR, vagy a kamera nyers YUYV / MJPEG formátumában), fényesség csatorna,
+ * előnézet konverzió, QR dekódolás (a kód nélküli képkockákon az előfeldolgozott változatokkal). Rendszeresen kiírja az RSS-t, a heapet és a nyilvántartott
+ * natív puffereket, a végén pedig a bemelegedés utáni RSS változást óránként: egészséges
+ * ciklusnál ez a mérési zaj szintjén marad. A --legacy kapcsolóval a korábbi (képkockánként
+ * új Mat, PNG előnézet) ciklus fut összehasonlításként.
+ *
+ * Futtatás: java -cp ... com.university.attendance.CaptureSoak [perc] [fps, 0 = amilyen gyorsan lehet]
+ *           [--bgr | --yuyv | --mjpeg | --legacy]
+ */
+public class CaptureSoak
+{
+    // Mérési időköz: a futásidő harmincada, 5 másodperc és 1 perc között
+    private static final long MIN_REPORT_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long MAX_REPORT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // Bemelegedés (JIT, a heap felfutása, malloc arénák): a futásidő tizede, de legalább
+    // 2 perc (és legfeljebb a fele); a trendbe nem számít bele
+    private static final double WARMUP_FRACTION = 0.1;
+    private static final long MIN_WARMUP_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    public static void main(String[] args) throws Exception
+    {
+        double minutes = args.length > 0 ? Double.parseDouble(args[0]) : 60;
+        int fps = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String mode = args.length > 2 ? args[2].replace("--", "") : "yuyv";
+        boolean legacy = mode.equals("legacy");
+
+        OpenCVLoader.ensureLoaded();
+        List<Mat> samples = new ArrayList<>();
+        DecoderCalibration.createSamples(samples, new ArrayList<>());
+
+        // A kalibráció mintái szürkék; a kamera nyers képkockája a színes változatból készül
+        for (int i = 0; i < samples.size(); i++)
+        {
+            Mat gray = samples.get(i);
+            Mat bgr = new Mat();
+            Imgproc.cvtColor(gray, bgr, Imgproc.COLOR_GRAY2BGR);
+            gray.release();
+            if (mode.equals("yuyv") || mode.equals("mjpeg"))
+            {
+                samples.set(i, mode.equals("yuyv") ? toYuyv(bgr) : toMjpeg(bgr));
+                bgr.release();
+            }
+            else
+            {
+                samples.set(i, bgr);
+            }
+        }
+
+        MatPool framePool = new MatPool(2);
+        CameraCapture capture = new CameraCapture(framePool);
+        byte[] preview = new byte[0];
+
+        long durationNanos = (long) (minutes * TimeUnit.MINUTES.toNanos(1));
+        long reportNanos = Math.max(MIN_REPORT_NANOS, Math.min(MAX_REPORT_NANOS, durationNanos / 30));
+        long frameNanos = fps > 0 ? TimeUnit.SECONDS.toNanos(1) / fps : 0;
+        List<long[]> rssSamples = new ArrayList<>(); // [eltelt ns, RSS bájt]
+        long frames = 0;
+        long decoded = 0;
+
+        System.out.printf("Soak teszt: %.1f perc, %s FPS, %s ciklus%n", minutes,
+                fps > 0 ? String.valueOf(fps) : "max", legacy ? "régi" : "készletes " + mode);
+
+        try (QRCodeDecoder decoder = new QRCodeDecoder(new ZXingDecoderBackend(), QRCodeDecoder.DEFAULT_ENHANCEMENT_THREADS))
+        {
+            long start = System.nanoTime();
+            long nextReport = start;
+            long elapsed;
+            while ((elapsed = System.nanoTime() - start) < durationNanos)
+            {
+                Mat sample = samples.get((int) (frames % samples.size()));
+                if (legacy)
+                {
+                    decoded += legacyFrame(sample, decoder);
+                }
+                else
+                {
+                    capture.load(sample);
+                    preview = PreviewRenderer.toRgb(capture, framePool, preview);
+                    decoded += decoder.decode(capture.getLuminance()) != null ? 1 : 0;
+                }
+                frames++;
+
+                if (System.nanoTime() >= nextReport)
+                {
+                    nextReport += reportNanos;
+                    long rss = NativeMemory.readRssBytes();
+                    rssSamples.add(new long[] {elapsed, rss});
+                    Runtime runtime = Runtime.getRuntime();
+                    System.out.printf("%6.1f perc  %,9d képkocka  heap: %s  %s%n",
+                            elapsed / 60e9, frames, StorageReport.formatBytes(runtime.totalMemory() - runtime.freeMemory()),
+                            NativeMemory.summary());
+                }
+
+                if (frameNanos > 0)
+                {
+                    long sleep = start + frames * frameNanos - System.nanoTime();
+                    if (sleep > 0)
+                    {
+                        TimeUnit.NANOSECONDS.sleep(sleep);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            capture.close();
+            framePool.close();
+            samples.forEach(Mat::release);
+        }
+
+        System.out.printf("Összesen: %,d képkocka, %,d dekódolt kód%n", frames, decoded);
+        System.out.println("Leállítás után: " + NativeMemory.summary());
+        printTrend(System.out, "RSS", rssSamples, durationNanos);
+    }
+
+    // A korábbi ciklus: képkockánként új Mat, PNG kódolt előnézet felszabadítás nélkül
+
+    private static int legacyFrame(Mat sample, QRCodeDecoder decoder)
+    {
+        Mat frame = new Mat();
+        sample.copyTo(frame);
+        MatOfByte buffer = new MatOfByte();
+        Imgcodecs.imencode(".png", frame, buffer);
+        buffer.toArray();
+        int decoded = decoder.decode(frame) != null ? 1 : 0;
+        frame.release();
+        return decoded;
+    }
+
+    // Nyers YUYV képkocka (Y0 U Y1 V ...) a kamera driver kimenetének megfelelően
+
+    private static Mat toYuyv(Mat bgr)
+    {
+        Mat yuv = new Mat();
+        Imgproc.cvtColor(bgr, yuv, Imgproc.COLOR_BGR2YUV);
+        byte[] pixels = new byte[(int) yuv.total() * 3];
+        yuv.get(0, 0, pixels);
+        yuv.release();
+
+        byte[] packed = new byte[(int) bgr.total() * 2];
+        for (int i = 0; i < bgr.total(); i++)
+        {
+            packed[2 * i] = pixels[3 * i];
+            packed[2 * i + 1] = pixels[3 * i + (i % 2 == 0 ? 1 : 2)];
+        }
+        Mat yuyv = new Mat(bgr.rows(), bgr.cols(), CvType.CV_8UC2);
+        yuyv.put(0, 0, packed);
+        return yuyv;
+    }
+
+    // Nyers MJPEG képkocka: egy sor tömörített bájt
+
+    private static Mat toMjpeg(Mat bgr)
+    {
+        MatOfByte jpeg = new MatOfByte();
+        Imgcodecs.imencode(".jpg", bgr, jpeg);
+        Mat row = jpeg.reshape(1, 1).clone();
+        jpeg.release();
+        return row;
+    }
+
+    // Memória trend a bemelegedés után (legkisebb négyzetes egyenes meredeksége)
+    // samples: [eltelt ns, bájt]; a LoadHarness tartós futása is ezt használja
+
+    static void printTrend(PrintStream out, String label, List<long[]> samples, long durationNanos)
+    {
+        long warmup = Math.min(durationNanos / 2, Math.max(MIN_WARMUP_NANOS, (long) (durationNanos * WARMUP_FRACTION)));
+        double n = 0, sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+        for (long[] sample : samples)
+        {
+            if (sample[0] < warmup || sample[1] < 0)
+            {
+                continue;
+            }
+            double x = sample[0] / 3600e9;
+            double y = sample[1] / (1024.0 * 1024);
+            n++;
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+        }
+        if (n < 3)
+        {
+            out.println(label + " trend: kevés mérési pont a bemelegedés után");
+            return;
+        }
+        double slope = (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+        out.printf("%s trend a bemelegedés után: %+.1f MB/óra (%d mérés)%n", label, slope, (int) n);
+    }
+}
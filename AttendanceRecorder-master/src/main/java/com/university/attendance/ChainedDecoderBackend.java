@@ -0,0 +1,42 @@
+package com.university.attendance;
+
+import org.opencv.core.Mat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Láncolt dekódolás: sorban próbálja a motorokat, az első találat nyer
+ */
+public class ChainedDecoderBackend implements QRDecoderBackend
+{
+    private final List<QRDecoderBackend> backends;
+
+    /**
+     * @param backends A motorok próbálkozási sorrendben (jellemzően a leggyorsabb elöl)
+     */
+    public ChainedDecoderBackend(List<QRDecoderBackend> backends)
+    {
+        this.backends = List.copyOf(backends);
+    }
+
+    @Override
+    public String getName()
+    {
+        return backends.stream().map(QRDecoderBackend::getName).collect(Collectors.joining("+"));
+    }
+
+    @Override
+    public String decode(Mat frame)
+    {
+        for (QRDecoderBackend backend : backends)
+        {
+            String text = backend.decode(frame);
+            if (text != null)
+            {
+                return text;
+            }
+        }
+        return null;
+    }
+}
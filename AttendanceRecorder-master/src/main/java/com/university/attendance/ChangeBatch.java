@@ -0,0 +1,167 @@
+package com.university.attendance;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Egy kioszk új jelenléti eseményei két watermark között
+ *
+ * Tömör bináris formátum (GZIP): a szakok és dátumok szótárba kerülnek,
+ * így egy esemény jellemzően csak a Neptun kódot, a nevet és két kis indexet tartalmaz.
+ */
+public class ChangeBatch
+{
+    private static final int MAGIC = 0x41545443; // "ATTC"
+    private static final int FORMAT_VERSION = 1;
+
+    private final String sourceKiosk;
+    private final long fromWatermark;
+    private final long toWatermark;
+    private final List<AttendanceEvent> events;
+
+    /**
+     * @param sourceKiosk A kioszk azonosítója, ahol az események keletkeztek
+     * @param fromWatermark Az előző batch utolsó rekord azonosítója (kizárólagos)
+     * @param toWatermark A batch utolsó rekord azonosítója (bezárólagos)
+     */
+    public ChangeBatch(String sourceKiosk, long fromWatermark, long toWatermark, List<AttendanceEvent> events)
+    {
+        this.sourceKiosk = sourceKiosk;
+        this.fromWatermark = fromWatermark;
+        this.toWatermark = toWatermark;
+        this.events = Collections.unmodifiableList(events);
+    }
+
+    public String getSourceKiosk()
+    {
+        return sourceKiosk;
+    }
+
+    public long getFromWatermark()
+    {
+        return fromWatermark;
+    }
+
+    public long getToWatermark()
+    {
+        return toWatermark;
+    }
+
+    public List<AttendanceEvent> getEvents()
+    {
+        return events;
+    }
+
+    /**
+     * Batch kiírása (a stream-et nem zárja le)
+     */
+    public void writeTo(OutputStream out) throws IOException
+    {
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip));
+
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeUTF(sourceKiosk);
+        data.writeLong(fromWatermark);
+        data.writeLong(toWatermark);
+
+        // Szótár: szakok és dátumok csak egyszer szerepelnek
+        Map<String, Integer> majors = new HashMap<>();
+        Map<String, Integer> dates = new HashMap<>();
+        List<String> majorList = new ArrayList<>();
+        List<String> dateList = new ArrayList<>();
+        for (AttendanceEvent event : events)
+        {
+            if (majors.putIfAbsent(event.getMajor(), majors.size()) == null)
+            {
+                majorList.add(event.getMajor());
+            }
+            if (dates.putIfAbsent(event.getDate(), dates.size()) == null)
+            {
+                dateList.add(event.getDate());
+            }
+        }
+        writeStrings(data, majorList);
+        writeStrings(data, dateList);
+
+        data.writeInt(events.size());
+        for (AttendanceEvent event : events)
+        {
+            data.writeUTF(event.getNeptun());
+            data.writeUTF(event.getName());
+            data.writeShort(majors.get(event.getMajor()));
+            data.writeShort(dates.get(event.getDate()));
+        }
+
+        data.flush();
+        gzip.finish();
+    }
+
+    /**
+     * Batch beolvasása
+     */
+    public static ChangeBatch readFrom(InputStream in) throws IOException
+    {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+
+        if (data.readInt() != MAGIC || data.readInt() != FORMAT_VERSION)
+        {
+            throw new IOException("Ismeretlen replikációs batch formátum");
+        }
+
+        String sourceKiosk = data.readUTF();
+        long from = data.readLong();
+        long to = data.readLong();
+        List<String> majors = readStrings(data);
+        List<String> dates = readStrings(data);
+
+        int count = data.readInt();
+        List<AttendanceEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            String neptun = data.readUTF();
+            String name = data.readUTF();
+            String major = majors.get(data.readUnsignedShort());
+            String date = dates.get(data.readUnsignedShort());
+            events.add(new AttendanceEvent(name, major, neptun, date));
+        }
+        return new ChangeBatch(sourceKiosk, from, to, events);
+    }
+
+    private static void writeStrings(DataOutputStream data, List<String> values) throws IOException
+    {
+        if (values.size() > 0xFFFF)
+        {
+            throw new IOException("Túl sok különböző érték egy batch-ben: " + values.size());
+        }
+        data.writeInt(values.size());
+        for (String value : values)
+        {
+            data.writeUTF(value);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream data) throws IOException
+    {
+        int count = data.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            values.add(data.readUTF());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,278 @@
+package com.university.attendance;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Az SqliteConnectionPool író sorának mérése párhuzamos olvasók mellett
+ *
+ * Ideiglenes adatbázist tölt fel egy félév jelenléteivel, majd egyenletes ütemben
+ * beolvasásokat (hallgató upsert + jelenlét egy tranzakcióban) küld az író szálra.
+ * Két kört fut: csak beolvasásokkal, majd [olvasók] szállal, amelyek folyamatosan
+ * riport lekérdezéseket (teljes napló bejárás) és rövid duplikáció ellenőrzéseket futtatnak.
+ * Írásonként külön méri a sorban állást (beküldés -> az író szál elkezdi) és a
+ * végrehajtást a committal együtt, olvasásonként a szabad olvasó kapcsolatra várakozást.
+ *
+ * Futtatás: java -cp ... com.university.attendance.ConnectionPoolBenchmark [hallgatók] [olvasók] [beolvasás/s] [másodperc]
+ */
+public class ConnectionPoolBenchmark
+{
+    private static final int HISTORY_DAYS = 60;
+
+    private static final String REPORT_QUERY = """
+        SELECT st.name, st.major, st.neptun, a.date, a.scans
+        FROM attendance_records a JOIN students st ON st.id = a.student_id
+        ORDER BY a.date DESC, a.id DESC
+    """;
+    private static final String CHECK_QUERY = """
+        SELECT COUNT(*) FROM students st
+        JOIN attendance_records a ON a.student_id = st.id
+        WHERE a.date = ? AND st.neptun = ?
+    """;
+
+    public static void main(String[] args) throws Exception
+    {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int readerThreads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int scansPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        PrintStream out = System.out;
+        Path dir = Files.createTempDirectory("attendance-pool");
+        String dbUrl = "jdbc:sqlite:" + dir.resolve("attendance.db");
+
+        // Séma a DatabaseManager migrációjával, utána saját pool ugyanazzal a beállítással
+        System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+        try
+        {
+            DatabaseManager dbManager = new DatabaseManager(dbUrl);
+            dbManager.initDatabase();
+            dbManager.close();
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+
+        SqliteConnectionPool pool = new SqliteConnectionPool(dbUrl, DatabaseManager.READER_POOL_SIZE);
+        try
+        {
+            pool.openWriter();
+            pool.openReaders();
+            long rows = fillHistory(pool, students);
+            out.printf("%,d hallgató, %,d jelenlét (%d nap), %d olvasó kapcsolat, %d beolvasás/s, %d s körönként%n",
+                    students, rows, HISTORY_DAYS, pool.getReaderCount(), scansPerSecond, seconds);
+
+            // Bemelegítés, majd a két kör különböző napokra, hogy mind új jelenlét legyen
+            runRound(pool, students, 0, scansPerSecond, 1, LocalDate.of(2027, 1, 1), null);
+            runRound(pool, students, 0, scansPerSecond, seconds, LocalDate.of(2027, 1, 2), out);
+            runRound(pool, students, readerThreads, scansPerSecond, seconds, LocalDate.of(2027, 1, 3), out);
+        }
+        finally
+        {
+            pool.close();
+            StorageBenchmark.deleteAll(dir.toFile());
+        }
+    }
+
+    // Egy kör: ütemezett beolvasások, opcionálisan párhuzamos olvasókkal; out == null esetén nem ír ki semmit
+
+    private static void runRound(SqliteConnectionPool pool, int students, int readerThreads, int scansPerSecond,
+                                 int seconds, LocalDate day, PrintStream out) throws InterruptedException
+    {
+        int scans = scansPerSecond * seconds;
+        LatencyRecorder queueWait = new LatencyRecorder(scans);
+        LatencyRecorder execution = new LatencyRecorder(scans);
+        LatencyRecorder readWait = new LatencyRecorder(1 << 16);
+        AtomicLong reports = new AtomicLong();
+        AtomicLong checks = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < readerThreads; r++)
+        {
+            Random random = new Random(r);
+            boolean reporting = r % 2 == 0;
+            Thread reader = Thread.ofPlatform().daemon().name("bench-reader-" + r).start(() ->
+            {
+                while (running.get())
+                {
+                    long requested = System.nanoTime();
+                    try
+                    {
+                        pool.read(connection ->
+                        {
+                            readWait.record(System.nanoTime() - requested);
+                            return reporting ? report(connection) : check(connection, random.nextInt(students), day);
+                        });
+                        (reporting ? reports : checks).incrementAndGet();
+                    }
+                    catch (SQLException e)
+                    {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            readers.add(reader);
+        }
+
+        // Nyílt hurok: a beolvasások a menetrend szerint érkeznek, a lassú író nem fékezi őket
+        ExecutorService scanners = Executors.newVirtualThreadPerTaskExecutor();
+        CountDownLatch finished = new CountDownLatch(scans);
+        String date = day.toString();
+        long intervalNanos = 1_000_000_000L / scansPerSecond;
+        long start = System.nanoTime();
+        for (int i = 0; i < scans; i++)
+        {
+            long scheduled = start + i * intervalNanos;
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0)
+            {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+            int student = i % students;
+            scanners.execute(() ->
+            {
+                long submitted = System.nanoTime();
+                try
+                {
+                    // A végrehajtás a commitot (WAL írás) is tartalmazza
+                    long begin = pool.transaction(connection ->
+                    {
+                        long started = System.nanoTime();
+                        long studentId = DatabaseManager.upsertStudent(connection, "Pool Hallgató " + student,
+                                "Mérnökinformatikus", String.format("PB%05d", student));
+                        try (PreparedStatement pstmt = connection.prepareStatement(
+                                "INSERT OR IGNORE INTO attendance_records (student_id, date, scans) VALUES (?, ?, 1)"))
+                        {
+                            pstmt.setLong(1, studentId);
+                            pstmt.setString(2, date);
+                            pstmt.executeUpdate();
+                        }
+                        return started;
+                    });
+                    long end = System.nanoTime();
+                    queueWait.record(begin - submitted);
+                    execution.record(end - begin);
+                }
+                catch (SQLException e)
+                {
+                    failures.incrementAndGet();
+                }
+                finally
+                {
+                    finished.countDown();
+                }
+            });
+        }
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+        running.set(false);
+        for (Thread reader : readers)
+        {
+            reader.join();
+        }
+        scanners.shutdown();
+
+        if (out == null)
+        {
+            return;
+        }
+        out.printf("%n%s%n", readerThreads == 0 ? "Csak beolvasások:" : readerThreads + " olvasó szál mellett:");
+        out.printf("  Beolvasás: %,d db, %,.0f/s (hiba: %d)%n", scans, scans * 1e9 / elapsed, failures.get());
+        out.printf("  Író sor várakozás: p50=%.2f ms, p99=%.2f ms, max=%.2f ms%n",
+                queueWait.getPercentileMillis(50), queueWait.getPercentileMillis(99), queueWait.getMaxMillis());
+        out.printf("  Írás végrehajtás:  p50=%.2f ms, p99=%.2f ms, max=%.2f ms%n",
+                execution.getPercentileMillis(50), execution.getPercentileMillis(99), execution.getMaxMillis());
+        if (readerThreads > 0)
+        {
+            out.printf("  Olvasások: %,d riport, %,d ellenőrzés; olvasó kapcsolatra várás: p50=%.2f ms, p99=%.2f ms%n",
+                    reports.get(), checks.get(), readWait.getPercentileMillis(50), readWait.getPercentileMillis(99));
+        }
+    }
+
+    // Teljes napló bejárás (mint a lista / export)
+
+    private static long report(Connection connection) throws SQLException
+    {
+        long checksum = 0;
+        try (PreparedStatement pstmt = connection.prepareStatement(REPORT_QUERY);
+             ResultSet rs = pstmt.executeQuery())
+        {
+            while (rs.next())
+            {
+                checksum += rs.getString(3).length() + rs.getInt(5);
+            }
+        }
+        return checksum;
+    }
+
+    // Egy hallgató napi ellenőrzése (mint a findScanned)
+
+    private static long check(Connection connection, int student, LocalDate day) throws SQLException
+    {
+        try (PreparedStatement pstmt = connection.prepareStatement(CHECK_QUERY))
+        {
+            pstmt.setString(1, day.toString());
+            pstmt.setString(2, String.format("PB%05d", student));
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Hallgatók és a félév jelenlétei (kb. 80%) egyetlen tranzakcióban
+
+    private static long fillHistory(SqliteConnectionPool pool, int students) throws SQLException
+    {
+        return pool.transaction(connection ->
+        {
+            Random random = new Random(42);
+            long[] ids = new long[students];
+            for (int s = 0; s < students; s++)
+            {
+                ids[s] = DatabaseManager.upsertStudent(connection, "Pool Hallgató " + s, "Mérnökinformatikus",
+                        String.format("PB%05d", s));
+            }
+
+            long rows = 0;
+            LocalDate start = LocalDate.of(2026, 9, 1);
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO attendance_records (student_id, date, scans) VALUES (?, ?, 1)"))
+            {
+                for (int day = 0; day < HISTORY_DAYS; day++)
+                {
+                    String date = start.plusDays(day).toString();
+                    for (int s = 0; s < students; s++)
+                    {
+                        if (random.nextInt(100) >= 80)
+                        {
+                            continue;
+                        }
+                        pstmt.setLong(1, ids[s]);
+                        pstmt.setString(2, date);
+                        pstmt.addBatch();
+                        rows++;
+                    }
+                    pstmt.executeBatch();
+                }
+            }
+            return rows;
+        });
+    }
+}
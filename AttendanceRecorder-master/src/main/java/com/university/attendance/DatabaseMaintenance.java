@@ -0,0 +1,250 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adatbázis karbantartás tétlen időszakokban
+ *
+ * A beolvasási aktivitást a jelenlét események jelzik; ha {@code idleAfter} ideje nem volt
+ * beolvasás, a rendszeresen hívott {@link #runIdleStep()} elvégzi a soron következő munkát:
+ * <ul>
+ *     <li>a lezárt félévek áthelyezése félévenkénti archív fájlba (naponta egyszer ellenőrzi),
+ *         így a fő táblákban csak az aktuális és a megtartott félévek maradnak,</li>
+ *     <li>archiválás után a félig üres indexek újraépítése,</li>
+ *     <li>inkrementális VACUUM kis darabokban (minden darab külön írás, közéjük beférnek a
+ *         beolvasások), amíg van szabad lap és tart a tétlenség; a régi fájlok egyszeri
+ *         átállítása (teljes VACUUM) csak hosszú tétlenség után vagy kérésre fut,</li>
+ *     <li>ANALYZE, ha elég sok változás gyűlt össze, végül WAL checkpoint.</li>
+ * </ul>
+ * Új beolvasás érkezésekor a folyamatban lévő lépés a következő darab előtt abbamarad.
+ */
+public class DatabaseMaintenance
+{
+    // Egy VACUUM darab mérete lapokban és egy lépés időkerete
+    private static final int VACUUM_CHUNK_PAGES = 256;
+    private static final long STEP_BUDGET_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    // Az inkrementális VACUUM-ra átállítás (teljes VACUUM) ennyi tétlenség után fut magától
+    private static final long CONVERSION_IDLE_NANOS = TimeUnit.HOURS.toNanos(2);
+
+    // Ennyi új jelenlét után frissítjük a lekérdezés-tervező statisztikáit
+    private static final int ANALYZE_AFTER_CHANGES = 1000;
+
+    // Archiválás után az ennél nagyobb belső üres hellyel rendelkező indexek újraépülnek
+    private static final double REINDEX_UNUSED_RATIO = 0.3;
+    private static final long REINDEX_MIN_PAGES = 16;
+
+    private final DatabaseManager dbManager;
+    private final Path archiveDir;
+    private final int keepClosedTerms;
+    private final long idleAfterNanos;
+
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile int changesSinceAnalyze = ANALYZE_AFTER_CHANGES; // induláskor egyszer lefut
+    private LocalDate lastArchiveCheck;
+    private boolean incrementalVacuumEnabled;
+    private boolean compactPending;
+    private boolean checkpointPending;
+
+    /**
+     * @param archiveDir Az archív félév fájlok mappája
+     * @param keepClosedTerms Ennyi lezárt félév marad a fő adatbázisban az aktuális mellett
+     * @param idleAfterSeconds Ennyi másodperc beolvasás nélkül számít tétlennek a kioszk
+     */
+    public DatabaseMaintenance(DatabaseManager dbManager, Path archiveDir, int keepClosedTerms, long idleAfterSeconds)
+    {
+        this.dbManager = dbManager;
+        this.archiveDir = archiveDir;
+        this.keepClosedTerms = Math.max(0, keepClosedTerms);
+        this.idleAfterNanos = TimeUnit.SECONDS.toNanos(idleAfterSeconds);
+    }
+
+    /**
+     * Jelenlét esemény (DatabaseManager feliratkozó): aktivitás jelzése
+     */
+    public void onAttendanceRecorded(AttendanceEvent event)
+    {
+        lastActivityNanos = System.nanoTime();
+        changesSinceAnalyze++;
+    }
+
+    /**
+     * Tétlen-e most a kioszk
+     */
+    public boolean isIdle()
+    {
+        return System.nanoTime() - lastActivityNanos >= idleAfterNanos;
+    }
+
+    /**
+     * Inkrementális VACUUM bekapcsolása most, a tétlenségtől függetlenül (adminisztrátori művelet)
+     * Régi fájlnál egyszeri teljes VACUUM, ami alatt a beolvasások DB írásai várnak.
+     * @return true ha most kellett átállítani
+     */
+    public synchronized boolean enableIncrementalVacuum() throws SQLException
+    {
+        long start = System.nanoTime();
+        boolean converted = dbManager.enableIncrementalVacuum();
+        incrementalVacuumEnabled = true;
+        if (converted)
+        {
+            System.out.printf("Inkrementális VACUUM bekapcsolva (teljes VACUUM: %d ms)%n",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            checkpointPending = true;
+        }
+        return converted;
+    }
+
+    /**
+     * Egy karbantartási lépés, ha a kioszk tétlen (rendszeresen hívandó háttérszálról)
+     */
+    public synchronized void runIdleStep()
+    {
+        if (!isIdle())
+        {
+            return;
+        }
+        long start = System.nanoTime();
+        try
+        {
+            // A teljes VACUUM az író szálat is lefoglalja: magától csak hosszú tétlenség után
+            if (!incrementalVacuumEnabled && System.nanoTime() - lastActivityNanos >= CONVERSION_IDLE_NANOS)
+            {
+                enableIncrementalVacuum();
+            }
+
+            LocalDate today = LocalDate.now();
+            if (!today.equals(lastArchiveCheck) && isIdle())
+            {
+                lastArchiveCheck = today;
+                if (!archiveClosedTerms(today).isEmpty())
+                {
+                    changesSinceAnalyze = ANALYZE_AFTER_CHANGES;
+                    compactPending = true;
+                }
+            }
+
+            // A tömeges törlés után félig üres index lapok: újraépítés tömören
+            if (compactPending && isIdle())
+            {
+                compactPending = false;
+                compactIndexes();
+            }
+
+            int freed = 0;
+            int chunk;
+            do
+            {
+                chunk = dbManager.incrementalVacuum(VACUUM_CHUNK_PAGES);
+                freed += chunk;
+            }
+            while (chunk > 0 && isIdle() && System.nanoTime() - start < STEP_BUDGET_NANOS);
+            if (freed > 0)
+            {
+                System.out.println("Inkrementális VACUUM: " + freed + " lap felszabadítva");
+                checkpointPending = true;
+            }
+
+            if (changesSinceAnalyze >= ANALYZE_AFTER_CHANGES && isIdle())
+            {
+                changesSinceAnalyze = 0;
+                dbManager.analyze();
+                checkpointPending = true;
+            }
+
+            // Ha minden kész, a WAL-t is visszaírjuk és csonkítjuk
+            if (checkpointPending && chunk == 0 && isIdle())
+            {
+                dbManager.checkpoint();
+                checkpointPending = false;
+                System.out.println("Karbantartás kész:\n" + dbManager.getStorageReport());
+            }
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Karbantartási hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // Indexek újraépítése, ha a lapjaikon belül sok az üres hely (a felszabaduló
+    // lapokat a következő VACUUM darabok adják vissza)
+
+    private void compactIndexes() throws SQLException
+    {
+        for (StorageReport.TableUsage usage : dbManager.getStorageReport().getTables())
+        {
+            if (usage.getPages() >= REINDEX_MIN_PAGES && usage.getUnusedRatio() > REINDEX_UNUSED_RATIO
+                    && dbManager.reindex(usage.getName()))
+            {
+                System.out.printf("Index újraépítve: %s (%.0f%% üres volt)%n", usage.getName(), usage.getUnusedRatio() * 100);
+            }
+        }
+    }
+
+    /**
+     * A megtartandónál régebbi lezárt félévek archiválása
+     * @return Az archivált félévek
+     */
+    public List<AcademicTerm> archiveClosedTerms(LocalDate today) throws SQLException
+    {
+        List<AcademicTerm> archived = new ArrayList<>();
+        String oldest = dbManager.getOldestDate();
+        if (oldest == null)
+        {
+            return archived;
+        }
+
+        // Az aktuális félév és az előtte lévő keepClosedTerms félév marad
+        AcademicTerm firstKept = AcademicTerm.of(today);
+        for (int i = 0; i < keepClosedTerms; i++)
+        {
+            firstKept = firstKept.previous();
+        }
+
+        for (AcademicTerm term = AcademicTerm.of(LocalDate.parse(oldest));
+             term.getStart().isBefore(firstKept.getStart());
+             term = term.next())
+        {
+            Path file = archiveDir.resolve("attendance_" + term.getCode() + ".db");
+            try
+            {
+                Files.createDirectories(archiveDir);
+            }
+            catch (IOException e)
+            {
+                throw new SQLException("Archív mappa nem hozható létre: " + archiveDir, e);
+            }
+
+            long start = System.nanoTime();
+            int rows = dbManager.archiveRange(term.getStart().toString(), term.getEnd().toString(), file);
+            if (rows < 0)
+            {
+                System.out.println("Félév archiválás elhalasztva (még nem replikált sorok): " + term);
+                break;
+            }
+            if (rows > 0)
+            {
+                System.out.printf("Félév archiválva: %s, %d jelenlét -> %s (%d ms)%n", term, rows, file,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                archived.add(term);
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Tárhely jelentés (blokkoló, háttérszálon hívandó)
+     */
+    public StorageReport report() throws SQLException
+    {
+        return dbManager.getStorageReport();
+    }
+}
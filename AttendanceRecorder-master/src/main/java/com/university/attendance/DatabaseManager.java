@@ -2,10 +2,21 @@ package com.university.attendance;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 
 
@@ -14,33 +25,114 @@ public class DatabaseManager
 {
     // SQLite lokális útvonala 
     private static final String DB_URL = "jdbc:sqlite:attendance.db";
+
+    // Jelenléti rekordok a hallgató adataival (a név és szak csak a students táblában van)
+    private static final String RECORDS_QUERY = """
+        SELECT a.id, st.name, st.major, st.neptun, a.date, a.scans
+        FROM attendance_records a
+        JOIN students st ON st.id = a.student_id
+    """;
+
+    // Aktív kurzus alkalom (null = nincs); ilyenkor, és ha az alkalom nem a beolvasás napján van,
+    // a beolvasás az alapértelmezett kurzus napi alkalmába kerül
+    private volatile SessionInfo activeSession;
+
+    // applyAttendance eredménye: új alkalom jelenlét, illetve új napi rekord
+    private static final int ADDED_SESSION = 1;
+    private static final int ADDED_DAY = 2;
+
+    // Csak olvasható kapcsolatok száma (lista, export, statisztika)
+    public static final int READER_POOL_SIZE = 3;
+
+    private final String dbUrl;
     
-    // Adatbázis kapcsolat objektum
-    private Connection connection;
-    
+    // Egy író + több olvasó kapcsolat
+    private SqliteConnectionPool pool;
+
+    // Új jelenlétekről értesítendő feliratkozók (statisztika, keresés...)
+    private final List<Consumer<AttendanceEvent>> attendanceListeners = new CopyOnWriteArrayList<>();
+
+
+    public DatabaseManager()
+    {
+        this(DB_URL);
+    }
+
+    /**
+     * Konstruktor tetszőleges adatbázis fájlhoz (pl. teszt vagy terhelés méréshez)
+     * @param dbUrl JDBC URL, pl. jdbc:sqlite:/tmp/attendance.db
+     */
+    public DatabaseManager(String dbUrl)
+    {
+        this.dbUrl = dbUrl;
+    }
     
-    // Adatbázis inicializálás: kapcsolat létrehozása és táblák előkészítése
     
-    public void initDatabase()
+    // Adatbázis inicializálás: kapcsolatok létrehozása és táblák előkészítése
+    // Hiba esetén a megnyitott kapcsolatok lezárulnak és a kivétel továbbmegy: félkész vagy
+    // migrálatlan adatbázissal nem indulhat el a beolvasás
+
+    public void initDatabase() throws SQLException
     {
         try
         {
-            connection = DriverManager.getConnection(DB_URL);
-            createTable();
-            createStudentsTable();
+            pool = new SqliteConnectionPool(dbUrl, READER_POOL_SIZE);
+            pool.openWriter();
+            pool.write(connection ->
+            {
+                createTable(connection);
+                createStudentsTable(connection);
+                SchemaMigrator.migrate(connection);
+                return null;
+            });
+            // Az olvasók csak a már létező sémát látják
+            pool.openReaders();
         }
         catch (SQLException e)
         {
             System.err.println("Adatbázis inicializálási hiba: " + e.getMessage());
-            e.printStackTrace();
+            close();
+            throw e;
         }
     }
     
 
+    // Gyorsítótárak bemelegítése: minden olvasó kapcsolat egyszer végigolvassa a beolvasáskor
+    // használt táblákat és a mai nap indexét, így az első beolvasás már nem lemezről olvas
+
+    public void warmUp()
+    {
+        String today = LocalDate.now().toString();
+        try
+        {
+            for (int i = 0; i < Math.max(1, pool.getReaderCount()); i++)
+            {
+                pool.read(connection ->
+                {
+                    try (Statement stmt = connection.createStatement();
+                         PreparedStatement pstmt = connection.prepareStatement(
+                                 "SELECT COUNT(*) FROM attendance_records WHERE date = ?"))
+                    {
+                        stmt.executeQuery("SELECT COUNT(*), MAX(neptun) FROM students").close();
+                        pstmt.setString(1, today);
+                        pstmt.executeQuery().close();
+                    }
+                    return null;
+                });
+            }
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Bemelegítési hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+
     // Jelenléti rekordok táblájának létrehozása ha még nem létezik
     // UNIQUE constraint --> egy hallgató naponta csak egyszer kerülhet be
     
-    private void createTable() 
+    private void createTable(Connection connection) 
     {
         String createTableSQL = """
             CREATE TABLE IF NOT EXISTS attendance_records (
@@ -71,18 +163,27 @@ public class DatabaseManager
     
     public boolean hasScannedToday(String neptun, String date) 
     {
-        String query = "SELECT COUNT(*) FROM attendance_records WHERE neptun = ? AND date = ?";
+        String query = """
+            SELECT EXISTS (
+                SELECT 1 FROM students st
+                JOIN attendance_records a ON a.student_id = st.id
+                WHERE st.neptun = ? AND a.date = ?
+            )
+        """;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) 
+        try
         {
-            pstmt.setString(1, neptun);
-            pstmt.setString(2, date);
-            
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) 
+            return pool.read(connection ->
             {
-                return rs.getInt(1) > 0;
-            }
+                try (PreparedStatement pstmt = connection.prepareStatement(query))
+                {
+                    pstmt.setString(1, neptun.toUpperCase());
+                    pstmt.setString(2, date);
+
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() && rs.getInt(1) > 0;
+                }
+            });
         } 
         catch (SQLException e) 
         {
@@ -93,45 +194,148 @@ public class DatabaseManager
     }
     
     
-    // Jelenlét rögzítése az adatbázisban
+    // Több hallgató egyidejű ellenőrzése (csoportos beolvasás): egyetlen lekérdezés
+    // sessionId != 0: az adott alkalmon szerepeltek-e, egyébként az adott napon bármelyiken
+    // return: azok a Neptun kódok (nagybetűvel), akik már szerepeltek
+    // Lekérdezési hiba esetén kivételt dob: üres halmazzal a már beolvasottak is újnak látszanának
+
+    public Set<String> findScanned(Collection<String> neptuns, String date, long sessionId) throws SQLException
+    {
+        Set<String> scanned = new HashSet<>();
+        if (neptuns.isEmpty())
+        {
+            return scanned;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(neptuns.size(), "?"));
+        String query = sessionId != 0
+                ? "SELECT st.neptun FROM students st " +
+                  "JOIN session_attendance sa ON sa.student_id = st.id " +
+                  "WHERE sa.session_id = ? AND st.neptun IN (" + placeholders + ")"
+                : "SELECT st.neptun FROM students st " +
+                  "JOIN attendance_records a ON a.student_id = st.id " +
+                  "WHERE a.date = ? AND st.neptun IN (" + placeholders + ")";
+
+        pool.read(connection ->
+        {
+            try (PreparedStatement pstmt = connection.prepareStatement(query))
+            {
+                if (sessionId != 0)
+                {
+                    pstmt.setLong(1, sessionId);
+                }
+                else
+                {
+                    pstmt.setString(1, date);
+                }
+                int index = 2;
+                for (String neptun : neptuns)
+                {
+                    pstmt.setString(index++, neptun.toUpperCase());
+                }
+
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next())
+                {
+                    scanned.add(rs.getString(1));
+                }
+            }
+            return null;
+        });
+        return scanned;
+    }
+
+
+    // Jelenlét rögzítése az adatbázisban (az aktív alkalomba, ha az ezen a napon van)
+    // return: true ha új jelenlét jött létre, false ha a hallgató ezen az alkalmon már szerepelt
+    // (párhuzamos beolvasásoknál ez a végső döntés, nem a hasScannedToday)
     
-    public void recordAttendance(String name, String major, String neptun, String date) 
+    public boolean recordAttendance(String name, String major, String neptun, String date) 
     {
-        String insertSQL = "INSERT INTO attendance_records (name, major, neptun, date, scans) VALUES (?, ?, ?, ?, 1)";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSQL)) 
+        try
         {
-            pstmt.setString(1, name);
-            pstmt.setString(2, major);
-            pstmt.setString(3, neptun);
-            pstmt.setString(4, date);
-            pstmt.executeUpdate();
+            return applyAttendance(name, major, neptun, date, getActiveSessionId(date));
         } 
         catch (SQLException e) 
         {
-            // Hibaüzenet, ha UNIQUE constraint sérül
             System.err.println("Rögzítési hiba: " + e.getMessage());
             e.printStackTrace();
         }
+        return false;
+    }
+
+
+    /**
+     * Jelenlét rögzítése úgy, hogy a hiba a hívóhoz jusson (pl. napló visszajátszás újrapróbálhat)
+     * A jelenlét kulcsa (session_id, student_id): sessionId == 0 esetén a nap alapértelmezett
+     * alkalma. Az attendance_records ebből napi összesítő: egy nap második alkalma a
+     * megjelenések számát növeli. Idempotens: ugyanaz az alkalom másodszor nem számít.
+     * @return true ha új alkalom jelenlét jött létre
+     */
+    public boolean applyAttendance(String name, String major, String neptun, String date, long sessionId) throws SQLException
+    {
+        // Hallgató upsert + alkalom jelenlét + napi összesítő egy tranzakcióban
+        int added = pool.transaction(connection ->
+        {
+            long studentId = upsertStudent(connection, name, major, neptun);
+
+            long targetSession = sessionId != 0 ? sessionId : defaultSession(connection, date);
+            if (targetSession != 0 && !insertSessionAttendance(connection, targetSession, studentId))
+            {
+                return 0;
+            }
+
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT OR IGNORE INTO attendance_records (student_id, date, scans) VALUES (?, ?, 1)"))
+            {
+                pstmt.setLong(1, studentId);
+                pstmt.setString(2, date);
+                if (pstmt.executeUpdate() > 0)
+                {
+                    return ADDED_SESSION | ADDED_DAY;
+                }
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "UPDATE attendance_records SET scans = scans + 1 WHERE student_id = ? AND date = ?"))
+            {
+                pstmt.setLong(1, studentId);
+                pstmt.setString(2, date);
+                pstmt.executeUpdate();
+            }
+            return ADDED_SESSION;
+        });
+
+        // Értesítés csak a commit után, és csak új napi rekordról (a feliratkozók napi jelenlétet számolnak)
+        if ((added & ADDED_DAY) != 0)
+        {
+            fireAttendanceRecorded(new AttendanceEvent(name, major, neptun.toUpperCase(), date));
+        }
+        return (added & ADDED_SESSION) != 0;
     }
     
     
-     // Hallgató összes jelenléti napjának száma
-     // return: Hány különböző napon volt beolvasva az adott kód
+     // Hallgató összes jelenléti alkalmának száma (kurzus alkalmak és napi alapértelmezett alkalmak)
+     // return: Hány alkalmon volt beolvasva az adott kód
     
     public int getTotalScans(String neptun) 
     {
-        String query = "SELECT COUNT(*) FROM attendance_records WHERE neptun = ?";
+        String query = """
+            SELECT COUNT(*) FROM students st
+            JOIN session_attendance sa ON sa.student_id = st.id
+            WHERE st.neptun = ?
+        """;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) 
+        try
         {
-            pstmt.setString(1, neptun);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) 
+            return pool.read(connection ->
             {
-                return rs.getInt(1);
-            }
+                try (PreparedStatement pstmt = connection.prepareStatement(query))
+                {
+                    pstmt.setString(1, neptun.toUpperCase());
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
         } 
         catch (SQLException e) 
         {
@@ -155,22 +359,29 @@ public class DatabaseManager
         sb.append("=".repeat(100)).append("\n");
         
         // Összes rekord lekérése dátum szerint csökkenő sorrendben
-        String query = "SELECT * FROM attendance_records ORDER BY date DESC, id DESC";
+        String query = RECORDS_QUERY + " ORDER BY a.date DESC, a.id DESC";
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) 
+        try
         {
-            // Minden sor hozzáadása a formázott szöveghez
-            while (rs.next()) 
+            pool.read(connection ->
             {
-                sb.append(String.format("%-5d %-25s %-30s %-10s %-12s %-6d%n",
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("major"),
-                        rs.getString("neptun"),
-                        rs.getString("date"),
-                        rs.getInt("scans")));
-            }
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(query))
+                {
+                    // Minden sor hozzáadása a formázott szöveghez
+                    while (rs.next())
+                    {
+                        sb.append(String.format("%-5d %-25s %-30s %-10s %-12s %-6d%n",
+                                rs.getInt("id"),
+                                rs.getString("name"),
+                                rs.getString("major"),
+                                rs.getString("neptun"),
+                                rs.getString("date"),
+                                rs.getInt("scans")));
+                    }
+                }
+                return null;
+            });
         } 
         catch (SQLException e) 
         {
@@ -186,26 +397,37 @@ public class DatabaseManager
      
     public void exportToCSV(String filename) 
     {
-        String query = "SELECT * FROM attendance_records ORDER BY date DESC";
+        String query = RECORDS_QUERY + " ORDER BY a.date DESC";
         
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(query);
-             FileWriter writer = new FileWriter(filename)) 
+        try (FileWriter writer = new FileWriter(filename))
         {
             // CSV fejléc
             writer.append("ID,Name,Major,Neptun,Date,Scans\n");
-            
-            // Minden rekord írása CSV formátumban
-            while (rs.next()) 
+
+            // Olvasó kapcsolaton fut, így nem tartja fel a beolvasások írását
+            pool.read(connection ->
             {
-                writer.append(String.format("%d,%s,%s,%s,%s,%d%n",
-                        rs.getInt("id"),
-                        rs.getString("name"),
-                        rs.getString("major"),
-                        rs.getString("neptun"),
-                        rs.getString("date"),
-                        rs.getInt("scans")));
-            }
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(query))
+                {
+                    // Minden rekord írása CSV formátumban
+                    while (rs.next())
+                    {
+                        writer.append(String.format("%d,%s,%s,%s,%s,%d%n",
+                                rs.getInt("id"),
+                                rs.getString("name"),
+                                rs.getString("major"),
+                                rs.getString("neptun"),
+                                rs.getString("date"),
+                                rs.getInt("scans")));
+                    }
+                }
+                catch (IOException e)
+                {
+                    throw new SQLException("CSV írási hiba", e);
+                }
+                return null;
+            });
             
             System.out.println("CSV export sikeres: " + filename);
             
@@ -224,9 +446,10 @@ public class DatabaseManager
     {
         try
         {
-            if (connection != null && !connection.isClosed())
+            if (pool != null)
             {
-                connection.close();
+                pool.close();
+                pool = null;
                 System.out.println("Adatbázis kapcsolat lezárva.");
             }
         }
@@ -245,7 +468,7 @@ public class DatabaseManager
      * Mert ha még nem volt beolvasva aegy hallgató akkor nem lehet leolvasni
      * ha csak a attendace_recordot használom.
      */
-    private void createStudentsTable()
+    private void createStudentsTable(Connection connection)
     {
         String createTableSQL = """
             CREATE TABLE IF NOT EXISTS students (
@@ -270,14 +493,24 @@ public class DatabaseManager
      */
     public void insertStudent(String name, String major, String neptun)
     {
-        String insertSQL = "INSERT OR REPLACE INTO students (name, major, neptun) VALUES (?, ?, ?)";
+        // Upsert: a hallgató kulcsa (id) nem változhat, mert a jelenlétek arra hivatkoznak
+        String insertSQL = """
+            INSERT INTO students (name, major, neptun) VALUES (?, ?, ?)
+            ON CONFLICT(neptun) DO UPDATE SET name = excluded.name, major = excluded.major
+        """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(insertSQL))
+        try
         {
-            pstmt.setString(1, name);
-            pstmt.setString(2, major);
-            pstmt.setString(3, neptun.toUpperCase());
-            pstmt.executeUpdate();
+            pool.write(connection ->
+            {
+                try (PreparedStatement pstmt = connection.prepareStatement(insertSQL))
+                {
+                    pstmt.setString(1, name);
+                    pstmt.setString(2, major);
+                    pstmt.setString(3, neptun.toUpperCase());
+                    return pstmt.executeUpdate();
+                }
+            });
             System.out.println("Hallgató mentve adatbázisba: " + name + " (" + neptun + ")");
         } catch (SQLException e)
         {
@@ -292,37 +525,27 @@ public class DatabaseManager
     {
         String query = "SELECT * FROM students WHERE neptun = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query))
+        try
         {
-            String searchNeptun = neptun.toUpperCase();
-            pstmt.setString(1, searchNeptun);
-
-            System.out.println("DEBUG: Keresés - Neptun: '" + searchNeptun + "'");
-
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next())
-            {
-                System.out.println("DEBUG: Találat - Név: " + rs.getString("name"));
-                return new StudentInfo(
-                    rs.getString("name"),
-                    rs.getString("major"),
-                    rs.getString("neptun")
-                );
-            }
-            else
+            return pool.read(connection ->
             {
-                System.out.println("DEBUG: Nincs találat a students táblában!");
-
-                // Összes hallgató kilistázása debug céljából
-                Statement stmt = connection.createStatement();
-                ResultSet allStudents = stmt.executeQuery("SELECT neptun, name FROM students");
-                System.out.println("DEBUG: Students táblában lévő Neptun kódok:");
-                while (allStudents.next())
+                try (PreparedStatement pstmt = connection.prepareStatement(query))
                 {
-                    System.out.println("  - " + allStudents.getString("neptun") + " (" + allStudents.getString("name") + ")");
+                    pstmt.setString(1, neptun.toUpperCase());
+
+                    ResultSet rs = pstmt.executeQuery();
+
+                    if (rs.next())
+                    {
+                        return new StudentInfo(
+                            rs.getString("name"),
+                            rs.getString("major"),
+                            rs.getString("neptun")
+                        );
+                    }
+                    return null;
                 }
-            }
+            });
         } catch (SQLException e)
         {
             e.printStackTrace();
@@ -337,15 +560,17 @@ public class DatabaseManager
     {
         String query = "SELECT COUNT(*) FROM students WHERE neptun = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(query))
+        try
         {
-            pstmt.setString(1, neptun.toUpperCase());
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next())
+            return pool.read(connection ->
             {
-                return rs.getInt(1) > 0;
-            }
+                try (PreparedStatement pstmt = connection.prepareStatement(query))
+                {
+                    pstmt.setString(1, neptun.toUpperCase());
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() && rs.getInt(1) > 0;
+                }
+            });
         } catch (SQLException e)
         {
             e.printStackTrace();
@@ -355,43 +580,1229 @@ public class DatabaseManager
 
 
 
+    // ================================= ESEMÉNYEK ÉS BETÖLTÉS =====
+
     /**
-     * Jelenlét rögzítése időbélyeggel
+     * Feliratkozás az új jelenlétekre
+     * A listener a rögzítést végző (háttér)szálon hívódik, gyorsnak kell lennie
      */
-    public void recordAttendance(String name, String major, String neptun, String date, LocalTime scanTime)
+    public void addAttendanceListener(Consumer<AttendanceEvent> listener)
+    {
+        attendanceListeners.add(listener);
+    }
+
+    public void removeAttendanceListener(Consumer<AttendanceEvent> listener)
     {
-        recordAttendance(name, major, neptun, date);
+        attendanceListeners.remove(listener);
+    }
+
+    private void fireAttendanceRecorded(AttendanceEvent event)
+    {
+        for (Consumer<AttendanceEvent> listener : attendanceListeners)
+        {
+            try
+            {
+                listener.accept(event);
+            }
+            catch (RuntimeException e)
+            {
+                // Egy hibás feliratkozó nem ronthatja el a rögzítést
+                System.err.println("Jelenlét esemény feldolgozási hiba: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
     }
 
     /**
-     * Hallgató információk tárolására szolgáló belső osztály
+     * Összes jelenlét bejárása (olvasó kapcsolaton, soronként, memóriába gyűjtés nélkül)
+     * Memóriában tartott nézetek egyszeri betöltéséhez.
      */
-    public static class StudentInfo
+    public void forEachAttendance(Consumer<AttendanceEvent> consumer)
     {
-        private String name;
-        private String major;
-        private String neptun;
+        String query = RECORDS_QUERY + " ORDER BY a.date, a.id";
 
-        public StudentInfo(String name, String major, String neptun)
+        try
         {
-            this.name = name;
-            this.major = major;
-            this.neptun = neptun;
+            pool.read(connection ->
+            {
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery(query))
+                {
+                    while (rs.next())
+                    {
+                        consumer.accept(new AttendanceEvent(
+                                rs.getString("name"),
+                                rs.getString("major"),
+                                rs.getString("neptun"),
+                                rs.getString("date")));
+                    }
+                }
+                return null;
+            });
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Lekérdezési hiba (forEachAttendance): " + e.getMessage());
+            e.printStackTrace();
         }
+    }
 
-        public String getName()
+    /**
+     * Összes nyilvántartott hallgató bejárása (olvasó kapcsolaton)
+     */
+    public void forEachStudent(Consumer<StudentInfo> consumer)
+    {
+        try
         {
-            return name;
+            pool.read(connection ->
+            {
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT name, major, neptun FROM students"))
+                {
+                    while (rs.next())
+                    {
+                        consumer.accept(new StudentInfo(rs.getString(1), rs.getString(2), rs.getString(3)));
+                    }
+                }
+                return null;
+            });
         }
+        catch (SQLException e)
+        {
+            System.err.println("Lekérdezési hiba (forEachStudent): " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
 
-        public String getMajor()
+
+    /**
+     * Jelentés sorainak bejárása kurzorral (olvasó kapcsolaton, memóriába gyűjtés nélkül)
+     * A hibák a hívóhoz jutnak, hogy a félkész jelentést el tudja dobni.
+     * @param query A lekérdezés ? paraméterekkel
+     * @param params A paraméterek értékei
+     * @param consumer Soronként hívódik az oszlopok értékeivel (a tömb soronként újrahasznosul)
+     */
+    public void forEachReportRow(String query, List<String> params, Consumer<Object[]> consumer) throws SQLException
+    {
+        pool.read(connection ->
         {
-            return major;
+            try (PreparedStatement pstmt = connection.prepareStatement(query))
+            {
+                for (int i = 0; i < params.size(); i++)
+                {
+                    pstmt.setString(i + 1, params.get(i));
+                }
+                try (ResultSet rs = pstmt.executeQuery())
+                {
+                    Object[] row = new Object[rs.getMetaData().getColumnCount()];
+                    while (rs.next())
+                    {
+                        for (int i = 0; i < row.length; i++)
+                        {
+                            row[i] = rs.getObject(i + 1);
+                        }
+                        consumer.accept(row);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Egyetlen számot visszaadó lekérdezés (pl. a jelentés sorainak száma a folyamatjelzőhöz)
+     */
+    public long queryCount(String query, List<String> params) throws SQLException
+    {
+        return pool.read(connection ->
+        {
+            try (PreparedStatement pstmt = connection.prepareStatement(query))
+            {
+                for (int i = 0; i < params.size(); i++)
+                {
+                    pstmt.setString(i + 1, params.get(i));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    // ================================= REPLIKÁCIÓ =====
+
+    /**
+     * A kioszk egyedi azonosítója (az első induláskor generálódik)
+     */
+    public String getKioskId()
+    {
+        try
+        {
+            return pool.read(connection ->
+            {
+                try (Statement stmt = connection.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT value FROM settings WHERE key = 'kiosk_id'"))
+                {
+                    return rs.next() ? rs.getString(1) : "";
+                }
+            });
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Lekérdezési hiba (getKioskId): " + e.getMessage());
+            e.printStackTrace();
         }
+        return "";
+    }
 
-        public String getNeptun()
+    /**
+     * Helyben rögzített jelenlétek a megadott rekord azonosító után (id szerinti tartomány,
+     * nem járja be a teljes táblát). Más kioszkoktól átvett sorokat nem ad vissza.
+     * @param afterId Az előző export watermark-ja
+     * @param limit Legfeljebb ennyi esemény egy batch-ben
+     */
+    public ChangeBatch readLocalChanges(String kioskId, long afterId, int limit) throws SQLException
+    {
+        String query = """
+            SELECT a.id, st.name, st.major, st.neptun, a.date
+            FROM attendance_records a
+            JOIN students st ON st.id = a.student_id
+            WHERE a.id > ? AND a.origin IS NULL
+            ORDER BY a.id
+            LIMIT ?
+        """;
+
+        return pool.read(connection ->
         {
-            return neptun;
+            List<AttendanceEvent> events = new ArrayList<>();
+            long lastId = afterId;
+            try (PreparedStatement pstmt = connection.prepareStatement(query))
+            {
+                pstmt.setLong(1, afterId);
+                pstmt.setInt(2, limit);
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next())
+                {
+                    lastId = rs.getLong(1);
+                    events.add(new AttendanceEvent(rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+                }
+            }
+            return new ChangeBatch(kioskId, afterId, lastId, events);
+        });
+    }
+
+    /**
+     * Exportált / importált watermark lekérdezése egy kioszkhoz
+     * @param imported true: a kioszktól importált, false: a kioszk által exportált utolsó azonosító
+     */
+    public long getReplicationWatermark(String peer, boolean imported) throws SQLException
+    {
+        String query = "SELECT " + (imported ? "imported_id" : "exported_id") + " FROM replication_state WHERE peer = ?";
+        return pool.read(connection ->
+        {
+            try (PreparedStatement pstmt = connection.prepareStatement(query))
+            {
+                pstmt.setString(1, peer);
+                ResultSet rs = pstmt.executeQuery();
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    /**
+     * Export watermark mentése (a batch sikeres elküldése után)
+     */
+    public void setExportedWatermark(String kioskId, long exportedId) throws SQLException
+    {
+        pool.write(connection ->
+        {
+            try (PreparedStatement pstmt = connection.prepareStatement("""
+                    INSERT INTO replication_state (peer, exported_id) VALUES (?, ?)
+                    ON CONFLICT(peer) DO UPDATE SET exported_id = MAX(exported_id, excluded.exported_id)
+                """))
+            {
+                pstmt.setString(1, kioskId);
+                pstmt.setLong(2, exportedId);
+                return pstmt.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * A rés miatt a watermark előtt beolvasztott batch-ek (ezeket a transport már nem olvassa be újra)
+     * @return {@link #pendingKey} kulcsok
+     */
+    public Set<String> getPendingBatches() throws SQLException
+    {
+        return pool.read(connection ->
+        {
+            Set<String> pending = new HashSet<>();
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT peer, to_id FROM replication_pending"))
+            {
+                while (rs.next())
+                {
+                    pending.add(pendingKey(rs.getString(1), rs.getLong(2)));
+                }
+            }
+            return pending;
+        });
+    }
+
+    /**
+     * Kioszkonként az importált watermark (eddig folytonosan beolvasztott utolsó azonosító)
+     */
+    public Map<String, Long> getImportedWatermarks() throws SQLException
+    {
+        return pool.read(connection ->
+        {
+            Map<String, Long> watermarks = new HashMap<>();
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT peer, imported_id FROM replication_state"))
+            {
+                while (rs.next())
+                {
+                    watermarks.put(rs.getString(1), rs.getLong(2));
+                }
+            }
+            return watermarks;
+        });
+    }
+
+    public static String pendingKey(String peer, long toWatermark)
+    {
+        return peer + "|" + toWatermark;
+    }
+
+    /**
+     * Másik kioszk batch-ének idempotens beolvasztása egyetlen tranzakcióban
+     * A (neptun, date) pár már meglévő sorait kihagyja, a hallgatókat upserteli, az új
+     * sorok az alapértelmezett kurzus napi alkalmába is bekerülnek (az alkalom azonosítók
+     * kioszkonként mások, ezért a kurzus alkalom nem replikálódik).
+     * Rés esetén (egy korábbi batch még nem érkezett meg) a batch beolvad, de a watermark
+     * csak a rés pótlásakor lép előre, akkor viszont a közben beolvasztott batch-eken is át.
+     * @return Ténylegesen beszúrt jelenlétek száma
+     */
+    public int mergeChanges(ChangeBatch batch) throws SQLException
+    {
+        String peer = batch.getSourceKiosk();
+        String insertSQL = "INSERT OR IGNORE INTO attendance_records (student_id, date, scans, origin) VALUES (?, ?, 1, ?)";
+        String sessionSQL = "INSERT OR IGNORE INTO session_attendance (session_id, student_id) VALUES (?, ?)";
+        List<AttendanceEvent> inserted = new ArrayList<>();
+
+        pool.transaction(connection ->
+        {
+            long imported = 0;
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT imported_id FROM replication_state WHERE peer = ?"))
+            {
+                pstmt.setString(1, peer);
+                ResultSet rs = pstmt.executeQuery();
+                if (rs.next())
+                {
+                    imported = rs.getLong(1);
+                }
+            }
+            if (batch.getToWatermark() <= imported || isPendingBatch(connection, peer, batch.getToWatermark()))
+            {
+                return null;
+            }
+
+            // Egy batch-en belül egy hallgató kulcsát és egy nap alkalmát csak egyszer keressük ki
+            Map<String, Long> studentIds = new HashMap<>();
+            long[] rowStudents = new long[batch.getEvents().size()];
+            try (PreparedStatement pstmt = connection.prepareStatement(insertSQL))
+            {
+                for (int i = 0; i < rowStudents.length; i++)
+                {
+                    AttendanceEvent event = batch.getEvents().get(i);
+                    Long studentId = studentIds.get(event.getNeptun());
+                    if (studentId == null)
+                    {
+                        studentId = upsertStudent(connection, event.getName(), event.getMajor(), event.getNeptun());
+                        studentIds.put(event.getNeptun(), studentId);
+                    }
+                    rowStudents[i] = studentId;
+                    pstmt.setLong(1, studentId);
+                    pstmt.setString(2, event.getDate());
+                    pstmt.setString(3, peer);
+                    pstmt.addBatch();
+                }
+
+                int[] counts = pstmt.executeBatch();
+                Map<String, Long> sessionIds = new HashMap<>();
+                try (PreparedStatement session = connection.prepareStatement(sessionSQL))
+                {
+                    for (int i = 0; i < counts.length; i++)
+                    {
+                        if (counts[i] <= 0)
+                        {
+                            continue;
+                        }
+                        AttendanceEvent event = batch.getEvents().get(i);
+                        inserted.add(event);
+                        Long sessionId = sessionIds.get(event.getDate());
+                        if (sessionId == null)
+                        {
+                            sessionId = defaultSession(connection, event.getDate());
+                            sessionIds.put(event.getDate(), sessionId);
+                        }
+                        if (sessionId != 0)
+                        {
+                            session.setLong(1, sessionId);
+                            session.setLong(2, rowStudents[i]);
+                            session.addBatch();
+                        }
+                    }
+                    session.executeBatch();
+                }
+            }
+
+            if (batch.getFromWatermark() <= imported)
+            {
+                advanceImported(connection, peer, batch.getToWatermark());
+            }
+            else
+            {
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT OR IGNORE INTO replication_pending (peer, from_id, to_id) VALUES (?, ?, ?)"))
+                {
+                    pstmt.setString(1, peer);
+                    pstmt.setLong(2, batch.getFromWatermark());
+                    pstmt.setLong(3, batch.getToWatermark());
+                    pstmt.executeUpdate();
+                }
+                System.err.println("Replikációs rés: " + peer + " " + imported + " -> " + batch.getFromWatermark()
+                        + " (a batch beolvasztva, a watermark a rés pótlása után lép előre)");
+            }
+            return null;
+        });
+
+        for (AttendanceEvent event : inserted)
+        {
+            fireAttendanceRecorded(new AttendanceEvent(event.getName(), event.getMajor(),
+                    event.getNeptun().toUpperCase(), event.getDate()));
+        }
+        return inserted.size();
+    }
+
+    private static boolean isPendingBatch(Connection connection, String peer, long toWatermark) throws SQLException
+    {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT 1 FROM replication_pending WHERE peer = ? AND to_id = ?"))
+        {
+            pstmt.setString(1, peer);
+            pstmt.setLong(2, toWatermark);
+            return pstmt.executeQuery().next();
+        }
+    }
+
+    // Importált watermark léptetése egy folytonos batch után: a rés miatt korábban előre
+    // beolvasztott batch-eken is átlép, amíg azok folytonosan csatlakoznak
+
+    private static void advanceImported(Connection connection, String peer, long watermark) throws SQLException
+    {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT MAX(to_id) FROM replication_pending WHERE peer = ? AND from_id <= ?"))
+        {
+            while (true)
+            {
+                pstmt.setString(1, peer);
+                pstmt.setLong(2, watermark);
+                ResultSet rs = pstmt.executeQuery();
+                long next = rs.next() ? rs.getLong(1) : 0;
+                if (next <= watermark)
+                {
+                    break;
+                }
+                watermark = next;
+            }
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "DELETE FROM replication_pending WHERE peer = ? AND to_id <= ?"))
+        {
+            pstmt.setString(1, peer);
+            pstmt.setLong(2, watermark);
+            pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement("""
+                INSERT INTO replication_state (peer, imported_id) VALUES (?, ?)
+                ON CONFLICT(peer) DO UPDATE SET imported_id = MAX(imported_id, excluded.imported_id)
+            """))
+        {
+            pstmt.setString(1, peer);
+            pstmt.setLong(2, watermark);
+            pstmt.executeUpdate();
+        }
+    }
+
+
+    // ================================= KURZUSOK ÉS ALKALMAK =====
+
+    /**
+     * Kurzus létrehozása (ha már létezik, a meglévő azonosítóját adja vissza)
+     * @return A kurzus azonosítója, hiba esetén 0
+     */
+    public long createCourse(String code, String name)
+    {
+        try
+        {
+            return pool.write(connection ->
+            {
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT INTO courses (code, name) VALUES (?, ?) ON CONFLICT(code) DO UPDATE SET name = excluded.name"))
+                {
+                    pstmt.setString(1, code);
+                    pstmt.setString(2, name);
+                    pstmt.executeUpdate();
+                }
+                return queryId(connection, "SELECT id FROM courses WHERE code = ?", code);
+            });
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Kurzus létrehozási hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Kurzus alkalom megnyitása egy adott napra és kezdési időpontra
+     * @return Az alkalom azonosítója, hiba esetén 0
+     */
+    public long openSession(long courseId, String date, String startTime)
+    {
+        try
+        {
+            return pool.write(connection ->
+            {
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT OR IGNORE INTO sessions (course_id, date, start_time) VALUES (?, ?, ?)"))
+                {
+                    pstmt.setLong(1, courseId);
+                    pstmt.setString(2, date);
+                    pstmt.setString(3, startTime);
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "SELECT id FROM sessions WHERE course_id = ? AND date = ? AND start_time = ?"))
+                {
+                    pstmt.setLong(1, courseId);
+                    pstmt.setString(2, date);
+                    pstmt.setString(3, startTime);
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            });
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Alkalom megnyitási hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * Kurzus alkalom indítása: a kurzus (ha kell) és az alkalom létrehozása, majd aktiválása
+     * @return Az aktív alkalom, hiba esetén null (ilyenkor az aktív alkalom nem változik)
+     */
+    public SessionInfo startSession(String courseCode, String courseName, String date, String startTime)
+    {
+        long courseId = createCourse(courseCode, courseName);
+        long sessionId = courseId == 0 ? 0 : openSession(courseId, date, startTime);
+        if (sessionId == 0)
+        {
+            return null;
+        }
+        SessionInfo session = new SessionInfo(sessionId, courseCode, date, startTime);
+        setActiveSession(session);
+        System.out.println("Aktív alkalom: " + courseCode + " " + date + " " + startTime);
+        return session;
+    }
+
+    /**
+     * Aktív alkalom beállítása: a további beolvasások ehhez az alkalomhoz rögzülnek, és a
+     * duplikáció ellenőrzés is alkalmanként történik (egy nap több alkalma is beolvasható)
+     * @param session Az alkalom, null = az alapértelmezett kurzus napi alkalma
+     */
+    public void setActiveSession(SessionInfo session)
+    {
+        this.activeSession = session;
+    }
+
+    public SessionInfo getActiveSession()
+    {
+        return activeSession;
+    }
+
+    /**
+     * Az adott napi beolvasás alkalma: az aktív alkalom, ha azon a napon van, egyébként 0
+     * (az alapértelmezett napi alkalom); egy bent felejtett alkalom így nem nyúlik át másnapra
+     */
+    public long getActiveSessionId(String date)
+    {
+        SessionInfo session = activeSession;
+        return session != null && session.getDate().equals(date) ? session.getId() : 0;
+    }
+
+    /**
+     * Egy alkalom jelenléti listája (a fedő indexet használja)
+     */
+    public List<StudentInfo> getSessionAttendance(long sessionId)
+    {
+        String query = """
+            SELECT st.name, st.major, st.neptun
+            FROM session_attendance sa
+            JOIN students st ON st.id = sa.student_id
+            WHERE sa.session_id = ?
+            ORDER BY st.name
+        """;
+
+        try
+        {
+            return pool.read(connection ->
+            {
+                List<StudentInfo> students = new ArrayList<>();
+                try (PreparedStatement pstmt = connection.prepareStatement(query))
+                {
+                    pstmt.setLong(1, sessionId);
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next())
+                    {
+                        students.add(new StudentInfo(rs.getString(1), rs.getString(2), rs.getString(3)));
+                    }
+                }
+                return students;
+            });
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Lekérdezési hiba (getSessionAttendance): " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Egy hallgató összes alkalma, legújabb elöl (a student_id indexet használja)
+     */
+    public List<SessionInfo> getSessionsForStudent(String neptun)
+    {
+        String query = """
+            SELECT s.id, c.code, s.date, s.start_time
+            FROM students st
+            JOIN session_attendance sa ON sa.student_id = st.id
+            JOIN sessions s ON s.id = sa.session_id
+            JOIN courses c ON c.id = s.course_id
+            WHERE st.neptun = ?
+            ORDER BY s.date DESC, s.start_time DESC
+        """;
+
+        try
+        {
+            return pool.read(connection ->
+            {
+                List<SessionInfo> sessions = new ArrayList<>();
+                try (PreparedStatement pstmt = connection.prepareStatement(query))
+                {
+                    pstmt.setString(1, neptun.toUpperCase());
+                    ResultSet rs = pstmt.executeQuery();
+                    while (rs.next())
+                    {
+                        sessions.add(new SessionInfo(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+                    }
+                }
+                return sessions;
+            });
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Lekérdezési hiba (getSessionsForStudent): " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Kurzusonkénti statisztika: hány alkalmon vett részt a hallgató az adott kurzuson
+     */
+    public int getCourseAttendanceCount(String courseCode, String neptun)
+    {
+        String query = """
+            SELECT COUNT(*)
+            FROM students st
+            JOIN session_attendance sa ON sa.student_id = st.id
+            JOIN sessions s ON s.id = sa.session_id
+            JOIN courses c ON c.id = s.course_id
+            WHERE st.neptun = ? AND c.code = ?
+        """;
+
+        try
+        {
+            return pool.read(connection ->
+            {
+                try (PreparedStatement pstmt = connection.prepareStatement(query))
+                {
+                    pstmt.setString(1, neptun.toUpperCase());
+                    pstmt.setString(2, courseCode);
+                    ResultSet rs = pstmt.executeQuery();
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+        }
+        catch (SQLException e)
+        {
+            System.err.println("Lekérdezési hiba (getCourseAttendanceCount): " + e.getMessage());
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    // ================================= KARBANTARTÁS =====
+
+    /**
+     * Tárhely jelentés: fájlméret, szabad lapok, táblánkénti kihasználtság
+     * A táblánkénti adat a dbstat virtuális táblából jön (a teljes fájlt bejárja).
+     */
+    public StorageReport getStorageReport() throws SQLException
+    {
+        return pool.read(connection ->
+        {
+            long pageSize = pragmaLong(connection, "page_size");
+            long pageCount = pragmaLong(connection, "page_count");
+            long freePages = pragmaLong(connection, "freelist_count");
+            boolean incremental = pragmaLong(connection, "auto_vacuum") == 2;
+
+            List<StorageReport.TableUsage> tables = new ArrayList<>();
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT name, COUNT(*), SUM(pgsize), SUM(unused) FROM dbstat GROUP BY name ORDER BY SUM(pgsize) DESC"))
+            {
+                while (rs.next())
+                {
+                    tables.add(new StorageReport.TableUsage(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)));
+                }
+            }
+            catch (SQLException e)
+            {
+                // dbstat nélkül fordított SQLite: csak az összesítés készül el
+                System.err.println("Táblánkénti tárhely nem elérhető: " + e.getMessage());
+            }
+            return new StorageReport(pageSize, pageCount, freePages, walBytes(), incremental, tables);
+        });
+    }
+
+    /**
+     * Inkrementális VACUUM bekapcsolása. A régi fájloknál ez egyszeri teljes VACUUM-ot
+     * igényel (újraírja a fájlt, közben az író szál foglalt), ezért csak hosszú tétlenség
+     * után vagy kifejezett kérésre hívandó.
+     * @return true ha most kellett átállítani
+     */
+    public boolean enableIncrementalVacuum() throws SQLException
+    {
+        return pool.write(connection ->
+        {
+            if (pragmaLong(connection, "auto_vacuum") == 2)
+            {
+                return false;
+            }
+            try (Statement stmt = connection.createStatement())
+            {
+                stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                stmt.execute("VACUUM");
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Legfeljebb {@code pages} szabad lap visszaadása a fájlrendszernek, egy rövid tranzakcióban
+     * @return A felszabadított lapok száma
+     */
+    public int incrementalVacuum(int pages) throws SQLException
+    {
+        return pool.transaction(connection ->
+        {
+            long before = pragmaLong(connection, "freelist_count");
+            if (before == 0 || pages <= 0)
+            {
+                return 0;
+            }
+            // Az execute() csak egyszer léptetné a pragmát (egy lap); az executeUpdate a
+            // végéig futtatja, így egyetlen utasítás adja vissza mind az N lapot
+            try (Statement stmt = connection.createStatement())
+            {
+                stmt.executeUpdate("PRAGMA incremental_vacuum(" + Math.min(pages, before) + ")");
+            }
+            return (int) (before - pragmaLong(connection, "freelist_count"));
+        });
+    }
+
+    /**
+     * Lekérdezés-tervező statisztikák frissítése (mintavételes ANALYZE, korlátos futásidővel)
+     */
+    public void analyze() throws SQLException
+    {
+        pool.write(connection ->
+        {
+            try (Statement stmt = connection.createStatement())
+            {
+                stmt.execute("PRAGMA analysis_limit = 1000");
+                stmt.execute("ANALYZE");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Egy index újraépítése (tömör lapokkal)
+     * @return false, ha a név nem index (pl. tábla)
+     */
+    public boolean reindex(String indexName) throws SQLException
+    {
+        return pool.write(connection ->
+        {
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT 1 FROM sqlite_schema WHERE type = 'index' AND name = ?"))
+            {
+                pstmt.setString(1, indexName);
+                if (!pstmt.executeQuery().next())
+                {
+                    return false;
+                }
+            }
+            try (Statement stmt = connection.createStatement())
+            {
+                stmt.execute("REINDEX \"" + indexName.replace("\"", "\"\"") + "\"");
+            }
+            return true;
+        });
+    }
+
+    /**
+     * WAL fájl visszaírása az adatbázisba és csonkítása
+     */
+    public void checkpoint() throws SQLException
+    {
+        pool.write(connection ->
+        {
+            try (Statement stmt = connection.createStatement())
+            {
+                stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * A legrégebbi jelenlét vagy alkalom napja (null, ha nincs adat)
+     */
+    public String getOldestDate() throws SQLException
+    {
+        return pool.read(connection ->
+        {
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(
+                         "SELECT MIN(d) FROM (SELECT MIN(date) AS d FROM attendance_records UNION ALL SELECT MIN(date) FROM sessions)"))
+            {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        });
+    }
+
+    /**
+     * Egy lezárt időszak jelenléteinek és alkalmainak áthelyezése egy archív adatbázis fájlba
+     *
+     * Két lépésben fut: előbb a másolás az archívumba (commit), utána a törlés a fő
+     * adatbázisból csak az archívumban már meglévő sorokra. Egy közbeni leállás így legfeljebb
+     * duplikációt hagy (a következő futás rendbe teszi), adatvesztést nem. A hallgatók a fő
+     * adatbázisban maradnak (a beolvasáshoz kellenek), az archívum másolatot kap róluk.
+     * @return Az archivált jelenlét sorok száma, -1 ha az időszakban még van ki nem replikált helyi sor
+     */
+    public int archiveRange(String from, String to, Path archiveFile) throws SQLException
+    {
+        return pool.write(connection ->
+        {
+            // Üres időszakhoz nem hozunk létre archív fájlt
+            try (PreparedStatement pstmt = connection.prepareStatement("""
+                    SELECT EXISTS (SELECT 1 FROM attendance_records WHERE date BETWEEN ?1 AND ?2)
+                        OR EXISTS (SELECT 1 FROM sessions WHERE date BETWEEN ?1 AND ?2)
+                    """))
+            {
+                pstmt.setString(1, from);
+                pstmt.setString(2, to);
+                ResultSet rs = pstmt.executeQuery();
+                if (!rs.next() || !rs.getBoolean(1))
+                {
+                    return 0;
+                }
+            }
+
+            try (Statement stmt = connection.createStatement())
+            {
+                stmt.execute("ATTACH DATABASE '" + archiveFile.toAbsolutePath().toString().replace("'", "''") + "' AS archive");
+            }
+            try
+            {
+                if (hasUnreplicatedRows(connection, from, to))
+                {
+                    return -1;
+                }
+                int archived = runInTransaction(connection, c -> copyToArchive(c, from, to));
+                runInTransaction(connection, DatabaseManager::deleteArchived);
+                return archived;
+            }
+            finally
+            {
+                try (Statement stmt = connection.createStatement())
+                {
+                    stmt.execute("DETACH DATABASE archive");
+                }
+            }
+        });
+    }
+
+    private static int copyToArchive(Connection connection, String from, String to) throws SQLException
+    {
+        try (Statement stmt = connection.createStatement())
+        {
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS archive.students (
+                    id INTEGER PRIMARY KEY,
+                    neptun TEXT NOT NULL UNIQUE,
+                    name TEXT NOT NULL,
+                    major TEXT NOT NULL
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS archive.attendance_records (
+                    id INTEGER PRIMARY KEY,
+                    student_id INTEGER NOT NULL,
+                    date TEXT NOT NULL,
+                    scans INTEGER DEFAULT 1,
+                    origin TEXT,
+                    UNIQUE(student_id, date)
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS archive.courses (
+                    id INTEGER PRIMARY KEY,
+                    code TEXT NOT NULL UNIQUE,
+                    name TEXT NOT NULL
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS archive.sessions (
+                    id INTEGER PRIMARY KEY,
+                    course_id INTEGER NOT NULL,
+                    date TEXT NOT NULL,
+                    start_time TEXT NOT NULL DEFAULT ''
+                )
+            """);
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS archive.session_attendance (
+                    session_id INTEGER NOT NULL,
+                    student_id INTEGER NOT NULL,
+                    scanned_at TEXT,
+                    PRIMARY KEY (session_id, student_id)
+                ) WITHOUT ROWID
+            """);
+        }
+
+        String[] copies = {
+            """
+            INSERT OR REPLACE INTO archive.students (id, neptun, name, major)
+            SELECT id, neptun, name, major FROM main.students WHERE id IN (
+                SELECT student_id FROM main.attendance_records WHERE date BETWEEN ?1 AND ?2
+                UNION
+                SELECT sa.student_id FROM main.session_attendance sa
+                JOIN main.sessions s ON s.id = sa.session_id WHERE s.date BETWEEN ?1 AND ?2)
+            """,
+            """
+            INSERT OR REPLACE INTO archive.courses (id, code, name)
+            SELECT id, code, name FROM main.courses
+            WHERE id IN (SELECT course_id FROM main.sessions WHERE date BETWEEN ?1 AND ?2)
+            """,
+            """
+            INSERT OR IGNORE INTO archive.sessions (id, course_id, date, start_time)
+            SELECT id, course_id, date, start_time FROM main.sessions WHERE date BETWEEN ?1 AND ?2
+            """,
+            """
+            INSERT OR IGNORE INTO archive.session_attendance (session_id, student_id, scanned_at)
+            SELECT sa.session_id, sa.student_id, sa.scanned_at FROM main.session_attendance sa
+            JOIN main.sessions s ON s.id = sa.session_id WHERE s.date BETWEEN ?1 AND ?2
+            """
+        };
+        for (String copy : copies)
+        {
+            try (PreparedStatement pstmt = connection.prepareStatement(copy))
+            {
+                pstmt.setString(1, from);
+                pstmt.setString(2, to);
+                pstmt.executeUpdate();
+            }
+        }
+
+        try (PreparedStatement pstmt = connection.prepareStatement("""
+                INSERT OR IGNORE INTO archive.attendance_records (id, student_id, date, scans, origin)
+                SELECT id, student_id, date, scans, origin FROM main.attendance_records WHERE date BETWEEN ?1 AND ?2
+                """))
+        {
+            pstmt.setString(1, from);
+            pstmt.setString(2, to);
+            pstmt.executeUpdate();
+        }
+        // Az időszak összes sora (a korábbi, félbemaradt futásból már átmásoltakkal együtt)
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT COUNT(*) FROM main.attendance_records WHERE date BETWEEN ? AND ?"))
+        {
+            pstmt.setString(1, from);
+            pstmt.setString(2, to);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Csak az archívumban már biztosan meglévő sorok törlése a fő adatbázisból
+
+    private static int deleteArchived(Connection connection) throws SQLException
+    {
+        try (Statement stmt = connection.createStatement())
+        {
+            stmt.executeUpdate("""
+                DELETE FROM main.session_attendance
+                WHERE (session_id, student_id) IN (SELECT session_id, student_id FROM archive.session_attendance)
+            """);
+            stmt.executeUpdate("""
+                DELETE FROM main.sessions
+                WHERE id IN (SELECT id FROM archive.sessions)
+                AND id NOT IN (SELECT session_id FROM main.session_attendance)
+            """);
+            return stmt.executeUpdate("""
+                DELETE FROM main.attendance_records
+                WHERE (student_id, date) IN (SELECT student_id, date FROM archive.attendance_records)
+            """);
+        }
+    }
+
+    // Replikáció esetén csak a már exportált helyi sorok archiválhatók
+    // (a watermark utáni sorokat a replikáció még a fő táblából olvassa)
+
+    private static boolean hasUnreplicatedRows(Connection connection, String from, String to) throws SQLException
+    {
+        String query = """
+            SELECT COUNT(*) FROM attendance_records a
+            JOIN replication_state r ON r.peer = (SELECT value FROM settings WHERE key = 'kiosk_id')
+            WHERE a.date BETWEEN ? AND ? AND a.origin IS NULL AND a.id > r.exported_id
+        """;
+        try (PreparedStatement pstmt = connection.prepareStatement(query))
+        {
+            pstmt.setString(1, from);
+            pstmt.setString(2, to);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() && rs.getLong(1) > 0;
+        }
+    }
+
+    private static <T> T runInTransaction(Connection connection, SqliteConnectionPool.SqlWork<T> work) throws SQLException
+    {
+        connection.setAutoCommit(false);
+        try
+        {
+            T result = work.apply(connection);
+            connection.commit();
+            return result;
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            connection.rollback();
+            throw e;
+        }
+        finally
+        {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static long pragmaLong(Connection connection, String pragma) throws SQLException
+    {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA " + pragma))
+        {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // A WAL fájl mérete (memóriában tartott adatbázisnál 0)
+
+    private long walBytes()
+    {
+        String prefix = "jdbc:sqlite:";
+        if (!dbUrl.startsWith(prefix) || dbUrl.contains(":memory:"))
+        {
+            return 0;
+        }
+        try
+        {
+            Path wal = Path.of(dbUrl.substring(prefix.length()) + "-wal");
+            return Files.exists(wal) ? Files.size(wal) : 0;
+        }
+        catch (IOException e)
+        {
+            return 0;
+        }
+    }
+
+    // Az alapértelmezett kurzus napi alkalma (író szálon), szükség esetén létrehozza
+    // return: az alkalom azonosítója, 0 ha nincs alapértelmezett kurzus
+
+    private static long defaultSession(Connection connection, String date) throws SQLException
+    {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT OR IGNORE INTO sessions (course_id, date) SELECT id, ? FROM courses WHERE code = ?"))
+        {
+            pstmt.setString(1, date);
+            pstmt.setString(2, SchemaMigrator.DEFAULT_COURSE_CODE);
+            pstmt.executeUpdate();
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT s.id FROM sessions s JOIN courses c ON c.id = s.course_id " +
+                "WHERE c.code = ? AND s.date = ? AND s.start_time = ''"))
+        {
+            pstmt.setString(1, SchemaMigrator.DEFAULT_COURSE_CODE);
+            pstmt.setString(2, date);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    // Alkalom jelenlét beszúrása (író szálon); ha a hallgató még nincs a students
+    // táblában (pl. első QR beolvasás), előbb létrejön, hogy legyen kulcsa
+    // return: true ha új sor jött létre
+
+    private boolean insertSessionAttendance(Connection connection, long sessionId, long studentId) throws SQLException
+    {
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "INSERT OR IGNORE INTO session_attendance (session_id, student_id, scanned_at) VALUES (?, ?, ?)"))
+        {
+            pstmt.setLong(1, sessionId);
+            pstmt.setLong(2, studentId);
+            pstmt.setString(3, LocalTime.now().withNano(0).toString());
+            return pstmt.executeUpdate() > 0;
+        }
+    }
+
+    // Hallgató upsert (író szálon): strukturált QR adatból érkező név/szak frissíti a
+    // students sort, üres szak nem írja felül a meglévőt. Visszaadja a hallgató kulcsát.
+
+    static long upsertStudent(Connection connection, String name, String major, String neptun) throws SQLException
+    {
+        String upsertSQL = """
+            INSERT INTO students (neptun, name, major) VALUES (?, ?, ?)
+            ON CONFLICT(neptun) DO UPDATE SET
+                name = CASE WHEN excluded.name <> '' THEN excluded.name ELSE students.name END,
+                major = CASE WHEN excluded.major <> '' THEN excluded.major ELSE students.major END
+            WHERE excluded.name <> students.name OR (excluded.major <> '' AND excluded.major <> students.major)
+        """;
+
+        String key = neptun.toUpperCase();
+        try (PreparedStatement pstmt = connection.prepareStatement(upsertSQL))
+        {
+            pstmt.setString(1, key);
+            pstmt.setString(2, name);
+            pstmt.setString(3, major);
+            pstmt.executeUpdate();
+        }
+        return queryId(connection, "SELECT id FROM students WHERE neptun = ?", key);
+    }
+
+    private static long queryId(Connection connection, String query, String key) throws SQLException
+    {
+        try (PreparedStatement pstmt = connection.prepareStatement(query))
+        {
+            pstmt.setString(1, key);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    /**
+     * Jelenlét rögzítése időbélyeggel
+     */
+    public boolean recordAttendance(String name, String major, String neptun, String date, LocalTime scanTime)
+    {
+        return recordAttendance(name, major, neptun, date);
+    }
+
+    /**
+     * Hallgató információk tárolására szolgáló belső osztály
+     */
+    public static class StudentInfo
+    {
+        private String name;
+        private String major;
+        private String neptun;
+
+        public StudentInfo(String name, String major, String neptun)
+        {
+            this.name = name;
+            this.major = major;
+            this.neptun = neptun;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getMajor()
+        {
+            return major;
+        }
+
+        public String getNeptun()
+        {
+            return neptun;
+        }
+    }
+
+    /**
+     * Kurzus alkalom adatainak tárolására szolgáló belső osztály
+     */
+    public static class SessionInfo
+    {
+        private long id;
+        private String courseCode;
+        private String date;
+        private String startTime;
+
+        public SessionInfo(long id, String courseCode, String date, String startTime)
+        {
+            this.id = id;
+            this.courseCode = courseCode;
+            this.date = date;
+            this.startTime = startTime;
+        }
+
+        public long getId()
+        {
+            return id;
+        }
+
+        public String getCourseCode()
+        {
+            return courseCode;
+        }
+
+        public String getDate()
+        {
+            return date;
+        }
+
+        public String getStartTime()
+        {
+            return startTime;
         }
     }
 }
\ No newline at end of file
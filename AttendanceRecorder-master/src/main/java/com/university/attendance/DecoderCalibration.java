@@ -0,0 +1,245 @@
+package com.university.attendance;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Dekódoló motor kiválasztása: induláskor minden jelöltet lemér ugyanazon a mintakészleten,
+ * és a leggyorsabbat választja, amelyik eléri a pontossági küszöböt.
+ *
+ * A minták generált képkockák: különböző méretű, enyhén elmosott és zajos QR kódok
+ * (ékezetes nevekkel), valamint kód nélküli képek, mert élőben a képkockák többségén nincs kód.
+ */
+public class DecoderCalibration
+{
+    // Ennyi mintát kell helyesen felismernie egy motornak (kód nélküli képen: null)
+    public static final double MIN_ACCURACY = 0.9;
+
+    private static final int CODE_SAMPLES = 10;
+    private static final int EMPTY_SAMPLES = 4;
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+
+    /**
+     * Egy motor mérési eredménye
+     */
+    public static class Measurement
+    {
+        private final QRDecoderBackend backend;
+        private final double accuracy;
+        private final double averageMillis;
+
+        public Measurement(QRDecoderBackend backend, double accuracy, double averageMillis)
+        {
+            this.backend = backend;
+            this.accuracy = accuracy;
+            this.averageMillis = averageMillis;
+        }
+
+        public QRDecoderBackend getBackend()
+        {
+            return backend;
+        }
+
+        public double getAccuracy()
+        {
+            return accuracy;
+        }
+
+        public double getAverageMillis()
+        {
+            return averageMillis;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: %.0f%%, %.2f ms/kép", backend.getName(), accuracy * 100, averageMillis);
+        }
+    }
+
+    /**
+     * Motor a beállítás alapján (-Dattendance.decoder=zxing|opencv|chained|auto)
+     * Ismeretlen vagy hiányzó beállítás esetén automatikus kiválasztás.
+     */
+    public static QRDecoderBackend choose(String setting)
+    {
+        String name = setting == null ? "auto" : setting.trim().toLowerCase();
+        switch (name)
+        {
+            case "zxing":
+                return new ZXingDecoderBackend();
+            case "opencv":
+                return new OpenCVDecoderBackend();
+            case "chained":
+                return new ChainedDecoderBackend(List.of(new OpenCVDecoderBackend(), new ZXingDecoderBackend()));
+            default:
+                return calibrate();
+        }
+    }
+
+    /**
+     * Automatikus kiválasztás a beépített motorok és láncolataik közül
+     */
+    public static QRDecoderBackend calibrate()
+    {
+        QRDecoderBackend zxing = new ZXingDecoderBackend();
+        QRDecoderBackend opencv = new OpenCVDecoderBackend();
+        return select(List.of(zxing, opencv,
+                new ChainedDecoderBackend(List.of(opencv, zxing)),
+                new ChainedDecoderBackend(List.of(zxing, opencv))));
+    }
+
+    /**
+     * A leggyorsabb jelölt, amelyik eléri a MIN_ACCURACY küszöböt
+     * (ha egyik sem, akkor a legpontosabb)
+     */
+    public static QRDecoderBackend select(List<QRDecoderBackend> candidates)
+    {
+        List<Mat> frames = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        createSamples(frames, expected);
+
+        try
+        {
+            // Előbb minden jelölt bemelegít, hogy a mérés sorrendje ne torzítson (JIT, natív init)
+            for (QRDecoderBackend candidate : candidates)
+            {
+                for (Mat frame : frames)
+                {
+                    candidate.decode(frame);
+                }
+            }
+
+            Measurement best = null;
+            for (QRDecoderBackend candidate : candidates)
+            {
+                Measurement measurement = measure(candidate, frames, expected);
+                System.out.println("Dekóder kalibráció - " + measurement);
+                if (best == null || isBetter(measurement, best))
+                {
+                    best = measurement;
+                }
+            }
+            System.out.println("Kiválasztott QR dekóder: " + best.getBackend().getName());
+            return best.getBackend();
+        }
+        finally
+        {
+            for (Mat frame : frames)
+            {
+                frame.release();
+            }
+        }
+    }
+
+    /**
+     * Egy motor pontossága és átlagos ideje a mintákon (egyetlen mérő kör)
+     */
+    public static Measurement measure(QRDecoderBackend backend, List<Mat> frames, List<String> expected)
+    {
+        int correct = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < frames.size(); i++)
+        {
+            if (Objects.equals(backend.decode(frames.get(i)), expected.get(i)))
+            {
+                correct++;
+            }
+        }
+        double averageMillis = (System.nanoTime() - start) / 1_000_000.0 / frames.size();
+        return new Measurement(backend, (double) correct / frames.size(), averageMillis);
+    }
+
+    // Küszöb felett a gyorsabb nyer, alatta a pontosabb
+
+    private static boolean isBetter(Measurement candidate, Measurement best)
+    {
+        boolean candidateOk = candidate.getAccuracy() >= MIN_ACCURACY;
+        boolean bestOk = best.getAccuracy() >= MIN_ACCURACY;
+        if (candidateOk != bestOk)
+        {
+            return candidateOk;
+        }
+        if (candidateOk)
+        {
+            return candidate.getAverageMillis() < best.getAverageMillis();
+        }
+        return candidate.getAccuracy() > best.getAccuracy();
+    }
+
+    // Mintakészlet: a kódok mérete, helye, elmosása és zaja rögzített seed-ből jön,
+    // így minden indulás ugyanazokon a képeken mér. A képek 1 csatornás szürkék, mint a
+    // kamera ciklusban a dekódernek átadott fényesség (Y) csatorna
+
+    static void createSamples(List<Mat> frames, List<String> expected)
+    {
+        Random random = new Random(42);
+        QRCodeWriter writer = new QRCodeWriter();
+
+        for (int i = 0; i < CODE_SAMPLES + EMPTY_SAMPLES; i++)
+        {
+            Mat gray = new Mat(FRAME_HEIGHT, FRAME_WIDTH, CvType.CV_8UC1, new Scalar(180 + random.nextInt(60)));
+            String text = null;
+
+            if (i < CODE_SAMPLES)
+            {
+                text = String.format("Name=Kalibráció Árvíztűrő %d;Major=Mérnökinformatikus;Neptun=CAL%03d", i, i);
+                int size = 140 + random.nextInt(200);
+                drawCode(gray, writer, text, size,
+                        random.nextInt(FRAME_WIDTH - size), random.nextInt(FRAME_HEIGHT - size));
+            }
+
+            Imgproc.GaussianBlur(gray, gray, new Size(0, 0), 0.5 + random.nextDouble());
+            Mat noise = new Mat(gray.size(), CvType.CV_8UC1);
+            Core.randn(noise, 0, 6);
+            Core.add(gray, noise, gray);
+            noise.release();
+
+            frames.add(gray);
+            expected.add(text);
+        }
+    }
+
+    static void drawCode(Mat gray, QRCodeWriter writer, String text, int size, int left, int top)
+    {
+        try
+        {
+            BitMatrix matrix = writer.encode(text, BarcodeFormat.QR_CODE, size, size,
+                    Map.of(EncodeHintType.CHARACTER_SET, "UTF-8"));
+            byte[] row = new byte[size];
+            for (int y = 0; y < size; y++)
+            {
+                gray.get(top + y, left, row);
+                for (int x = 0; x < size; x++)
+                {
+                    if (matrix.get(x, y))
+                    {
+                        row[x] = 20;
+                    }
+                }
+                gray.put(top + y, left, row);
+            }
+        }
+        catch (WriterException e)
+        {
+            System.err.println("Kalibrációs minta hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.university.attendance;
+
+import javafx.animation.PauseTransition;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.util.Duration;
+
+import java.util.function.Consumer;
+
+/**
+ * Billentyű szintű bemenet rögzítés USB (HID wedge) vonalkód olvasóhoz
+ *
+ * Az olvasó billentyűzetként gépel, de sokkal gyorsabban, mint egy ember: a karakterek
+ * között néhány ms telik el. A két billentyű közötti idő alapján különválasztjuk az olvasó
+ * "sorozatát" a kézi gépeléstől, és a sorozatot a mező tartalmától függetlenül, egészben adjuk
+ * tovább - így az egymás után érkező beolvasások nem keverednek össze a mezőben.
+ *
+ * Egy kód vége: Enter/Tab, vagy ha a gyors sorozat után csend következik (végjel nélküli olvasók).
+ * Kézi gépelésnél az Enter a mező tartalmát küldi tovább, ahogy eddig.
+ *
+ * Csak az FX szálon használható.
+ */
+public class KeystrokeBurstCapture
+{
+    // Ennél rövidebb billentyűköz esetén a karakter az olvasó sorozatához tartozik
+    public static final long BURST_KEY_GAP_MS = 35;
+
+    // Ennél rövidebb sorozat nem lehet vonalkód (a Neptun kód 6 karakter)
+    public static final int MIN_BURST_LENGTH = 4;
+
+    // Végjel nélküli olvasónál ennyi csend zárja le a sorozatot
+    private static final long BURST_IDLE_MS = 80;
+
+    /**
+     * Egy lezárt bemenet (beolvasott vagy begépelt kód)
+     */
+    public static class CapturedCode
+    {
+        private final String text;
+        private final boolean scannerBurst;
+        private final long firstKeyNanos;
+        private final long completedNanos;
+
+        public CapturedCode(String text, boolean scannerBurst, long firstKeyNanos, long completedNanos)
+        {
+            this.text = text;
+            this.scannerBurst = scannerBurst;
+            this.firstKeyNanos = firstKeyNanos;
+            this.completedNanos = completedNanos;
+        }
+
+        public String getText()
+        {
+            return text;
+        }
+
+        /**
+         * true: olvasó sorozat, false: kézi gépelés
+         */
+        public boolean isScannerBurst()
+        {
+            return scannerBurst;
+        }
+
+        /**
+         * Az első karakter ideje (System.nanoTime); kézi gépelésnél az Enter ideje
+         */
+        public long getFirstKeyNanos()
+        {
+            return firstKeyNanos;
+        }
+
+        /**
+         * A lezárás (végjel vagy csend) ideje (System.nanoTime)
+         */
+        public long getCompletedNanos()
+        {
+            return completedNanos;
+        }
+    }
+
+    private final Consumer<CapturedCode> sink;
+    private final StringBuilder burst = new StringBuilder();
+    private final PauseTransition idleTimer = new PauseTransition(Duration.millis(BURST_IDLE_MS));
+    private TextField field;
+    private long burstStartNanos;
+    private long lastKeyNanos;
+
+    /**
+     * @param sink Ide kerül minden lezárt kód (FX szálon hívódik, nem blokkolhat)
+     */
+    public KeystrokeBurstCapture(Consumer<CapturedCode> sink)
+    {
+        this.sink = sink;
+        idleTimer.setOnFinished(e -> flushBurst(System.nanoTime()));
+    }
+
+    /**
+     * Rögzítés bekapcsolása a mezőn (a mező onAction eseménye helyett)
+     */
+    public void attach(TextField field)
+    {
+        this.field = field;
+        field.addEventFilter(KeyEvent.KEY_TYPED, this::onKeyTyped);
+        field.addEventFilter(KeyEvent.KEY_PRESSED, this::onKeyPressed);
+    }
+
+    private void onKeyTyped(KeyEvent event)
+    {
+        String character = event.getCharacter();
+        if (character.isEmpty() || Character.isISOControl(character.charAt(0)))
+        {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (burst.length() == 0 || now - lastKeyNanos > BURST_KEY_GAP_MS * 1_000_000)
+        {
+            // Lassú billentyűköz: új sorozat kezdődik (a régi kézi gépelés volt)
+            burst.setLength(0);
+            burstStartNanos = now;
+        }
+        burst.append(character);
+        lastKeyNanos = now;
+        idleTimer.playFromStart();
+    }
+
+    private void onKeyPressed(KeyEvent event)
+    {
+        if (event.getCode() != KeyCode.ENTER && event.getCode() != KeyCode.TAB)
+        {
+            return;
+        }
+        long now = System.nanoTime();
+        idleTimer.stop();
+
+        if (flushBurst(now))
+        {
+            event.consume();
+        }
+        else if (event.getCode() == KeyCode.ENTER)
+        {
+            event.consume();
+            // Kézi gépelés: a mező teljes tartalma (javításokkal együtt) a kód
+            String text = field.getText().trim();
+            field.clear();
+            burst.setLength(0);
+            if (!text.isEmpty())
+            {
+                sink.accept(new CapturedCode(text, false, now, now));
+            }
+        }
+    }
+
+    // Gyors sorozat lezárása és kivétele a mezőből (a kézi gépelés többi része megmarad)
+    // return: true ha volt elég hosszú olvasó sorozat
+
+    private boolean flushBurst(long now)
+    {
+        if (burst.length() < MIN_BURST_LENGTH || now - lastKeyNanos > (BURST_IDLE_MS + BURST_KEY_GAP_MS) * 1_000_000)
+        {
+            return false;
+        }
+
+        String code = burst.toString();
+        burst.setLength(0);
+
+        String text = field.getText();
+        int index = text.lastIndexOf(code);
+        if (index >= 0)
+        {
+            field.setText(text.substring(0, index) + text.substring(index + code.length()));
+            field.positionCaret(field.getText().length());
+        }
+
+        sink.accept(new CapturedCode(code.trim(), true, burstStartNanos, now));
+        return true;
+    }
+}
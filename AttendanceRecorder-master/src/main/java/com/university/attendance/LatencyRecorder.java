@@ -0,0 +1,77 @@
+package com.university.attendance;
+
+import java.util.Arrays;
+
+/**
+ * Késleltetés mérések gyűjtése (pl. billentyűzés -> visszajelzés)
+ *
+ * Az utolsó {@code capacity} mérést tartja egy gyűrűben, ebből számol percentilist;
+ * a darabszám és a maximum a teljes futásra vonatkozik. Szálbiztos.
+ */
+public class LatencyRecorder
+{
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long count;
+    private long maxNanos;
+
+    /**
+     * @param capacity Ennyi legutóbbi mérésből számol percentilist
+     */
+    public LatencyRecorder(int capacity)
+    {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Egy mérés rögzítése nanoszekundumban
+     */
+    public synchronized void record(long nanos)
+    {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+        count++;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * Az összes eddigi mérés száma
+     */
+    public synchronized long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * A leghosszabb mérés ezredmásodpercben
+     */
+    public synchronized double getMaxMillis()
+    {
+        return maxNanos / 1_000_000.0;
+    }
+
+    /**
+     * Percentilis a legutóbbi mérésekből ezredmásodpercben (pl. 50, 95, 99)
+     * @return 0, ha még nincs mérés
+     */
+    public synchronized double getPercentileMillis(double percentile)
+    {
+        if (size == 0)
+        {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(index, size - 1))] / 1_000_000.0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("n=%d, p50=%.1f ms, p95=%.1f ms, p99=%.1f ms, max=%.1f ms",
+                getCount(), getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99), getMaxMillis());
+    }
+}
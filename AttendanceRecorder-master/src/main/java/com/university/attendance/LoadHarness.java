@@ -0,0 +1,570 @@
+package com.university.attendance;
+
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Terheléses és tartós (soak) teszt egy óra eleji bejelentkezési rohammal
+ *
+ * Ideiglenes SQLite adatbázisban létrehozza a hallgatókat, majd lejátszik egy rohamot: a
+ * hallgatók kis csoportokban érkeznek, egyre sűrűbben az óra kezdete felé, egy részük
+ * röviddel később újra beolvastatja a kódját. Az érkezések egy része vonalkód olvasón jön
+ * (BarcodeScanner.processCodeData), a többi kamerán: szintetikus képkocka a hallgató QR
+ * kódjával, fényesség csatorna, QR dekódolás, majd az alkalmazás kamerás útja
+ * (BarcodeScanner.processCameraCode: naplózás és a jelenléti alkalmak lekérése a kijelzéshez). Mellette fut a
+ * statisztika, a keresőindex, a jelenléti bitmap és az eseménybusz, ahogy az alkalmazásban.
+ *
+ * A késés az ütemezett érkezéstől a beolvasás visszaigazolásáig tart (napló + eredmény
+ * esemény), így a feltorlódott sor várakozása is beleszámít. A jelentés: p50 / p99 / p99.9
+ * késés, áteresztés (átlag és 10 másodperces csúcs), GC szünetek, heap és natív memória.
+ * Az alkalmazás konzol naplója az ideiglenes mappába kerül.
+ *
+ * Tartós mód (--soak óra): a rohamok egymás után ismétlődnek, mindegyik egy új napon, és
+ * rohamonként kiírja a késést és a memóriát; a végén a GC utáni heap és az RSS trendje.
+ *
+ * Futtatás: java -cp ... com.university.attendance.LoadHarness [hallgatók] [perc]
+ *           [ismétlés %] [kamera %] [--soak óra]
+ */
+public class LoadHarness
+{
+    // Csoportos érkezés: a következő hallgató ekkora eséllyel tart az előzővel (átlag ~2,5 fő)
+    private static final double GROUP_CONTINUE = 0.6;
+    private static final int MAX_GROUP = 8;
+
+    // Két egymás után érkező hallgató között az olvasónál 1-3 másodperc telik el
+    private static final long PERSON_GAP_MIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final long PERSON_GAP_RANGE_NANOS = TimeUnit.MILLISECONDS.toNanos(2000);
+
+    // Az ismételt beolvasás 2-20 másodperccel az első után jön (nem látta a visszajelzést)
+    private static final long REPEAT_MIN_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long REPEAT_RANGE_NANOS = TimeUnit.SECONDS.toNanos(18);
+
+    // Áteresztés csúcs ablaka
+    private static final long THROUGHPUT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    // Ennyi ideig várunk a roham után a még feldolgozás alatt álló beolvasásokra
+    private static final long DRAIN_TIMEOUT_SECONDS = 120;
+
+    private static final int FRAME_WIDTH = 640;
+    private static final int FRAME_HEIGHT = 480;
+
+    private static final String[] MAJORS = {
+        "Mérnökinformatikus", "Gazdaságinformatikus", "Villamosmérnök",
+        "Gépészmérnök", "Programtervező informatikus"
+    };
+
+    public static void main(String[] args) throws Exception
+    {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        double minutes = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        double repeatShare = args.length > 2 ? Double.parseDouble(args[2]) / 100 : 0.15;
+        double cameraShare = args.length > 3 ? Double.parseDouble(args[3]) / 100 : 0.5;
+        double soakHours = args.length > 5 && args[4].equals("--soak") ? Double.parseDouble(args[5]) : 0;
+
+        PrintStream out = System.out;
+        Path dir = Files.createTempDirectory("attendance-load");
+        long windowNanos = (long) (minutes * TimeUnit.MINUTES.toNanos(1));
+        Random random = new Random(42);
+
+        out.printf("Roham: %,d hallgató, %.1f perc, %.0f%% ismételt, %.0f%% kamera (mappa: %s)%n",
+                students, minutes, repeatShare * 100, cameraShare * 100, dir);
+
+        OpenCVLoader.ensureLoaded();
+        try (GcMonitor gc = new GcMonitor(); Kiosk kiosk = new Kiosk(dir, students, out))
+        {
+            if (soakHours <= 0)
+            {
+                RushResult result = kiosk.run(createRush(students, windowNanos, repeatShare, cameraShare, random), null);
+                result.print(out);
+                printResources(out, gc);
+                out.println("Beolvasások:");
+                out.println(kiosk.metrics.summary());
+                out.println(kiosk.eventBus.summary());
+                return;
+            }
+
+            long durationNanos = (long) (soakHours * TimeUnit.HOURS.toNanos(1));
+            List<long[]> heapSamples = new ArrayList<>(); // [eltelt ns, bájt]
+            List<long[]> rssSamples = new ArrayList<>();
+            LatencyRecorder overall = new LatencyRecorder(1 << 16);
+            long start = System.nanoTime();
+            long elapsed;
+            int day = 0;
+
+            out.printf("Tartós futás: %.1f óra%n", soakHours);
+            while ((elapsed = System.nanoTime() - start) < durationNanos)
+            {
+                kiosk.scanner.setClock(Clock.offset(Clock.systemDefaultZone(), Duration.ofDays(day++)));
+                RushResult result = kiosk.run(createRush(students, windowNanos, repeatShare, cameraShare, random), overall);
+
+                elapsed = System.nanoTime() - start;
+                long heap = gc.getHeapAfterGc();
+                long rss = NativeMemory.readRssBytes();
+                heapSamples.add(new long[] {elapsed, heap});
+                rssSamples.add(new long[] {elapsed, rss});
+                out.printf("%6.1f perc  %4d. roham  %s  GC után heap: %s  %s%n", elapsed / 60e9, day,
+                        formatLatency(result.all), StorageReport.formatBytes(heap), NativeMemory.summary());
+            }
+
+            out.println("Összes visszaigazolás: " + formatLatency(overall));
+            printResources(out, gc);
+            CaptureSoak.printTrend(out, "GC utáni heap", heapSamples, durationNanos);
+            CaptureSoak.printTrend(out, "RSS", rssSamples, durationNanos);
+        }
+        finally
+        {
+            StorageBenchmark.deleteAll(dir.toFile());
+        }
+    }
+
+    // Egy érkezés a rohamban
+
+    private static class Arrival
+    {
+        final long offsetNanos;
+        final int student;
+        final boolean camera;
+
+        Arrival(long offsetNanos, int student, boolean camera)
+        {
+            this.offsetNanos = offsetNanos;
+            this.student = student;
+            this.camera = camera;
+        }
+    }
+
+    // Roham: csoportok érkezése lineárisan növekvő sűrűséggel (sqrt), a csoporton belül
+    // egymás után az olvasóhoz; egy részük később ugyanazon az úton újra próbálkozik
+
+    private static List<Arrival> createRush(int students, long windowNanos, double repeatShare, double cameraShare,
+                                            Random random)
+    {
+        List<Integer> order = new ArrayList<>(students);
+        for (int i = 0; i < students; i++)
+        {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+
+        List<Arrival> arrivals = new ArrayList<>();
+        int next = 0;
+        while (next < order.size())
+        {
+            long time = (long) (windowNanos * Math.sqrt(random.nextDouble()));
+            int groupSize = 1;
+            while (groupSize < MAX_GROUP && random.nextDouble() < GROUP_CONTINUE)
+            {
+                groupSize++;
+            }
+            for (int g = 0; g < groupSize && next < order.size(); g++)
+            {
+                int student = order.get(next++);
+                boolean camera = random.nextDouble() < cameraShare;
+                arrivals.add(new Arrival(time, student, camera));
+                if (random.nextDouble() < repeatShare)
+                {
+                    arrivals.add(new Arrival(time + REPEAT_MIN_NANOS + (long) (random.nextDouble() * REPEAT_RANGE_NANOS),
+                            student, camera));
+                }
+                time += PERSON_GAP_MIN_NANOS + (long) (random.nextDouble() * PERSON_GAP_RANGE_NANOS);
+            }
+        }
+        arrivals.sort(Comparator.comparingLong(arrival -> arrival.offsetNanos));
+        return arrivals;
+    }
+
+    // A kioszk összes komponense egy ideiglenes adatbázison, az alkalmazással azonos bekötéssel
+
+    private static class Kiosk implements AutoCloseable
+    {
+        final DatabaseManager dbManager;
+        final ScanExecutor scanExecutor;
+        final ScanEventBus eventBus = new ScanEventBus();
+        final ScanMetrics metrics = new ScanMetrics();
+        final ScanAuditLog auditLog;
+        final ScanJournal scanJournal;
+        final BarcodeScanner scanner;
+        final PrintStream console;
+        final PrintStream appLog;
+
+        final MatPool framePool = new MatPool(2);
+        final CameraCapture capture = new CameraCapture(framePool);
+        final QRCodeDecoder decoder;
+        final QRCodeWriter writer = new QRCodeWriter();
+        final Mat gray = new Mat(FRAME_HEIGHT, FRAME_WIDTH, CvType.CV_8UC1);
+        final Mat frame = new Mat();
+        final Random random = new Random(7);
+
+        final String[] neptuns;
+        final String[] qrTexts;
+
+        Kiosk(Path dir, int students, PrintStream out) throws IOException, SQLException
+        {
+            // Az alkalmazás konzol naplója ne keveredjen a jelentéssel
+            console = out;
+            appLog = new PrintStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve("app.log"))), false, "UTF-8");
+            System.setOut(appLog);
+
+            long setupStart = System.nanoTime();
+            dbManager = new DatabaseManager("jdbc:sqlite:" + dir.resolve("attendance.db"));
+            dbManager.initDatabase();
+            neptuns = new String[students];
+            qrTexts = new String[students];
+            for (int i = 0; i < students; i++)
+            {
+                String name = "Terhelés Hallgató " + i;
+                String major = MAJORS[i % MAJORS.length];
+                neptuns[i] = String.format("LD%04d", i);
+                qrTexts[i] = "Name=" + name + ";Major=" + major + ";Neptun=" + neptuns[i];
+                dbManager.insertStudent(name, major, neptuns[i]);
+            }
+
+            scanExecutor = new ScanExecutor(DatabaseManager.READER_POOL_SIZE + 1);
+            StatisticsEngine statistics = new StatisticsEngine();
+            statistics.load(dbManager);
+            dbManager.addAttendanceListener(statistics::onAttendanceRecorded);
+            SearchIndex searchIndex = new SearchIndex();
+            searchIndex.load(dbManager);
+            dbManager.addAttendanceListener(searchIndex::onAttendanceRecorded);
+            AttendanceBitmapIndex bitmapIndex = new AttendanceBitmapIndex();
+            bitmapIndex.load(dbManager);
+            dbManager.addAttendanceListener(bitmapIndex::onAttendanceRecorded);
+
+            eventBus.subscribe("metrikák", 1024, ScanEventBus.OverflowPolicy.DROP_NEWEST, metrics);
+            auditLog = new ScanAuditLog(dir.resolve("attendance-audit.log"));
+            eventBus.subscribe("audit", 4096, ScanEventBus.OverflowPolicy.DROP_NEWEST, auditLog);
+            scanJournal = new ScanJournal(dir.resolve("attendance.journal"), dbManager);
+            scanner = new BarcodeScanner(dbManager, scanJournal, scanExecutor, eventBus, message -> { });
+            decoder = new QRCodeDecoder(new ZXingDecoderBackend(), QRCodeDecoder.DEFAULT_ENHANCEMENT_THREADS);
+
+            out.printf("Előkészítés: %.1f s%n", (System.nanoTime() - setupStart) / 1e9);
+        }
+
+        // Egy roham lejátszása: a vonalkódos érkezéseket ez a szál, a kamerásakat egy külön
+        // "kamera" szál indítja az ütemezett időpontban (a képkocka előre elkészül)
+
+        RushResult run(List<Arrival> arrivals, LatencyRecorder overall) throws InterruptedException
+        {
+            RushResult result = new RushResult(arrivals.size(), overall);
+            CountDownLatch finished = new CountDownLatch(arrivals.size());
+            List<Arrival> cameraArrivals = new ArrayList<>();
+            for (Arrival arrival : arrivals)
+            {
+                if (arrival.camera)
+                {
+                    cameraArrivals.add(arrival);
+                }
+            }
+            long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+
+            Thread camera = new Thread(() ->
+            {
+                for (Arrival arrival : cameraArrivals)
+                {
+                    renderFrame(qrTexts[arrival.student]);
+                    long scheduled = start + arrival.offsetNanos;
+                    sleepUntil(scheduled);
+                    capture.load(frame);
+                    String text = decoder.decode(capture.getLuminance());
+                    if (text == null)
+                    {
+                        result.decodeFailures.incrementAndGet();
+                        finished.countDown();
+                        continue;
+                    }
+                    confirm(scanner.processCameraCode(text), result, result.camera, scheduled, finished);
+                }
+            }, "load-camera");
+            camera.setDaemon(true);
+            camera.start();
+
+            for (Arrival arrival : arrivals)
+            {
+                if (arrival.camera)
+                {
+                    continue;
+                }
+                long scheduled = start + arrival.offsetNanos;
+                sleepUntil(scheduled);
+                confirm(scanner.processCodeData(neptuns[arrival.student], ScanEvent.Source.BARCODE), result,
+                        result.barcode, scheduled, finished);
+            }
+
+            camera.join();
+            if (!finished.await(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            {
+                System.err.println("Terheléses teszt: " + finished.getCount() + " beolvasás nem fejeződött be időben");
+            }
+            result.elapsedNanos = System.nanoTime() - start;
+            appLog.flush();
+            return result;
+        }
+
+        private void confirm(CompletableFuture<?> future, RushResult result,
+                             LatencyRecorder byPath, long scheduled, CountDownLatch finished)
+        {
+            future.whenComplete((v, error) ->
+            {
+                long now = System.nanoTime();
+                if (error != null)
+                {
+                    result.errors.incrementAndGet();
+                }
+                else
+                {
+                    result.record(byPath, scheduled, now);
+                }
+                finished.countDown();
+            });
+        }
+
+        // Szintetikus képkocka: világos háttér, véletlen méretű és helyű QR kód, BGR formátumban
+
+        private void renderFrame(String text)
+        {
+            gray.setTo(new Scalar(190 + random.nextInt(50)));
+            int size = 160 + random.nextInt(160);
+            DecoderCalibration.drawCode(gray, writer, text, size,
+                    random.nextInt(FRAME_WIDTH - size), random.nextInt(FRAME_HEIGHT - size));
+            Imgproc.cvtColor(gray, frame, Imgproc.COLOR_GRAY2BGR);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            scanExecutor.close();
+            eventBus.close();
+            auditLog.close();
+            scanJournal.close();
+            dbManager.close();
+            decoder.close();
+            capture.close();
+            gray.release();
+            frame.release();
+            framePool.close();
+            System.setOut(console);
+            appLog.close();
+        }
+    }
+
+    // Egy roham mérései
+
+    private static class RushResult
+    {
+        final LatencyRecorder all;
+        final LatencyRecorder barcode;
+        final LatencyRecorder camera;
+        final long[] completedAt;
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong decodeFailures = new AtomicLong();
+        final int arrivals;
+        final LatencyRecorder overall;
+        long elapsedNanos;
+
+        // overall: a tartós futás összesítője (null, ha nincs)
+        RushResult(int arrivals, LatencyRecorder overall)
+        {
+            this.arrivals = arrivals;
+            this.overall = overall;
+            this.all = new LatencyRecorder(Math.max(1, arrivals));
+            this.barcode = new LatencyRecorder(Math.max(1, arrivals));
+            this.camera = new LatencyRecorder(Math.max(1, arrivals));
+            this.completedAt = new long[arrivals];
+        }
+
+        void record(LatencyRecorder byPath, long scheduled, long now)
+        {
+            all.record(now - scheduled);
+            byPath.record(now - scheduled);
+            if (overall != null)
+            {
+                overall.record(now - scheduled);
+            }
+            int index = (int) completed.getAndIncrement();
+            if (index < completedAt.length)
+            {
+                completedAt[index] = now;
+            }
+        }
+
+        void print(PrintStream out)
+        {
+            out.printf("Kész: %,d / %,d beolvasás %.1f s alatt, hiba: %d, sikertelen dekódolás: %d%n",
+                    completed.get(), arrivals, elapsedNanos / 1e9, errors.get(), decodeFailures.get());
+            out.println("Visszaigazolási késés (érkezés -> eredmény):");
+            out.println("  összes:   " + formatLatency(all));
+            out.println("  vonalkód: " + formatLatency(barcode));
+            out.println("  kamera:   " + formatLatency(camera));
+
+            // Csúcs áteresztés: a legtöbb visszaigazolás egy 10 másodperces ablakban
+            int count = (int) Math.min(completed.get(), completedAt.length);
+            long[] times = Arrays.copyOf(completedAt, count);
+            Arrays.sort(times);
+            int peak = 0;
+            for (int i = 0, j = 0; i < times.length; i++)
+            {
+                while (times[i] - times[j] >= THROUGHPUT_WINDOW_NANOS)
+                {
+                    j++;
+                }
+                peak = Math.max(peak, i - j + 1);
+            }
+            double perMinute = 60e9 / THROUGHPUT_WINDOW_NANOS;
+            out.printf("Áteresztés: átlag %.0f beolvasás/perc, csúcs %.0f beolvasás/perc (10 s ablak)%n",
+                    count * 60e9 / Math.max(1, elapsedNanos), peak * perMinute);
+        }
+    }
+
+    private static String formatLatency(LatencyRecorder latency)
+    {
+        return String.format("n=%,d, p50=%.1f ms, p99=%.1f ms, p99.9=%.1f ms, max=%.1f ms", latency.getCount(),
+                latency.getPercentileMillis(50), latency.getPercentileMillis(99), latency.getPercentileMillis(99.9),
+                latency.getMaxMillis());
+    }
+
+    private static void printResources(PrintStream out, GcMonitor gc)
+    {
+        Runtime runtime = Runtime.getRuntime();
+        out.printf("GC szünetek: %,d, összesen %.0f ms, p99=%.1f ms, max=%.1f ms%n", gc.pauses.getCount(),
+                gc.totalPauseNanos.get() / 1e6, gc.pauses.getPercentileMillis(99), gc.pauses.getMaxMillis());
+        out.printf("Heap: %s használt / %s foglalt, GC után: %s%n",
+                StorageReport.formatBytes(runtime.totalMemory() - runtime.freeMemory()),
+                StorageReport.formatBytes(runtime.totalMemory()), StorageReport.formatBytes(gc.getHeapAfterGc()));
+        out.println(NativeMemory.summary());
+    }
+
+    // GC szünetek gyűjtése a JVM értesítéseiből (a párhuzamos, nem megállító ciklusok nélkül)
+
+    private static class GcMonitor implements NotificationListener, AutoCloseable
+    {
+        final LatencyRecorder pauses = new LatencyRecorder(4096);
+        final AtomicLong totalPauseNanos = new AtomicLong();
+        private final Set<String> heapPools = new HashSet<>();
+        private volatile long heapAfterGc;
+
+        GcMonitor()
+        {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+            {
+                if (pool.getType() == MemoryType.HEAP)
+                {
+                    heapPools.add(pool.getName());
+                }
+            }
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            {
+                if (collector instanceof NotificationEmitter)
+                {
+                    ((NotificationEmitter) collector).addNotificationListener(this, null, null);
+                }
+            }
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback)
+        {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+            {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            long used = 0;
+            for (Map.Entry<String, MemoryUsage> pool : info.getGcInfo().getMemoryUsageAfterGc().entrySet())
+            {
+                if (heapPools.contains(pool.getKey()))
+                {
+                    used += pool.getValue().getUsed();
+                }
+            }
+            heapAfterGc = used;
+            if (info.getGcName().contains("Concurrent"))
+            {
+                return;
+            }
+            long nanos = TimeUnit.MILLISECONDS.toNanos(info.getGcInfo().getDuration());
+            pauses.record(nanos);
+            totalPauseNanos.addAndGet(nanos);
+        }
+
+        // A legutóbbi GC után foglalt heap (fiatal GC-nél az old gen aktuális foglaltságával együtt)
+
+        long getHeapAfterGc()
+        {
+            return heapAfterGc;
+        }
+
+        @Override
+        public void close()
+        {
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+            {
+                if (collector instanceof NotificationEmitter)
+                {
+                    try
+                    {
+                        ((NotificationEmitter) collector).removeNotificationListener(this);
+                    }
+                    catch (ListenerNotFoundException e)
+                    {
+                        // Nem volt feliratkozva
+                    }
+                }
+            }
+        }
+    }
+
+    private static void sleepUntil(long deadline)
+    {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0)
+        {
+            return;
+        }
+        try
+        {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
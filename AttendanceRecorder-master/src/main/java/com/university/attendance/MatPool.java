@@ -0,0 +1,146 @@
+package com.university.attendance;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Újrahasznosítható OpenCV Mat készlet
+ *
+ * A képkockánként létrehozott és eldobott Mat-ok natív puffere csak felszabadításkor (vagy a
+ * Java objektum véglegesítésekor, bizonytalan időpontban) kerül vissza, így a folyamatos
+ * kamerakép mellett a natív memória a GC számára láthatatlanul nő. A készlet méret és típus
+ * szerint tartja a visszaadott Mat-okat, a következő azonos méretű kérés ezeket kapja meg.
+ *
+ * Életciklus: {@link #acquire} után minden Mat-ot pontosan egyszer vissza kell adni
+ * {@link #release}-szel (try/finally). A {@link #close()} felszabadítja a tartalékot; a
+ * lezárás után visszaadott Mat-ok azonnal felszabadulnak. Szálbiztos.
+ */
+public class MatPool implements AutoCloseable
+{
+    // Ennyi szabad Mat marad meg méretenként, a többlet felszabadul
+    private final int maxIdlePerShape;
+
+    private final Map<Long, ArrayDeque<Mat>> idle = new HashMap<>();
+
+    // A készletből kiadott vagy benne tartott Mat-ok nyilvántartott mérete
+    private final Map<Mat, Long> accounted = new IdentityHashMap<>();
+
+    private boolean closed;
+
+    public MatPool(int maxIdlePerShape)
+    {
+        this.maxIdlePerShape = maxIdlePerShape;
+    }
+
+    /**
+     * Adott méretű és típusú Mat (a tartalma nem definiált, a hívó felülírja)
+     */
+    public synchronized Mat acquire(int rows, int cols, int type)
+    {
+        ArrayDeque<Mat> free = idle.get(key(rows, cols, type));
+        if (free != null && !free.isEmpty())
+        {
+            return free.pop();
+        }
+
+        Mat mat = new Mat(rows, cols, type);
+        long bytes = bytes(mat);
+        accounted.put(mat, bytes);
+        NativeMemory.allocated(bytes);
+        return mat;
+    }
+
+    /**
+     * Mat visszaadása a készletbe (ha közben az OpenCV más méretre foglalta újra, az új
+     * méret szerint kerül vissza)
+     */
+    public synchronized void release(Mat mat)
+    {
+        if (mat == null)
+        {
+            return;
+        }
+        if (!accounted.containsKey(mat))
+        {
+            long bytes = bytes(mat);
+            accounted.put(mat, bytes);
+            NativeMemory.allocated(bytes);
+        }
+        updateSize(mat);
+
+        if (!closed && !mat.empty())
+        {
+            ArrayDeque<Mat> free = idle.computeIfAbsent(key(mat.rows(), mat.cols(), mat.type()), k -> new ArrayDeque<>());
+            if (free.size() < maxIdlePerShape)
+            {
+                free.push(mat);
+                return;
+            }
+        }
+        free(mat);
+    }
+
+    /**
+     * Egy kiadott, tartósan használt Mat nyilvántartott méretének frissítése, ha az OpenCV
+     * közben más méretre foglalta újra (pl. copyTo, read vagy színkonverzió a célba)
+     */
+    public synchronized void updateSize(Mat mat)
+    {
+        Long previous = accounted.get(mat);
+        if (previous == null)
+        {
+            return;
+        }
+        long bytes = bytes(mat);
+        if (previous != bytes)
+        {
+            accounted.put(mat, bytes);
+            NativeMemory.resized(bytes - previous);
+        }
+    }
+
+    /**
+     * A kiadott és a készletben tartott Mat-ok száma
+     */
+    public synchronized int size()
+    {
+        return accounted.size();
+    }
+
+    /**
+     * A tartalék felszabadítása
+     */
+    @Override
+    public synchronized void close()
+    {
+        closed = true;
+        for (ArrayDeque<Mat> free : idle.values())
+        {
+            for (Mat mat : free)
+            {
+                free(mat);
+            }
+        }
+        idle.clear();
+    }
+
+    private void free(Mat mat)
+    {
+        NativeMemory.released(accounted.remove(mat));
+        mat.release();
+    }
+
+    private static long key(int rows, int cols, int type)
+    {
+        return ((long) rows << 40) | ((long) cols << 16) | type;
+    }
+
+    private static long bytes(Mat mat)
+    {
+        return mat.total() * mat.elemSize();
+    }
+}
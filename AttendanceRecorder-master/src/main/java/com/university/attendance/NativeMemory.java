@@ -0,0 +1,100 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Natív (OpenCV) memória nyilvántartás
+ *
+ * A Mat adatpufferek a Java heapen kívül vannak, így a GC nem látja őket: ha egy Mat nem
+ * kerül felszabadításra, a folyamat memóriája (RSS) lassan nő, miközben a heap üres.
+ * A MatPool-on keresztül lefoglalt pufferek mérete itt összegződik; a folyamat teljes
+ * memóriája Linuxon a /proc/self/status VmRSS sorából olvasható.
+ */
+public final class NativeMemory
+{
+    private static final AtomicLong bytesInUse = new AtomicLong();
+    private static final AtomicLong peakBytes = new AtomicLong();
+    private static final AtomicLong matsInUse = new AtomicLong();
+
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+
+    private NativeMemory()
+    {
+    }
+
+    static void allocated(long bytes)
+    {
+        matsInUse.incrementAndGet();
+        resized(bytes);
+    }
+
+    static void released(long bytes)
+    {
+        matsInUse.decrementAndGet();
+        bytesInUse.addAndGet(-bytes);
+    }
+
+    // Egy nyilvántartott Mat mérete megváltozott (pl. az OpenCV művelet újrafoglalta)
+
+    static void resized(long delta)
+    {
+        long current = bytesInUse.addAndGet(delta);
+        peakBytes.accumulateAndGet(current, Math::max);
+    }
+
+    /**
+     * A nyilvántartott natív pufferek mérete bájtban
+     */
+    public static long getBytesInUse()
+    {
+        return bytesInUse.get();
+    }
+
+    public static long getPeakBytes()
+    {
+        return peakBytes.get();
+    }
+
+    public static long getMatsInUse()
+    {
+        return matsInUse.get();
+    }
+
+    /**
+     * A folyamat rezidens memóriája (RSS) bájtban, -1 ha nem olvasható (nem Linux)
+     */
+    public static long readRssBytes()
+    {
+        try
+        {
+            for (String line : Files.readAllLines(PROC_STATUS))
+            {
+                if (line.startsWith("VmRSS:"))
+                {
+                    // Formátum: "VmRSS:	  123456 kB"
+                    String value = line.substring(6).trim();
+                    return Long.parseLong(value.substring(0, value.indexOf(' '))) * 1024;
+                }
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            // Nem Linux, vagy nem olvasható
+        }
+        return -1;
+    }
+
+    /**
+     * Egysoros összefoglaló naplózáshoz
+     */
+    public static String summary()
+    {
+        long rss = readRssBytes();
+        return String.format("Natív pufferek: %s (csúcs: %s, %d Mat), RSS: %s",
+                StorageReport.formatBytes(getBytesInUse()), StorageReport.formatBytes(getPeakBytes()),
+                getMatsInUse(), rss < 0 ? "n/a" : StorageReport.formatBytes(rss));
+    }
+}
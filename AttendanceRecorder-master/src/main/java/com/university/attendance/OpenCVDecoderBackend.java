@@ -0,0 +1,27 @@
+package com.university.attendance;
+
+import org.opencv.core.Mat;
+import org.opencv.objdetect.QRCodeDetector;
+
+/**
+ * OpenCV QRCodeDetector alapú dekódolás: közvetlenül a natív Mat-on fut, másolás nélkül
+ */
+public class OpenCVDecoderBackend implements QRDecoderBackend
+{
+    // A natív detektor nem szálbiztos, ezért szálanként egy példány
+    private final ThreadLocal<QRCodeDetector> detectors = ThreadLocal.withInitial(QRCodeDetector::new);
+
+    @Override
+    public String getName()
+    {
+        return "opencv";
+    }
+
+    @Override
+    public String decode(Mat frame)
+    {
+        String text = detectors.get().detectAndDecode(frame);
+        // Üres szöveg: nincs kód, vagy megtalálta, de nem tudta kiolvasni
+        return text == null || text.isEmpty() ? null : text;
+    }
+}
@@ -0,0 +1,32 @@
+package com.university.attendance;
+
+/**
+ * Az OpenCV natív könyvtár késleltetett betöltése
+ *
+ * A betöltés (kicsomagolás + System.load) csak az első kamera indításkor történik meg,
+ * így a csak vonalkód olvasót használó kioszk nem fizeti meg az árát.
+ */
+public final class OpenCVLoader
+{
+    private static boolean loaded = false;
+
+    private OpenCVLoader()
+    {
+    }
+
+    /**
+     * Betöltés, ha még nem történt meg (többszöri hívás esetén csak az első tölt)
+     */
+    public static synchronized void ensureLoaded()
+    {
+        if (loaded)
+        {
+            return;
+        }
+        long start = System.nanoTime();
+        nu.pattern.OpenCV.loadLocally();
+        loaded = true;
+        StartupTimeline.mark("OpenCV betöltve");
+        System.out.printf("OpenCV natív könyvtár betöltve: %.0f ms%n", (System.nanoTime() - start) / 1_000_000.0);
+    }
+}
@@ -0,0 +1,454 @@
+package com.university.attendance;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Folyamatos (streaming) PDF író lapozott jelenléti ívekhez
+ *
+ * Kézzel írt, minimális PDF 1.4: A4 álló lapok, a beépített Helvetica betűtípus
+ * (nem kell beágyazni), WinAnsi kódolás a magyar ő/ű betűkkel kiegészítve. Minden lap
+ * tartalma a lap lezárásakor tömörítve azonnal kiíródik; a memóriában csak az aktuális lap van.
+ * Az xref tábla sorai egy ideiglenes fájlba kerülnek, így a dokumentum mérete sem
+ * korlátozza a memóriát. Minden szakasz új lapon kezdődik, a fejléc laponként ismétlődik.
+ */
+public class PdfReportWriter implements ReportWriter
+{
+    // A4 pontban, margók és betűméretek
+    private static final float PAGE_WIDTH = 595;
+    private static final float PAGE_HEIGHT = 842;
+    private static final float MARGIN = 40;
+    private static final float TITLE_SIZE = 13;
+    private static final float FONT_SIZE = 9;
+    private static final float LEADING = 14;
+    private static final float CELL_PADDING = 4;
+
+    // Rögzített objektumok: katalógus, laplista, normál és félkövér betűtípus.
+    // A lapok objektumai ezek után párban következnek (tartalom, lap).
+    private static final int CATALOG_ID = 1;
+    private static final int PAGES_ID = 2;
+    private static final int FONT_ID = 3;
+    private static final int BOLD_FONT_ID = 4;
+    private static final int FIRST_PAGE_OBJECT_ID = 5;
+
+    // Helvetica karakterszélességek (1/1000 em) a 32..126 tartományban
+    private static final short[] HELVETICA_WIDTHS = {
+        278, 278, 355, 556, 556, 889, 667, 191, 333, 333, 389, 584, 278, 333, 278, 278,
+        556, 556, 556, 556, 556, 556, 556, 556, 556, 556, 278, 278, 584, 584, 584, 556,
+        1015, 667, 667, 722, 722, 667, 611, 778, 722, 278, 500, 667, 556, 833, 722, 778,
+        667, 778, 722, 667, 611, 722, 667, 944, 667, 667, 611, 278, 278, 278, 469, 556,
+        333, 556, 556, 500, 556, 556, 278, 556, 556, 222, 222, 500, 222, 833, 556, 556,
+        556, 556, 333, 500, 278, 556, 500, 722, 500, 500, 500, 334, 260, 334, 584
+    };
+
+    // A félkövér betűk szélesebbek; a csonkításnál ezzel a szorzóval számolunk
+    private static final float BOLD_WIDTH_FACTOR = 1.1f;
+
+    private final OutputStream target;
+    private final CountingOutputStream out;
+    private final float[] columnX;
+    private final float[] columnWidth;
+    private final String footerText;
+
+    // Lapok objektum-eltolásai (xref sorok) ideiglenes fájlban
+    private final Path xrefFile;
+    private final BufferedWriter xrefLines;
+    private final long[] fixedOffsets = new long[FIRST_PAGE_OBJECT_ID];
+
+    // Lapok tömörítése (újrahasznosított puffer és tömörítő)
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream(8 * 1024);
+
+    private int pageCount;
+    private ByteArrayOutputStream page;
+    private float cursorY;
+
+    private String sectionTitle;
+    private List<String> sectionHeaders;
+
+    /**
+     * @param out A cél adatfolyam (a close() lezárja)
+     * @param columnWeights Oszlopok relatív szélessége (a hasznos lapszélességre arányosítva)
+     */
+    public PdfReportWriter(OutputStream out, int[] columnWeights) throws IOException
+    {
+        this.target = out;
+        this.out = new CountingOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        this.xrefFile = Files.createTempFile("attendance-report", ".xref");
+        this.xrefLines = Files.newBufferedWriter(xrefFile, StandardCharsets.US_ASCII);
+        this.footerText = "Készült: " + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
+
+        int totalWeight = 0;
+        for (int weight : columnWeights)
+        {
+            totalWeight += weight;
+        }
+        columnX = new float[columnWeights.length];
+        columnWidth = new float[columnWeights.length];
+        float x = MARGIN;
+        for (int i = 0; i < columnWeights.length; i++)
+        {
+            columnX[i] = x;
+            columnWidth[i] = (PAGE_WIDTH - 2 * MARGIN) * columnWeights[i] / totalWeight;
+            x += columnWidth[i];
+        }
+
+        write("%PDF-1.4\n%áéíó\n");
+        writeFonts();
+    }
+
+    @Override
+    public void beginSection(String title, List<String> headers) throws IOException
+    {
+        sectionTitle = title;
+        sectionHeaders = headers;
+        newPage(title);
+    }
+
+    @Override
+    public void writeRow(Object... cells) throws IOException
+    {
+        if (page == null || cursorY - LEADING < MARGIN + LEADING)
+        {
+            newPage(sectionTitle != null ? sectionTitle + " (folyt.)" : null);
+        }
+        cursorY -= LEADING;
+        for (int i = 0; i < cells.length && i < columnX.length; i++)
+        {
+            if (cells[i] != null)
+            {
+                text(FONT_ID, FONT_SIZE, columnX[i], cursorY, fit(cells[i].toString(), columnWidth[i], FONT_SIZE, false));
+            }
+        }
+    }
+
+    @Override
+    public void endSection(String summary) throws IOException
+    {
+        if (summary == null)
+        {
+            return;
+        }
+        if (page == null || cursorY - 2 * LEADING < MARGIN + LEADING)
+        {
+            newPage(sectionTitle != null ? sectionTitle + " (folyt.)" : null);
+        }
+        cursorY -= 4;
+        line(MARGIN, cursorY, PAGE_WIDTH - MARGIN, cursorY);
+        cursorY -= LEADING;
+        text(BOLD_FONT_ID, FONT_SIZE, MARGIN, cursorY, fit(summary, PAGE_WIDTH - 2 * MARGIN, FONT_SIZE, true));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if (page == null)
+            {
+                newPage(null); // üres jelentés is legalább egy lap
+            }
+            finishPage();
+            xrefLines.close();
+
+            // Laplista: a lapok azonosítói a kiosztás rendjéből számolhatók
+            fixedOffsets[PAGES_ID] = out.count;
+            write(PAGES_ID + " 0 obj\n<< /Type /Pages /Count " + pageCount + " /Kids [");
+            for (int i = 0; i < pageCount; i++)
+            {
+                write((FIRST_PAGE_OBJECT_ID + 2 * i + 1) + " 0 R\n");
+            }
+            write("] >>\nendobj\n");
+
+            fixedOffsets[CATALOG_ID] = out.count;
+            write(CATALOG_ID + " 0 obj\n<< /Type /Catalog /Pages " + PAGES_ID + " 0 R >>\nendobj\n");
+
+            // Kereszthivatkozási tábla: rögzített objektumok, majd a lapok sorai a fájlból
+            long xrefOffset = out.count;
+            int objectCount = FIRST_PAGE_OBJECT_ID + 2 * pageCount;
+            write("xref\n0 " + objectCount + "\n0000000000 65535 f \n");
+            for (int id = 1; id < FIRST_PAGE_OBJECT_ID; id++)
+            {
+                write(String.format("%010d 00000 n \n", fixedOffsets[id]));
+            }
+            Files.copy(xrefFile, out);
+            write("trailer\n<< /Size " + objectCount + " /Root " + CATALOG_ID + " 0 R >>\nstartxref\n"
+                    + xrefOffset + "\n%%EOF\n");
+            out.close();
+        }
+        finally
+        {
+            deflater.end();
+            xrefLines.close();
+            Files.deleteIfExists(xrefFile);
+        }
+    }
+
+    @Override
+    public void abort()
+    {
+        // Kereszthivatkozás és trailer nélkül a csonka fájl nem érvényes PDF; a pufferelt
+        // maradék sem kerül ki, csak a cél adatfolyam zárul
+        try
+        {
+            target.close();
+            xrefLines.close();
+            Files.deleteIfExists(xrefFile);
+        }
+        catch (IOException e)
+        {
+            System.err.println("PDF megszakítási hiba: " + e.getMessage());
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    // Az előző lap lezárása és új lap nyitása címmel és oszlopfejléccel
+
+    private void newPage(String title) throws IOException
+    {
+        finishPage();
+        page = new ByteArrayOutputStream(16 * 1024);
+        cursorY = PAGE_HEIGHT - MARGIN;
+
+        if (title != null)
+        {
+            cursorY -= TITLE_SIZE;
+            text(BOLD_FONT_ID, TITLE_SIZE, MARGIN, cursorY, fit(title, PAGE_WIDTH - 2 * MARGIN, TITLE_SIZE, true));
+            cursorY -= LEADING / 2;
+        }
+        if (sectionHeaders != null)
+        {
+            cursorY -= LEADING;
+            for (int i = 0; i < sectionHeaders.size() && i < columnX.length; i++)
+            {
+                text(BOLD_FONT_ID, FONT_SIZE, columnX[i], cursorY, fit(sectionHeaders.get(i), columnWidth[i], FONT_SIZE, true));
+            }
+            cursorY -= 4;
+            line(MARGIN, cursorY, PAGE_WIDTH - MARGIN, cursorY);
+        }
+    }
+
+    // Az aktuális lap kiírása: tartalom adatfolyam + lap objektum
+
+    private void finishPage() throws IOException
+    {
+        if (page == null)
+        {
+            return;
+        }
+        pageCount++;
+        text(FONT_ID, 8, MARGIN, MARGIN / 2, footerText);
+        text(FONT_ID, 8, PAGE_WIDTH - MARGIN - 40, MARGIN / 2, "Oldal " + pageCount);
+
+        // A lap tartalma tömörítve (a szöveges rajzutasítások kb. tizedére csökkennek)
+        compressed.reset();
+        deflater.reset();
+        try (DeflaterOutputStream deflated = new DeflaterOutputStream(compressed, deflater))
+        {
+            page.writeTo(deflated);
+        }
+
+        int contentId = FIRST_PAGE_OBJECT_ID + 2 * (pageCount - 1);
+        beginObject(contentId);
+        write("<< /Length " + compressed.size() + " /Filter /FlateDecode >>\nstream\n");
+        compressed.writeTo(out);
+        write("\nendstream\nendobj\n");
+
+        beginObject(contentId + 1);
+        write("<< /Type /Page /Parent " + PAGES_ID + " 0 R /MediaBox [0 0 " + (int) PAGE_WIDTH + " " + (int) PAGE_HEIGHT + "]"
+                + " /Resources << /Font << /F1 " + FONT_ID + " 0 R /F2 " + BOLD_FONT_ID + " 0 R >> >>"
+                + " /Contents " + contentId + " 0 R >>\nendobj\n");
+        page = null;
+    }
+
+    // Beépített Helvetica, WinAnsi kódolás; a WinAnsiban nem szereplő ő/ű/Ő/Ű a
+    // kiosztatlan 0x81, 0x8D, 0x8F, 0x90 kódokra kerül
+
+    private void writeFonts() throws IOException
+    {
+        String encoding = "<< /Type /Encoding /BaseEncoding /WinAnsiEncoding"
+                + " /Differences [129 /Ohungarumlaut 141 /ohungarumlaut 143 /Uhungarumlaut 144 /uhungarumlaut] >>";
+        fixedOffsets[FONT_ID] = out.count;
+        write(FONT_ID + " 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding " + encoding + " >>\nendobj\n");
+        fixedOffsets[BOLD_FONT_ID] = out.count;
+        write(BOLD_FONT_ID + " 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding " + encoding + " >>\nendobj\n");
+    }
+
+    private void beginObject(int id) throws IOException
+    {
+        xrefLines.write(String.format("%010d 00000 n \n", out.count));
+        write(id + " 0 obj\n");
+    }
+
+    private void text(int fontId, float size, float x, float y, String text) throws IOException
+    {
+        ascii(fontId == FONT_ID ? "BT /F1 " : "BT /F2 ");
+        number(size);
+        ascii(" Tf ");
+        number(x);
+        page.write(' ');
+        number(y);
+        ascii(" Td (");
+        for (int i = 0; i < text.length(); i++)
+        {
+            int code = encode(text.charAt(i));
+            if (code == '(' || code == ')' || code == '\\')
+            {
+                page.write('\\');
+            }
+            page.write(code);
+        }
+        ascii(") Tj ET\n");
+    }
+
+    private void line(float x1, float y1, float x2, float y2) throws IOException
+    {
+        ascii("0.5 w ");
+        number(x1);
+        page.write(' ');
+        number(y1);
+        ascii(" m ");
+        number(x2);
+        page.write(' ');
+        number(y2);
+        ascii(" l S\n");
+    }
+
+    // Soronként több ezer hívás: String.format helyett közvetlen írás
+
+    private void ascii(String text)
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            page.write(text.charAt(i));
+        }
+    }
+
+    // Nem negatív szám két tizedesre (a koordináták mind a lapon belül vannak)
+
+    private void number(float value)
+    {
+        long hundredths = Math.round(value * 100);
+        ascii(Long.toString(hundredths / 100));
+        long fraction = hundredths % 100;
+        if (fraction != 0)
+        {
+            page.write('.');
+            page.write('0' + (int) (fraction / 10));
+            if (fraction % 10 != 0)
+            {
+                page.write('0' + (int) (fraction % 10));
+            }
+        }
+    }
+
+    // Szöveg csonkítása a cella szélességére ("..." jelöli a levágást)
+
+    private static String fit(String text, float width, float size, boolean bold)
+    {
+        float available = (width - CELL_PADDING) * 1000 / size / (bold ? BOLD_WIDTH_FACTOR : 1);
+        float used = 0;
+        for (int i = 0; i < text.length(); i++)
+        {
+            used += charWidth(text.charAt(i));
+            if (used > available)
+            {
+                float ellipsis = 3 * charWidth('.');
+                int end = i;
+                while (end > 0 && used + ellipsis > available)
+                {
+                    end--;
+                    used -= charWidth(text.charAt(end));
+                }
+                return text.substring(0, end) + "...";
+            }
+        }
+        return text;
+    }
+
+    // Ékezetes betűnél az alapbetű szélességét használjuk
+
+    private static int charWidth(char c)
+    {
+        if (c > 126)
+        {
+            String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            c = base.charAt(0);
+        }
+        return c >= 32 && c <= 126 ? HELVETICA_WIDTHS[c - 32] : 556;
+    }
+
+    // Unicode karakter -> egy bájtos kód (WinAnsi + a Differences tömb); ismeretlen: '?'
+
+    private static int encode(char c)
+    {
+        if (c >= 32 && c <= 126 || c >= 0xA0 && c <= 0xFF)
+        {
+            return c;
+        }
+        switch (c)
+        {
+            case 'Ő':
+                return 0x81;
+            case 'ő':
+                return 0x8D;
+            case 'Ű':
+                return 0x8F;
+            case 'ű':
+                return 0x90;
+            case '–':
+                return 0x96;
+            case '—':
+                return 0x97;
+            default:
+                return '?';
+        }
+    }
+
+    private void write(String text) throws IOException
+    {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    // Kiírt bájtok számlálása az xref eltolásokhoz
+
+    private static class CountingOutputStream extends FilterOutputStream
+    {
+        private long count;
+
+        CountingOutputStream(OutputStream out)
+        {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
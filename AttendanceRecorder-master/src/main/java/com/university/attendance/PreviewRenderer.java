@@ -0,0 +1,109 @@
+package com.university.attendance;
+
+import javafx.application.Platform;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Kamera előnézet megjelenítése
+ *
+ * A képkocka pixelei egy újrahasznosított tömbbe másolódnak, és egyetlen WritableImage
+ * frissül belőlük az FX szálon (korábban minden képkocka PNG-be kódolódott, majd egy új
+ * Image-be dekódolódott). Amíg az előző képkocka nincs kirajzolva, az újak kimaradnak, így a
+ * lassú UI szál mögött nem gyűlnek a Platform.runLater feladatok és a képkocka másolatok.
+ * A színkonverzió is csak a megjelenített képkockákra fut le (a dekóder a szürke képet kapja).
+ */
+public class PreviewRenderer
+{
+    private final ImageView view;
+    private final MatPool pool;
+
+    // Igaz, amíg az FX szál nem rajzolta ki a pixels tömb tartalmát
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    // A kamera szál írja (csak ha pending hamis), az FX szál olvassa
+    private byte[] pixels = new byte[0];
+    private int width;
+    private int height;
+
+    // Csak az FX szálon
+    private WritableImage image;
+
+    private long droppedFrames;
+
+    public PreviewRenderer(ImageView view, MatPool pool)
+    {
+        this.view = view;
+        this.pool = pool;
+    }
+
+    /**
+     * Az utolsó beolvasott képkocka átadása megjelenítésre (kamera szálról)
+     * @return Hamis, ha a képkocka kimaradt, mert az előző még nincs kirajzolva
+     */
+    public boolean submit(CameraCapture capture)
+    {
+        if (!pending.compareAndSet(false, true))
+        {
+            droppedFrames++;
+            return false;
+        }
+        pixels = toRgb(capture, pool, pixels);
+        width = capture.getWidth();
+        height = capture.getHeight();
+        Platform.runLater(this::render);
+        return true;
+    }
+
+    /**
+     * A kihagyott képkockák száma
+     */
+    public long getDroppedFrames()
+    {
+        return droppedFrames;
+    }
+
+    /**
+     * Az utolsó képkocka RGB bájtjai a megadott tömbbe (ha megfelelő méretű, különben újba)
+     */
+    static byte[] toRgb(CameraCapture capture, MatPool pool, byte[] target)
+    {
+        int size = capture.getHeight() * capture.getWidth() * 3;
+        byte[] result = target.length == size ? target : new byte[size];
+        Mat rgb = pool.acquire(capture.getHeight(), capture.getWidth(), CvType.CV_8UC3);
+        try
+        {
+            capture.toRgb(rgb);
+            rgb.get(0, 0, result);
+        }
+        finally
+        {
+            pool.release(rgb);
+        }
+        return result;
+    }
+
+    // Kirajzolás az FX szálon; a kép csak méretváltozáskor jön létre újra
+
+    private void render()
+    {
+        try
+        {
+            if (image == null || image.getWidth() != width || image.getHeight() != height)
+            {
+                image = new WritableImage(width, height);
+                view.setImage(image);
+            }
+            image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getByteRgbInstance(), pixels, 0, width * 3);
+        }
+        finally
+        {
+            pending.set(false);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.university.attendance;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.FormatException;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+import com.google.zxing.qrcode.QRCodeReader;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.CLAHE;
+import org.opencv.imgproc.Imgproc;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * QR kód dekódolás kamera képkockákból
+ *
+ * Egyszeres módban az első talált kódot adja vissza a beállított motorral (QRDecoderBackend). Csoportos módban egy képkockából
+ * az összes QR kódot kiolvassa: először a ZXing többkódos olvasójával, és ha az nem talál
+ * semmit (pl. kis, egymáshoz közeli kódok), átfedő csempékre bontva is keres (ez mindig ZXing).
+ *
+ * Ha egyszeres módban a nyers képkockán nincs találat, a kép előfeldolgozott változatain
+ * (kicsinyítés/nagyítás, kontrasztjavítás, küszöbölés) is próbálkozik. A változatok egy
+ * fork-join poolon párhuzamosan készülnek és dekódolódnak; az első találat után a többi
+ * próbálkozás leáll. A pool mérete a CPU keret: 0 esetén nincs előfeldolgozás.
+ */
+public class QRCodeDecoder implements AutoCloseable
+{
+    // Csempék száma soronként / oszloponként, és az átfedés a csempe méretéhez képest
+    private static final int TILE_GRID = 2;
+    private static final double TILE_OVERLAP = 0.25;
+
+    // Futás közben cserélhető (a kalibráció háttérben választ motort)
+    private volatile QRDecoderBackend backend;
+    private final QRCodeMultiReader multiReader = new QRCodeMultiReader();
+    private final QRCodeReader tileReader = new QRCodeReader();
+
+    // Előfeldolgozott változatok dekódolása (null, ha a CPU keret 0)
+    private final ForkJoinPool enhancementPool;
+
+    // Alapértelmezett CPU keret: a magok fele, hogy a kamera és a UI szál is kapjon időt
+    public static final int DEFAULT_ENHANCEMENT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    // Kontrasztjavító szálanként (a natív CLAHE objektum nem jön létre próbálkozásonként újra)
+    private static final ThreadLocal<CLAHE> CLAHE_PER_THREAD =
+            ThreadLocal.withInitial(() -> Imgproc.createCLAHE(2.0, new Size(8, 8)));
+
+    // Az előfeldolgozott változatok és a szürke forrás pufferei képkockáról képkockára
+    private final MatPool matPool = new MatPool(Preprocessing.values().length);
+
+    /**
+     * Egy képkocka előfeldolgozott változata (a forrás szürkeárnyalatos, natív OpenCV művelet,
+     * az eredmény a készletből kapott, a kimeneti méretre előre lefoglalt Mat-ba kerül)
+     */
+    private enum Preprocessing
+    {
+        // Helyi kontrasztjavítás: fényes telefonkijelző, tükröződés
+        EQUALIZED
+        {
+            void apply(Mat gray, Mat result, MatPool pool)
+            {
+                CLAHE_PER_THREAD.get().apply(gray, result);
+            }
+        },
+        // Zajszűrés után globális (Otsu) küszöb: alacsony kontraszt
+        OTSU
+        {
+            void apply(Mat gray, Mat result, MatPool pool)
+            {
+                Imgproc.GaussianBlur(gray, result, new Size(5, 5), 0);
+                Imgproc.threshold(result, result, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+            }
+        },
+        // Helyi küszöb: egyenetlen megvilágítás, részleges tükröződés
+        ADAPTIVE
+        {
+            void apply(Mat gray, Mat result, MatPool pool)
+            {
+                Imgproc.adaptiveThreshold(gray, result, 255, Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,
+                        Imgproc.THRESH_BINARY, 31, 10);
+            }
+        },
+        // Piramis felfelé: kicsi, távoli kódok
+        UPSCALED(2)
+        {
+            void apply(Mat gray, Mat result, MatPool pool)
+            {
+                Imgproc.pyrUp(gray, result);
+            }
+        },
+        // Piramis felfelé és élesítés (unsharp mask): kicsi és elmosódott kódok
+        UPSCALED_SHARPENED(2)
+        {
+            void apply(Mat gray, Mat result, MatPool pool)
+            {
+                Mat blurred = pool.acquire(result.rows(), result.cols(), result.type());
+                try
+                {
+                    Imgproc.pyrUp(gray, result);
+                    Imgproc.GaussianBlur(result, blurred, new Size(0, 0), 3);
+                    Core.addWeighted(result, 1.5, blurred, -0.5, 0, result);
+                }
+                finally
+                {
+                    pool.release(blurred);
+                }
+            }
+        },
+        // Piramis lefelé: kijelző moiré és szenzorzaj kisimítása
+        DOWNSCALED(-2)
+        {
+            void apply(Mat gray, Mat result, MatPool pool)
+            {
+                Imgproc.pyrDown(gray, result);
+            }
+        };
+
+        // Kimeneti méret a forráshoz képest: 1 = azonos, 2 = kétszeres, -2 = fél (felfelé kerekítve)
+        private final int scale;
+
+        Preprocessing()
+        {
+            this(1);
+        }
+
+        Preprocessing(int scale)
+        {
+            this.scale = scale;
+        }
+
+        int outputRows(Mat gray)
+        {
+            return scale > 0 ? gray.rows() * scale : (gray.rows() + 1) / 2;
+        }
+
+        int outputCols(Mat gray)
+        {
+            return scale > 0 ? gray.cols() * scale : (gray.cols() + 1) / 2;
+        }
+
+        abstract void apply(Mat gray, Mat result, MatPool pool);
+    }
+
+    /**
+     * Előfeldolgozás nélküli ZXing dekóder
+     */
+    public QRCodeDecoder()
+    {
+        this(new ZXingDecoderBackend(), 0);
+    }
+
+    /**
+     * @param backend Az egyszeres mód dekódoló motorja
+     * @param enhancementThreads CPU keret: ennyi szálon fut az előfeldolgozás és a dekódolás
+     *                           sikertelen képkockánál (0 = kikapcsolva)
+     */
+    public QRCodeDecoder(QRDecoderBackend backend, int enhancementThreads)
+    {
+        this.backend = backend;
+        this.enhancementPool = enhancementThreads > 0 ? new ForkJoinPool(enhancementThreads) : null;
+    }
+
+    /**
+     * Egyetlen kód kiolvasása
+     * @return A kód szövege, vagy null ha nincs érvényes kód a képen
+     */
+    public String decode(Mat frame)
+    {
+        QRDecoderBackend current = backend;
+        String text = current.decode(frame);
+        if (text != null || enhancementPool == null)
+        {
+            return text;
+        }
+        // Nincs QR kód a nyers képen - az előfeldolgozott változatokkal próbálkozunk
+        return decodeEnhanced(frame, current);
+    }
+
+    /**
+     * Az egyszeres mód motorja
+     */
+    public QRDecoderBackend getBackend()
+    {
+        return backend;
+    }
+
+    /**
+     * Motor cseréje (a folyamatban lévő dekódolás még a régivel fejeződik be)
+     */
+    public void setBackend(QRDecoderBackend backend)
+    {
+        this.backend = backend;
+    }
+
+    /**
+     * Az összes QR kód kiolvasása egy képkockából (csoportos bejelentkezéshez)
+     * @return A kódok szövegei (ismétlés nélkül), üres lista ha nincs kód
+     */
+    public List<String> decodeAll(Mat frame)
+    {
+        BinaryBitmap bitmap = toBitmap(frame);
+        Set<String> codes = new LinkedHashSet<>();
+
+        try
+        {
+            for (Result result : multiReader.decodeMultiple(bitmap))
+            {
+                codes.add(result.getText());
+            }
+        }
+        catch (NotFoundException e)
+        {
+            // A teljes képen nincs felismerhető kód - csempénként próbáljuk
+        }
+
+        if (codes.isEmpty())
+        {
+            decodeTiles(bitmap, codes);
+        }
+        return new ArrayList<>(codes);
+    }
+
+    // Átfedő csempék külön dekódolása: a detektor így a kisebb kódokat is megtalálja
+
+    private void decodeTiles(BinaryBitmap bitmap, Set<String> codes)
+    {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int tileWidth = (int) (width / TILE_GRID * (1 + TILE_OVERLAP));
+        int tileHeight = (int) (height / TILE_GRID * (1 + TILE_OVERLAP));
+
+        for (int row = 0; row < TILE_GRID; row++)
+        {
+            for (int col = 0; col < TILE_GRID; col++)
+            {
+                int left = Math.min(col * width / TILE_GRID, width - tileWidth);
+                int top = Math.min(row * height / TILE_GRID, height - tileHeight);
+
+                try
+                {
+                    Result result = tileReader.decode(bitmap.crop(left, top, tileWidth, tileHeight));
+                    codes.add(result.getText());
+                }
+                catch (NotFoundException | ChecksumException | FormatException e)
+                {
+                    // Ebben a csempében nincs olvasható kód
+                }
+                finally
+                {
+                    tileReader.reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * Előfeldolgozó pool leállítása és a pufferek felszabadítása
+     */
+    @Override
+    public void close()
+    {
+        if (enhancementPool != null)
+        {
+            enhancementPool.shutdownNow();
+        }
+        matPool.close();
+    }
+
+    // Az összes változat párhuzamos dekódolása; az első találat nyer, a többi leáll
+
+    private String decodeEnhanced(Mat frame, QRDecoderBackend backend)
+    {
+        Mat gray = matPool.acquire(frame.rows(), frame.cols(), CvType.CV_8UC1);
+        if (frame.channels() > 1)
+        {
+            Imgproc.cvtColor(frame, gray, Imgproc.COLOR_BGR2GRAY);
+        }
+        else
+        {
+            frame.copyTo(gray);
+        }
+
+        // A szürke forrást a feladatok olvasási zárral használják, így csak akkor
+        // szabadítjuk fel, ha már egyik sem fér hozzá (a késve induló feladatok a
+        // done jelzőt látva hozzá sem nyúlnak)
+        AtomicBoolean done = new AtomicBoolean();
+        ReadWriteLock sourceLock = new ReentrantReadWriteLock();
+        ExecutorCompletionService<String> attempts = new ExecutorCompletionService<>(enhancementPool);
+        List<Future<String>> futures = new ArrayList<>();
+
+        for (Preprocessing preprocessing : Preprocessing.values())
+        {
+            futures.add(attempts.submit(() -> attempt(gray, preprocessing, done, sourceLock, backend, matPool)));
+        }
+
+        try
+        {
+            for (int i = 0; i < futures.size(); i++)
+            {
+                String text = attempts.take().get();
+                if (text != null)
+                {
+                    return text;
+                }
+            }
+            return null;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        catch (ExecutionException e)
+        {
+            System.err.println("Előfeldolgozási hiba: " + e.getCause().getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        finally
+        {
+            done.set(true);
+            for (Future<String> future : futures)
+            {
+                future.cancel(false);
+            }
+            sourceLock.writeLock().lock();
+            try
+            {
+                matPool.release(gray);
+            }
+            finally
+            {
+                sourceLock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Egy változat elkészítése és dekódolása
+
+    private static String attempt(Mat gray, Preprocessing preprocessing, AtomicBoolean done,
+                                  ReadWriteLock sourceLock, QRDecoderBackend backend, MatPool pool)
+    {
+        Mat variant;
+        sourceLock.readLock().lock();
+        try
+        {
+            if (done.get())
+            {
+                return null;
+            }
+            variant = pool.acquire(preprocessing.outputRows(gray), preprocessing.outputCols(gray), gray.type());
+            try
+            {
+                preprocessing.apply(gray, variant, pool);
+            }
+            catch (RuntimeException e)
+            {
+                pool.release(variant);
+                throw e;
+            }
+        }
+        finally
+        {
+            sourceLock.readLock().unlock();
+        }
+
+        try
+        {
+            if (done.get())
+            {
+                return null;
+            }
+            return backend.decode(variant);
+        }
+        finally
+        {
+            pool.release(variant);
+        }
+    }
+
+    static BinaryBitmap toBitmap(Mat frame)
+    {
+        LuminanceSource source = new BufferedImageLuminanceSource(matToBufferedImage(frame));
+        return new BinaryBitmap(new HybridBinarizer(source));
+    }
+
+    // OpenCV Mat konvertálása Java BufferedImage objektummá ZXing-nek
+
+    static BufferedImage matToBufferedImage(Mat mat)
+    {
+        int type = BufferedImage.TYPE_BYTE_GRAY;
+        if (mat.channels() > 1)
+        {
+            type = BufferedImage.TYPE_3BYTE_BGR;
+        }
+
+        BufferedImage image = new BufferedImage(mat.cols(), mat.rows(), type);
+        mat.get(0, 0, ((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        return image;
+    }
+}
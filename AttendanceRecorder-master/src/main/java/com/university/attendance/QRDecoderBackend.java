@@ -0,0 +1,23 @@
+package com.university.attendance;
+
+import org.opencv.core.Mat;
+
+/**
+ * QR dekódoló háttérmotor (ZXing, OpenCV, vagy ezek láncolata)
+ *
+ * A megvalósításoknak szálbiztosnak kell lenniük: a QRCodeDecoder ugyanazt a
+ * példányt több szálról is hívja (előfeldolgozott változatok párhuzamos dekódolása).
+ */
+public interface QRDecoderBackend
+{
+    /**
+     * Rövid azonosító (naplózáshoz és a -Dattendance.decoder beállításhoz)
+     */
+    String getName();
+
+    /**
+     * Egyetlen kód kiolvasása egy képkockából (BGR vagy szürkeárnyalatos)
+     * @return A kód szövege, vagy null ha nincs olvasható kód a képen
+     */
+    String decode(Mat frame);
+}
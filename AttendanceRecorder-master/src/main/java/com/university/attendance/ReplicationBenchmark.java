@@ -0,0 +1,267 @@
+package com.university.attendance;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Kioszkok közötti replikáció körútja és beolvasztási mérés
+ *
+ * Egy forrás kioszk adatbázisát [események] darab helyi jelenléttel tölti fel, majd két
+ * helyi fogadó kioszkba replikálja: közös mappán (SharedFolderTransport) és localhost
+ * socketen (SocketTransport) keresztül. Körönként méri az exportot és a beolvasztást,
+ * ellenőrzi, hogy minden esemény megérkezett, és hogy egy újraindított fogadó a már
+ * beolvasztott batch-eket nem olvassa be újra. Végül fordított sorrendben kézbesített
+ * batch-ekkel ellenőrzi, hogy a rés pótlása után az importált watermark a végére ér.
+ * Az alkalmazás konzol naplója az ideiglenes mappába kerül.
+ *
+ * Futtatás: java -cp ... com.university.attendance.ReplicationBenchmark [események] [batch-ek a rés teszthez]
+ */
+public class ReplicationBenchmark
+{
+    private static final int STUDENTS = 2000;
+    private static final long RECEIVE_TIMEOUT_NANOS = 30_000_000_000L;
+
+    public static void main(String[] args) throws Exception
+    {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 40000;
+        int gapBatches = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        PrintStream out = System.out;
+        Path dir = Files.createTempDirectory("attendance-replication");
+        PrintStream appLog = new PrintStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve("app.log"))),
+                false, "UTF-8");
+        System.setOut(appLog);
+
+        try
+        {
+            // Forrás adatbázis, három másolatban, hogy minden kör nulláról exportáljon
+            Path source = dir.resolve("source.db");
+            fillSource(source, events);
+            Path folderSource = Files.copy(source, dir.resolve("source-folder.db"));
+            Path socketSource = Files.copy(source, dir.resolve("source-socket.db"));
+            out.printf("%,d esemény (%,d hallgató, %d nap)%n", events, Math.min(events, STUDENTS),
+                    (events + STUDENTS - 1) / STUDENTS);
+
+            Path shared = dir.resolve("shared");
+            runRound(out, "Közös mappa", folderSource, dir.resolve("target-folder.db"), events,
+                    () -> new SharedFolderTransport(shared), () -> new SharedFolderTransport(shared));
+
+            int[] ports = freePorts(2);
+            InetSocketAddress receiverAddress = new InetSocketAddress("127.0.0.1", ports[1]);
+            runRound(out, "Socket (localhost)", socketSource, dir.resolve("target-socket.db"), events,
+                    () -> new SocketTransport(ports[0], List.of(receiverAddress)),
+                    () -> new SocketTransport(ports[1], List.of()));
+
+            runGapRound(out, source, dir.resolve("target-gap.db"), events, gapBatches);
+        }
+        finally
+        {
+            System.setOut(out);
+            appLog.close();
+            StorageBenchmark.deleteAll(dir.toFile());
+        }
+    }
+
+    private interface TransportFactory
+    {
+        ReplicationTransport open() throws IOException;
+    }
+
+    // Egy kör: a forrás exportál, a fogadó beolvaszt, majd egy újraindított fogadó még egyszer
+
+    private static void runRound(PrintStream out, String label, Path source, Path target, int events,
+                                 TransportFactory sourceTransport, TransportFactory targetTransport) throws Exception
+    {
+        DatabaseManager sourceDb = open(source);
+        DatabaseManager targetDb = open(target);
+        ReplicationTransport sender = sourceTransport.open();
+        ReplicationTransport receiver = targetTransport.open();
+        try
+        {
+            ReplicationService exporter = new ReplicationService(sourceDb, sender);
+            ReplicationService importer = new ReplicationService(targetDb, receiver);
+
+            long start = System.nanoTime();
+            int sent = exporter.exportChanges();
+            long exported = System.nanoTime();
+
+            // A socket fogadás aszinkron: addig olvasztunk, amíg minden esemény meg nem érkezik
+            int merged = 0;
+            long deadline = exported + RECEIVE_TIMEOUT_NANOS;
+            while (merged < sent && System.nanoTime() < deadline)
+            {
+                merged += importer.importChanges();
+                if (merged < sent)
+                {
+                    Thread.sleep(1);
+                }
+            }
+            long imported = System.nanoTime();
+
+            receiver.close();
+            receiver = targetTransport.open();
+            long restartStart = System.nanoTime();
+            int again = new ReplicationService(targetDb, receiver).importChanges();
+            long restart = System.nanoTime() - restartStart;
+
+            long rows = countRows(targetDb);
+            out.printf("%n%s:%n", label);
+            out.printf("  Export: %,d esemény, %.1f ms%n", sent, (exported - start) / 1e6);
+            out.printf("  Átvitel + beolvasztás: %,d esemény, %.1f ms (%,.0f esemény/s)%n",
+                    merged, (imported - exported) / 1e6, merged * 1e9 / Math.max(1, imported - exported));
+            out.printf("  Újraindított fogadó: %d újra beolvasztva, %.1f ms%n", again, restart / 1e6);
+            out.printf("  Ellenőrzés: %s (fogadó sorai: %,d / %,d)%n",
+                    rows == events && again == 0 ? "rendben" : "HIBA", rows, events);
+        }
+        finally
+        {
+            sender.close();
+            receiver.close();
+            sourceDb.close();
+            targetDb.close();
+        }
+    }
+
+    // Fordított sorrendben kézbesített batch-ek: az utolsó kivételével mind rés után érkezik
+
+    private static void runGapRound(PrintStream out, Path source, Path target, int events, int batches)
+            throws SQLException
+    {
+        DatabaseManager sourceDb = open(source);
+        DatabaseManager targetDb = open(target);
+        PrintStream err = System.err;
+        System.setErr(System.out);
+        try
+        {
+            String kioskId = sourceDb.getKioskId();
+            int batchSize = Math.max(1, (events + batches - 1) / batches);
+            List<ChangeBatch> ordered = new ArrayList<>();
+            long watermark = 0;
+            while (true)
+            {
+                ChangeBatch batch = sourceDb.readLocalChanges(kioskId, watermark, batchSize);
+                if (batch.getEvents().isEmpty())
+                {
+                    break;
+                }
+                ordered.add(batch);
+                watermark = batch.getToWatermark();
+            }
+            Collections.reverse(ordered);
+
+            long start = System.nanoTime();
+            int merged = 0;
+            for (ChangeBatch batch : ordered)
+            {
+                merged += targetDb.mergeChanges(batch);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            long imported = targetDb.getReplicationWatermark(kioskId, true);
+            int pending = targetDb.getPendingBatches().size();
+            out.printf("%nFordított sorrend (%d batch, %,d esemény/batch):%n", ordered.size(), batchSize);
+            out.printf("  Beolvasztás: %,d esemény, %.1f ms (%,.0f esemény/s)%n",
+                    merged, elapsed / 1e6, merged * 1e9 / Math.max(1, elapsed));
+            out.printf("  Ellenőrzés: %s (importált watermark: %d / %d, függő batch: %d)%n",
+                    imported == watermark && pending == 0 && merged == events ? "rendben" : "HIBA",
+                    imported, watermark, pending);
+        }
+        finally
+        {
+            System.setErr(err);
+            sourceDb.close();
+            targetDb.close();
+        }
+    }
+
+    // Forrás kioszk: hallgatók és napi jelenlétek egyetlen tranzakcióban (helyi sorok, origin = NULL)
+
+    private static void fillSource(Path file, int events) throws SQLException
+    {
+        String dbUrl = "jdbc:sqlite:" + file;
+        open(file).close();
+
+        SqliteConnectionPool pool = new SqliteConnectionPool(dbUrl, 1);
+        try
+        {
+            pool.openWriter();
+            pool.transaction(connection ->
+            {
+                int students = Math.min(events, STUDENTS);
+                long[] ids = new long[students];
+                for (int s = 0; s < students; s++)
+                {
+                    ids[s] = DatabaseManager.upsertStudent(connection, "Replikált Hallgató " + s,
+                            "Mérnökinformatikus", String.format("RB%05d", s));
+                }
+
+                LocalDate start = LocalDate.of(2026, 9, 1);
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "INSERT INTO attendance_records (student_id, date, scans) VALUES (?, ?, 1)"))
+                {
+                    for (int i = 0; i < events; i++)
+                    {
+                        pstmt.setLong(1, ids[i % students]);
+                        pstmt.setString(2, start.plusDays(i / students).toString());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                return null;
+            });
+        }
+        finally
+        {
+            pool.close();
+        }
+    }
+
+    private static DatabaseManager open(Path file) throws SQLException
+    {
+        DatabaseManager dbManager = new DatabaseManager("jdbc:sqlite:" + file);
+        dbManager.initDatabase();
+        return dbManager;
+    }
+
+    private static long countRows(DatabaseManager dbManager) throws SQLException
+    {
+        return dbManager.queryCount("SELECT COUNT(*) FROM attendance_records WHERE date BETWEEN ? AND ?",
+                List.of("0000-01-01", "9999-12-31"));
+    }
+
+    // Szabad helyi portok a socket körhöz (a fogadónak előre ismert címe kell)
+
+    private static int[] freePorts(int count) throws IOException
+    {
+        int[] ports = new int[count];
+        List<ServerSocket> sockets = new ArrayList<>();
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                ServerSocket socket = new ServerSocket(0);
+                sockets.add(socket);
+                ports[i] = socket.getLocalPort();
+            }
+        }
+        finally
+        {
+            for (ServerSocket socket : sockets)
+            {
+                socket.close();
+            }
+        }
+        return ports;
+    }
+}
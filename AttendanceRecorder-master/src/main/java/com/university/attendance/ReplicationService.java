@@ -0,0 +1,111 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kioszkok közötti jelenlét replikáció
+ *
+ * Export: a helyben rögzített, a watermark óta új sorok batch-ekben a transportra kerülnek
+ * (id szerinti tartomány, nem a teljes tábla). Import: a többi kioszk batch-ei egy-egy
+ * tranzakcióban, idempotensen olvadnak be a (neptun, date) kulcs szerint; a már
+ * beolvasztott batch-eket a transport a tárolt watermark-ok alapján ki sem olvassa.
+ */
+public class ReplicationService
+{
+    // Egy batch legfeljebb ennyi eseményt tartalmaz
+    private static final int MAX_BATCH_EVENTS = 50_000;
+
+    private final DatabaseManager dbManager;
+    private final ReplicationTransport transport;
+    private final String kioskId;
+
+    public ReplicationService(DatabaseManager dbManager, ReplicationTransport transport)
+    {
+        this.dbManager = dbManager;
+        this.transport = transport;
+        this.kioskId = dbManager.getKioskId();
+    }
+
+    /**
+     * Új helyi események küldése
+     * @return Elküldött események száma
+     */
+    public int exportChanges() throws SQLException, IOException
+    {
+        int sent = 0;
+        long watermark = dbManager.getReplicationWatermark(kioskId, false);
+
+        while (true)
+        {
+            ChangeBatch batch = dbManager.readLocalChanges(kioskId, watermark, MAX_BATCH_EVENTS);
+            if (batch.getEvents().isEmpty())
+            {
+                return sent;
+            }
+
+            // A watermark csak sikeres küldés után lép előre
+            transport.send(batch);
+            dbManager.setExportedWatermark(kioskId, batch.getToWatermark());
+            watermark = batch.getToWatermark();
+            sent += batch.getEvents().size();
+        }
+    }
+
+    /**
+     * Beérkezett batch-ek beolvasztása (a saját batch-eket kihagyja)
+     * @return Ténylegesen új jelenlétek száma
+     */
+    public int importChanges() throws SQLException, IOException
+    {
+        Map<String, Long> imported = dbManager.getImportedWatermarks();
+        Set<String> pending = dbManager.getPendingBatches();
+        List<ChangeBatch> batches = transport.receive((source, toWatermark) -> source.equals(kioskId)
+                || toWatermark <= imported.getOrDefault(source, 0L)
+                || pending.contains(DatabaseManager.pendingKey(source, toWatermark)));
+        batches.sort(Comparator.comparing(ChangeBatch::getSourceKiosk)
+                .thenComparingLong(ChangeBatch::getFromWatermark));
+
+        int merged = 0;
+        for (ChangeBatch batch : batches)
+        {
+            if (!batch.getSourceKiosk().equals(kioskId))
+            {
+                merged += dbManager.mergeChanges(batch);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Egy teljes szinkronizációs kör: export, majd import
+     */
+    public void synchronize()
+    {
+        try
+        {
+            long start = System.nanoTime();
+            int sent = exportChanges();
+            int merged = importChanges();
+            if (sent > 0 || merged > 0)
+            {
+                System.out.printf("Replikáció: %d elküldve, %d beolvasztva (%d ms)%n",
+                        sent, merged, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        catch (SQLException | IOException e)
+        {
+            System.err.println("Replikációs hiba: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    public String getKioskId()
+    {
+        return kioskId;
+    }
+}
@@ -0,0 +1,39 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Replikációs batch-ek továbbítása kioszkok között
+ *
+ * Megvalósítások: közös mappa ({@link SharedFolderTransport}) és helyi socket
+ * ({@link SocketTransport}). A beolvasztás idempotens, ezért egy batch többszöri
+ * kézbesítése nem okoz hibát.
+ */
+public interface ReplicationTransport extends AutoCloseable
+{
+    /**
+     * Batch elküldése a többi kioszknak
+     */
+    void send(ChangeBatch batch) throws IOException;
+
+    /**
+     * A még be nem olvasztott batch-ek (a saját batch-ek is szerepelhetnek benne)
+     * @param consumed A már beolvasztott batch-ek; ezeket a transport ki sem olvassa
+     */
+    List<ChangeBatch> receive(Consumed consumed) throws IOException;
+
+    /**
+     * Beolvasztott batch felismerése a forrás kioszk és a felső watermark alapján
+     * (az adatbázisban tárolt watermark-okból, így újraindítás után is érvényes)
+     */
+    interface Consumed
+    {
+        boolean contains(String sourceKiosk, long toWatermark);
+    }
+
+    @Override
+    default void close() throws IOException
+    {
+    }
+}
@@ -0,0 +1,350 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Jelentések exportálása XLSX és PDF formátumban
+ *
+ * A sorok közvetlenül az adatbázis kurzorból, rendezve érkeznek, és egyenként kerülnek a
+ * formátum íróhoz (ReportWriter). A szakaszváltást (új nap, alkalom, hallgató) a rendezett
+ * sorokban a szakasz kulcs változása jelzi, így semmit nem kell csoportosítani a memóriában:
+ * a felhasznált memória a sorok számától független. A kimenet egy ideiglenes fájlba készül,
+ * és csak sikeres befejezés után kapja meg a végleges nevét.
+ */
+public class ReportExporter
+{
+    // Ennyi soronként jelzünk előrehaladást
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    // Dátum szűrő határai, ha nincs megadva
+    private static final String MIN_DATE = "0000-01-01";
+    private static final String MAX_DATE = "9999-12-31";
+
+    private final DatabaseManager dbManager;
+
+    /**
+     * Előrehaladás jelzése és megszakítás (a hívó háttérfeladata valósítja meg)
+     */
+    public interface Progress
+    {
+        void update(long done, long total);
+
+        boolean isCancelled();
+    }
+
+    /**
+     * Kimeneti formátum
+     */
+    public enum Format
+    {
+        XLSX("Excel (XLSX)", "xlsx"),
+        PDF("PDF", "pdf");
+
+        private final String label;
+        private final String extension;
+
+        Format(String label, String extension)
+        {
+            this.label = label;
+            this.extension = extension;
+        }
+
+        public String getExtension()
+        {
+            return extension;
+        }
+
+        @Override
+        public String toString()
+        {
+            return label;
+        }
+    }
+
+    /**
+     * Jelentés típusok: a lekérdezés első {@code keyColumns} oszlopa a szakasz kulcsa,
+     * a többi a sor cellái
+     */
+    public enum Kind
+    {
+        // Napi jelenléti ív: naponta egy szakasz, névsorban
+        DAILY("Napi jelenléti ív", "Napi",
+                "SELECT a.date, st.name, st.neptun, st.major, a.scans",
+                """
+                FROM attendance_records a
+                JOIN students st ON st.id = a.student_id
+                WHERE a.date BETWEEN ? AND ?
+                """,
+                "ORDER BY a.date, st.name, st.neptun",
+                1, List.of("#", "Név", "Neptun", "Szak", "Beolvasás"), new int[] {5, 32, 12, 39, 12})
+        {
+            String title(Object[] row)
+            {
+                return "Jelenléti ív – " + row[0];
+            }
+
+            String summary(long rows)
+            {
+                return "Jelen: " + rows + " fő";
+            }
+        },
+
+        // Kurzus alkalmanként: kurzus, nap és kezdési idő szerint egy szakasz
+        SESSION("Kurzus alkalmak", "Alkalmak",
+                "SELECT c.code, c.name, s.date, s.start_time, st.name, st.neptun, st.major, sa.scanned_at",
+                """
+                FROM sessions s
+                JOIN courses c ON c.id = s.course_id
+                JOIN session_attendance sa ON sa.session_id = s.id
+                JOIN students st ON st.id = sa.student_id
+                WHERE s.date BETWEEN ? AND ?
+                """,
+                "ORDER BY s.date, c.code, s.start_time, st.name, st.neptun",
+                4, List.of("#", "Név", "Neptun", "Szak", "Időpont"), new int[] {5, 32, 12, 39, 12})
+        {
+            String title(Object[] row)
+            {
+                String start = row[3] == null || row[3].toString().isEmpty() ? "" : " " + row[3];
+                return row[0] + " – " + row[1] + ", " + row[2] + start;
+            }
+
+            String summary(long rows)
+            {
+                return "Jelen: " + rows + " fő";
+            }
+        },
+
+        // Hallgatónként: a hallgató összes jelenléti napja
+        STUDENT("Hallgatói összesítő", "Hallgatók",
+                "SELECT st.name, st.neptun, st.major, a.date, a.scans",
+                """
+                FROM students st
+                JOIN attendance_records a ON a.student_id = st.id
+                WHERE a.date BETWEEN ? AND ?
+                """,
+                "ORDER BY st.name, st.neptun, a.date",
+                3, List.of("#", "Dátum", "Beolvasás"), new int[] {8, 50, 42})
+        {
+            String title(Object[] row)
+            {
+                String major = row[2] == null || row[2].toString().isEmpty() ? "" : " – " + row[2];
+                return row[0] + " (" + row[1] + ")" + major;
+            }
+
+            String summary(long rows)
+            {
+                return "Összesen: " + rows + " alkalom";
+            }
+        };
+
+        private final String label;
+        private final String sheetName;
+        private final String select;
+        private final String fromWhere;
+        private final String orderBy;
+        private final int keyColumns;
+        private final List<String> headers;
+        private final int[] columnWeights;
+
+        Kind(String label, String sheetName, String select, String fromWhere, String orderBy,
+             int keyColumns, List<String> headers, int[] columnWeights)
+        {
+            this.label = label;
+            this.sheetName = sheetName;
+            this.select = select;
+            this.fromWhere = fromWhere;
+            this.orderBy = orderBy;
+            this.keyColumns = keyColumns;
+            this.headers = headers;
+            this.columnWeights = columnWeights;
+        }
+
+        abstract String title(Object[] row);
+
+        abstract String summary(long rows);
+
+        @Override
+        public String toString()
+        {
+            return label;
+        }
+    }
+
+    public ReportExporter(DatabaseManager dbManager)
+    {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Jelentés készítése fájlba (blokkoló, háttérszálon hívandó)
+     * @param from Első nap (null = nincs alsó határ)
+     * @param to Utolsó nap (null = nincs felső határ)
+     * @param target A kimeneti fájl
+     * @return A kiírt sorok száma
+     * @throws CancellationException ha a Progress megszakítást jelzett (a félkész fájl törlődik)
+     */
+    public long export(Kind kind, Format format, LocalDate from, LocalDate to, Path target, Progress progress)
+            throws IOException, SQLException
+    {
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        boolean completed = false;
+        try
+        {
+            long rows;
+            try (OutputStream out = Files.newOutputStream(partial))
+            {
+                rows = export(kind, format, from, to, out, progress);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            completed = true;
+            System.out.println("Jelentés elkészült: " + target + " (" + rows + " sor)");
+            return rows;
+        }
+        finally
+        {
+            if (!completed)
+            {
+                Files.deleteIfExists(partial);
+            }
+        }
+    }
+
+    /**
+     * Jelentés készítése egy folyamba (pl. HTTP válasz); a folyamot a végén lezárja
+     * @return A kiírt sorok száma
+     * @throws CancellationException ha a Progress megszakítást jelzett
+     */
+    public long export(Kind kind, Format format, LocalDate from, LocalDate to, OutputStream out, Progress progress)
+            throws IOException, SQLException
+    {
+        List<String> params = List.of(from != null ? from.toString() : MIN_DATE, to != null ? to.toString() : MAX_DATE);
+        long total = dbManager.queryCount("SELECT COUNT(*) " + kind.fromWhere, params);
+        progress.update(0, total);
+
+        ReportWriter writer = null;
+        boolean completed = false;
+        try
+        {
+            writer = createWriter(kind, format, out);
+            long rows = stream(kind, params, writer, total, progress);
+            completed = true;
+            writer.close();
+            return rows;
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            // Hiba vagy megszakítás esetén nincs lezárás (XLSX csomag leírók, PDF kereszthivatkozás),
+            // így a félkész kimenet nem látszik érvényes fájlnak
+            if (!completed)
+            {
+                if (writer != null)
+                {
+                    writer.abort();
+                }
+                else
+                {
+                    out.close();
+                }
+            }
+        }
+    }
+
+    private static ReportWriter createWriter(Kind kind, Format format, OutputStream out) throws IOException
+    {
+        switch (format)
+        {
+            case PDF:
+                return new PdfReportWriter(out, kind.columnWeights);
+            case XLSX:
+            default:
+                int[] widths = Arrays.stream(kind.columnWeights).map(weight -> Math.max(6, weight)).toArray();
+                return new XlsxReportWriter(out, kind.sheetName, widths);
+        }
+    }
+
+    // Sorok átadása az írónak; szakaszváltás, ha a kulcs oszlopok értéke megváltozik
+
+    private long stream(Kind kind, List<String> params, ReportWriter writer, long total, Progress progress)
+            throws SQLException
+    {
+        Object[] sectionKey = new Object[kind.keyColumns];
+        Object[] cells = new Object[kind.headers.size()];
+        long[] counters = new long[2]; // [0] = összes sor, [1] = sor az aktuális szakaszban
+
+        dbManager.forEachReportRow(kind.select + " " + kind.fromWhere + " " + kind.orderBy, params, row ->
+        {
+            try
+            {
+                if (counters[0] == 0 || !keyEquals(sectionKey, row))
+                {
+                    if (counters[0] > 0)
+                    {
+                        writer.endSection(kind.summary(counters[1]));
+                    }
+                    System.arraycopy(row, 0, sectionKey, 0, sectionKey.length);
+                    writer.beginSection(kind.title(row), kind.headers);
+                    counters[1] = 0;
+                }
+
+                counters[1]++;
+                cells[0] = counters[1];
+                System.arraycopy(row, kind.keyColumns, cells, 1, cells.length - 1);
+                writer.writeRow(cells);
+
+                if (++counters[0] % PROGRESS_INTERVAL == 0)
+                {
+                    if (progress.isCancelled())
+                    {
+                        throw new CancellationException("Jelentés megszakítva");
+                    }
+                    progress.update(counters[0], total);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        try
+        {
+            if (counters[0] > 0)
+            {
+                writer.endSection(kind.summary(counters[1]));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        progress.update(counters[0], total);
+        return counters[0];
+    }
+
+    private static boolean keyEquals(Object[] key, Object[] row)
+    {
+        for (int i = 0; i < key.length; i++)
+        {
+            if (!Objects.equals(key[i], row[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
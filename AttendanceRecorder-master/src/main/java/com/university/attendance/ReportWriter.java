@@ -0,0 +1,45 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Jelentés formátum író (XLSX, PDF)
+ *
+ * A sorok érkezési sorrendben, egyenként kerülnek a kimenetbe - a megvalósítások
+ * semmit nem gyűjtenek a memóriába, ami a sorok számával nő. Egy jelentés szakaszokból
+ * áll (pl. egy nap vagy egy hallgató), minden szakasznak saját címe és fejléce van.
+ */
+public interface ReportWriter extends AutoCloseable
+{
+    /**
+     * Új szakasz kezdése
+     * @param title A szakasz címe
+     * @param headers Oszlopfejlécek
+     */
+    void beginSection(String title, List<String> headers) throws IOException;
+
+    /**
+     * Egy sor kiírása az aktuális szakaszba
+     * @param cells Cellák: a Number típusúak számként, a többi szövegként kerül ki
+     */
+    void writeRow(Object... cells) throws IOException;
+
+    /**
+     * Szakasz lezárása
+     * @param summary Összesítő sor (pl. "Jelen: 42 fő"), null ha nincs
+     */
+    void endSection(String summary) throws IOException;
+
+    /**
+     * A dokumentum lezárása (a kimenet csak ezután érvényes fájl)
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Megszakítás hiba esetén: a dokumentum nem kap lezárást (a félkész kimenet így nem
+     * látszik érvényes fájlnak), csak a cél adatfolyam és a saját erőforrások zárulnak
+     */
+    void abort();
+}
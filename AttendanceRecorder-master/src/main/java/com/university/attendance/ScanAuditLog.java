@@ -0,0 +1,67 @@
+package com.university.attendance;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+/**
+ * Audit napló: minden beolvasási kísérlet egy sorban (idő;forrás;eredmény;Neptun;név;kód),
+ * a jelenlétekkel ellentétben a sikertelen és ismételt beolvasások is.
+ * A ScanEventBus saját kézbesítő szálán ír, így a lemez lassúsága nem érinti a beolvasást.
+ */
+public class ScanAuditLog implements Consumer<ScanEvent>, AutoCloseable
+{
+    private final Path file;
+    private final BufferedWriter writer;
+
+    public ScanAuditLog(Path file) throws IOException
+    {
+        this.file = file;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void accept(ScanEvent event)
+    {
+        BarcodeScanner.ScanResult result = event.getResult();
+        try
+        {
+            writer.write(Instant.ofEpochMilli(event.getTimestampMillis()).toString());
+            writer.write(';');
+            writer.write(event.getSource().name());
+            writer.write(';');
+            writer.write(result.getStatus().name());
+            writer.write(';');
+            writer.write(clean(result.getNeptun()));
+            writer.write(';');
+            writer.write(clean(result.getName()));
+            writer.write(';');
+            writer.write(clean(result.getCode()));
+            writer.newLine();
+            writer.flush();
+        }
+        catch (IOException e)
+        {
+            System.err.println("Audit napló írási hiba (" + file + "): " + e.getMessage());
+        }
+    }
+
+    // A mezőelválasztó és a sortörés nem kerülhet a sorba
+
+    private static String clean(String value)
+    {
+        return value.replace(';', ',').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        writer.close();
+    }
+}
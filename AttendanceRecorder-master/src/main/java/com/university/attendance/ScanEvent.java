@@ -0,0 +1,65 @@
+package com.university.attendance;
+
+/**
+ * Egy beolvasás kimenetele a ScanEventBus-on: honnan jött és mi lett az eredménye
+ */
+public class ScanEvent
+{
+    /**
+     * A beolvasás forrása
+     */
+    public enum Source
+    {
+        CAMERA("QR-kód"),
+        BARCODE("Vonalkód"),
+        API("HTTP API");
+
+        private final String label;
+
+        Source(String label)
+        {
+            this.label = label;
+        }
+
+        public String getLabel()
+        {
+            return label;
+        }
+    }
+
+    private final Source source;
+    private final BarcodeScanner.ScanResult result;
+    private final long timestampMillis;
+    private final long publishedNanos;
+
+    public ScanEvent(Source source, BarcodeScanner.ScanResult result)
+    {
+        this.source = source;
+        this.result = result;
+        this.timestampMillis = System.currentTimeMillis();
+        this.publishedNanos = System.nanoTime();
+    }
+
+    public Source getSource()
+    {
+        return source;
+    }
+
+    public BarcodeScanner.ScanResult getResult()
+    {
+        return result;
+    }
+
+    public long getTimestampMillis()
+    {
+        return timestampMillis;
+    }
+
+    /**
+     * A közzététel ideje (System.nanoTime) - a fogyasztók ebből mérik a késésüket
+     */
+    public long getPublishedNanos()
+    {
+        return publishedNanos;
+    }
+}
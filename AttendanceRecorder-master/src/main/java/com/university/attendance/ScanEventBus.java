@@ -0,0 +1,337 @@
+package com.university.attendance;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Beolvasási események szétosztása a fogyasztóknak (UI visszajelzés, metrikák, audit napló)
+ *
+ * A termelők (kamera, vonalkód olvasó, HTTP API) a publish() hívással adják át az eseményt;
+ * ez csak a fogyasztók saját, korlátos pufferébe tesz, soha nem vár a fogyasztóra.
+ * Minden fogyasztót külön kézbesítő feladat szolgál ki (a Flow szabályai szerint sorosan és a
+ * kért mennyiségig), így egy lassú fogyasztó csak a saját pufferét tölti meg. Tele puffernél
+ * a fogyasztóhoz megadott szabály dönt: a legrégebbi vagy az új esemény esik ki.
+ */
+public class ScanEventBus implements Flow.Publisher<ScanEvent>, AutoCloseable
+{
+    /**
+     * Mi történjen, ha egy fogyasztó puffere megtelt
+     */
+    public enum OverflowPolicy
+    {
+        // A legrégebbi várakozó esemény kiesik (pl. UI: csak a legutolsó számít)
+        DROP_OLDEST,
+        // Az új esemény kiesik (a már pufferelt sorrend megmarad)
+        DROP_NEWEST
+    }
+
+    // Név és beállítások nélküli Flow.Subscriber-ek puffere
+    public static final int DEFAULT_CAPACITY = 256;
+
+    // Leállításkor ennyi ideig kézbesítjük még a pufferelt eseményeket
+    private static final long CLOSE_TIMEOUT_SECONDS = 1;
+
+    private final ExecutorService delivery = Executors.newCachedThreadPool(ScanExecutor.daemonFactory("scan-events"));
+    private final List<SinkSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger unnamed = new AtomicInteger();
+    private final AtomicLong published = new AtomicLong();
+    private volatile boolean closed;
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ScanEvent> subscriber)
+    {
+        subscribe("fogyasztó-" + unnamed.incrementAndGet(), DEFAULT_CAPACITY, OverflowPolicy.DROP_NEWEST, subscriber);
+    }
+
+    /**
+     * Fogyasztó feliratkoztatása saját pufferrel
+     * @param name A fogyasztó neve (napló és állapot összesítő)
+     * @param capacity Legfeljebb ennyi kézbesítetlen esemény várakozhat
+     * @param policy Tele puffer esetén kieső esemény
+     */
+    public void subscribe(String name, int capacity, OverflowPolicy policy, Flow.Subscriber<? super ScanEvent> subscriber)
+    {
+        if (capacity < 1)
+        {
+            throw new IllegalArgumentException("A puffer mérete legalább 1: " + capacity);
+        }
+        SinkSubscription subscription = new SinkSubscription(name, capacity, policy, subscriber);
+        subscriber.onSubscribe(subscription);
+        if (closed)
+        {
+            subscription.complete();
+            return;
+        }
+        subscriptions.add(subscription);
+    }
+
+    /**
+     * Egyszerű fogyasztó: minden eseményt kér, a hibáit naplózza és utána is fogad
+     */
+    public void subscribe(String name, int capacity, OverflowPolicy policy, Consumer<ScanEvent> sink)
+    {
+        subscribe(name, capacity, policy, new Flow.Subscriber<ScanEvent>()
+        {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription)
+            {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(ScanEvent event)
+            {
+                try
+                {
+                    sink.accept(event);
+                }
+                catch (RuntimeException e)
+                {
+                    System.err.println("Esemény fogyasztó hiba (" + name + "): " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+
+            @Override
+            public void onError(Throwable error)
+            {
+                System.err.println("Esemény fogyasztó leállt (" + name + "): " + error.getMessage());
+            }
+
+            @Override
+            public void onComplete()
+            {
+            }
+        });
+    }
+
+    /**
+     * Esemény átadása minden fogyasztónak (bármelyik szálról; nem blokkol)
+     */
+    public void publish(ScanEvent event)
+    {
+        if (closed)
+        {
+            return;
+        }
+        published.incrementAndGet();
+        for (SinkSubscription subscription : subscriptions)
+        {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Fogyasztónkénti állapot: kézbesített, kiesett és éppen pufferelt események
+     */
+    public String summary()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Beolvasási események: %,d közzétéve", published.get()));
+        for (SinkSubscription subscription : subscriptions)
+        {
+            sb.append(String.format("%n  %-12s kézbesítve: %,d, kiesett: %,d, pufferben: %d/%d (%s)",
+                    subscription.name, subscription.delivered.get(), subscription.dropped.get(),
+                    subscription.buffered(), subscription.capacity, subscription.policy));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Leállítás: új esemény nem kerül be, a pufferelt események rövid ideig még kézbesítődnek,
+     * utána a fogyasztók onComplete jelzést kapnak
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        for (SinkSubscription subscription : subscriptions)
+        {
+            subscription.complete();
+        }
+        delivery.shutdown();
+        try
+        {
+            if (!delivery.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            {
+                System.err.println("Esemény kézbesítés nem fejeződött be időben");
+                delivery.shutdownNow();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Egy fogyasztó puffere és kézbesítése. A wip számláló biztosítja, hogy egyszerre legfeljebb
+    // egy kézbesítő feladat fusson, és a közben érkezett jelzések se vesszenek el.
+
+    private final class SinkSubscription implements Flow.Subscription, Runnable
+    {
+        private final String name;
+        private final int capacity;
+        private final OverflowPolicy policy;
+        private final Flow.Subscriber<? super ScanEvent> subscriber;
+
+        // this-en szinkronizálva
+        private final ArrayDeque<ScanEvent> buffer;
+        private long demand;
+        private boolean completing;
+        private boolean done;
+
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean cancelled;
+
+        SinkSubscription(String name, int capacity, OverflowPolicy policy, Flow.Subscriber<? super ScanEvent> subscriber)
+        {
+            this.name = name;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.subscriber = subscriber;
+            this.buffer = new ArrayDeque<>(Math.min(capacity, DEFAULT_CAPACITY));
+        }
+
+        void offer(ScanEvent event)
+        {
+            synchronized (this)
+            {
+                if (cancelled || completing)
+                {
+                    return;
+                }
+                if (buffer.size() >= capacity)
+                {
+                    dropped.incrementAndGet();
+                    if (policy == OverflowPolicy.DROP_NEWEST)
+                    {
+                        return;
+                    }
+                    buffer.poll();
+                }
+                buffer.add(event);
+            }
+            signal();
+        }
+
+        void complete()
+        {
+            synchronized (this)
+            {
+                completing = true;
+            }
+            signal();
+        }
+
+        synchronized int buffered()
+        {
+            return buffer.size();
+        }
+
+        @Override
+        public void request(long n)
+        {
+            if (n <= 0)
+            {
+                cancel();
+                subscriber.onError(new IllegalArgumentException("A kért mennyiség pozitív kell legyen: " + n));
+                return;
+            }
+            synchronized (this)
+            {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel()
+        {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (this)
+            {
+                buffer.clear();
+            }
+        }
+
+        private void signal()
+        {
+            if (wip.getAndIncrement() == 0)
+            {
+                try
+                {
+                    delivery.execute(this);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    // Leállítás közben: a maradékot már nem kézbesítjük
+                    wip.set(0);
+                }
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            int missed = 1;
+            do
+            {
+                while (true)
+                {
+                    ScanEvent event;
+                    boolean finished;
+                    synchronized (this)
+                    {
+                        if (cancelled || done)
+                        {
+                            break;
+                        }
+                        finished = completing && buffer.isEmpty();
+                        done = finished;
+                        event = finished || demand == 0 ? null : buffer.poll();
+                        if (event != null && demand != Long.MAX_VALUE)
+                        {
+                            demand--;
+                        }
+                    }
+                    if (finished)
+                    {
+                        subscriber.onComplete();
+                        break;
+                    }
+                    if (event == null)
+                    {
+                        break;
+                    }
+                    try
+                    {
+                        subscriber.onNext(event);
+                        delivered.incrementAndGet();
+                    }
+                    catch (RuntimeException e)
+                    {
+                        // A Flow szerződés szerint a hibás fogyasztó kapcsolata megszűnik
+                        System.err.println("Esemény fogyasztó hiba (" + name + "): " + e.getMessage());
+                        cancel();
+                        subscriber.onError(e);
+                        break;
+                    }
+                }
+                missed = wip.addAndGet(-missed);
+            }
+            while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.university.attendance;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Beolvasások blokkoló munkájának (DB ellenőrzés, beszúrás, számlálás, hallgató keresés)
+ * futtatása a JavaFX szálon kívül.
+ *
+ * Minden feladat saját virtuális szálon fut (Java 21+), így a DB-re váró beolvasások nem
+ * foglalnak platform szálat.
+ * Az adatbázis elé egy fair szemafor kerül, így egyszerre legfeljebb
+ * {@code dbPermits} feladat használja a kapcsolatot.
+ */
+public class ScanExecutor implements AutoCloseable
+{
+    // Ennyi ideig várunk a futó feladatokra leállításkor
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final Semaphore dbPermits;
+
+    /**
+     * Konstruktor
+     * @param dbPermits Egyszerre ennyi feladat férhet hozzá az adatbázishoz
+     */
+    public ScanExecutor(int dbPermits)
+    {
+        this.workers = Executors.newVirtualThreadPerTaskExecutor();
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonFactory("scan-timer"));
+        this.dbPermits = new Semaphore(dbPermits, true);
+    }
+
+    /**
+     * Feladat futtatása háttérszálon, az adatbázis korlátozón keresztül
+     * @param task A blokkoló munka (DB hozzáféréssel)
+     * @return A feladat eredménye, ha elkészült
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task)
+    {
+        return CompletableFuture.supplyAsync(() ->
+        {
+            try
+            {
+                dbPermits.acquire();
+                try
+                {
+                    return task.call();
+                }
+                finally
+                {
+                    dbPermits.release();
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            catch (Exception e)
+            {
+                throw new CompletionException(e);
+            }
+        }, workers);
+    }
+
+    /**
+     * Feladat futtatása háttérszálon, az adatbázis korlátozón keresztül
+     */
+    public CompletableFuture<Void> run(Runnable task)
+    {
+        return submit(() ->
+        {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Késleltetett feladat (pl. státusz visszaállítása), DB korlát nélkül
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit)
+    {
+        return timer.schedule(() -> workers.execute(task), delay, unit);
+    }
+
+    /**
+     * Ismétlődő háttérfeladat (pl. replikáció), DB korlát nélkül. A feladat nem fut
+     * önmagával párhuzamosan: ha az előző futás még tart, az adott ütem kimarad.
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit)
+    {
+        AtomicBoolean running = new AtomicBoolean();
+        return timer.scheduleAtFixedRate(() ->
+        {
+            if (!running.compareAndSet(false, true))
+            {
+                return;
+            }
+            workers.execute(() ->
+            {
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    running.set(false);
+                }
+            });
+        }, initialDelay, period, unit);
+    }
+
+    /**
+     * Strukturált leállítás: új feladat már nem indul, a futók befejeződhetnek,
+     * a határidő után a maradékot megszakítjuk
+     */
+    @Override
+    public void close()
+    {
+        timer.shutdownNow();
+        workers.shutdown();
+        try
+        {
+            if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            {
+                System.err.println("Beolvasási feladatok nem fejeződtek be időben, megszakítás...");
+                workers.shutdownNow();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static ThreadFactory daemonFactory(String prefix)
+    {
+        AtomicInteger counter = new AtomicInteger();
+        return r ->
+        {
+            Thread thread = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,519 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Összeomlás-biztos, memóriába leképezett beolvasási napló az SQLite előtt
+ *
+ * Minden elfogadott beolvasás előbb ide kerül (append-only, a leképezett lap
+ * azonnal lemezre írva), és csak utána, háttérszálon, az adatbázisba.
+ * Így a visszajelzés nem függ az SQLite zárolástól, és egy sikertelen DB írás
+ * sem veszik el: a napló újrapróbálja, induláskor pedig visszajátssza
+ * a még nem alkalmazott bejegyzéseket. A visszajátszás a (neptun, date) kulcsra
+ * idempotens, így egy bejegyzés kétszeri alkalmazása sem okoz duplikációt.
+ *
+ * Fájl formátum:
+ *   fejléc: magic (int), verzió (int), alkalmazott pozíció (long)
+ *   rekord: hossz (int), CRC32 (int), UTF-8 adat (név, szak, neptun, dátum, alkalom 0x1F-fel elválasztva;
+ *           az 1-es verzió rekordjaiban nincs alkalom, ezek a nap alapértelmezett alkalmába kerülnek)
+ *   A 0 hosszú rekord jelzi a napló végét; a hibás CRC-jű (félbeszakadt) rekord is a végét jelzi.
+ */
+public class ScanJournal implements AutoCloseable
+{
+    private static final int MAGIC = 0x4A524E4C; // "JRNL"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+    private static final int APPLIED_OFFSET_POS = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 1 << 20;
+    private static final char SEPARATOR = '\u001F';
+
+    // Sikertelen DB írás után ennyit várunk az újrapróbálás előtt
+    private static final long RETRY_DELAY_MS = 500;
+
+    /**
+     * Egy naplózott, még nem alkalmazott beolvasás
+     */
+    private static class JournalEntry
+    {
+        final String name;
+        final String major;
+        final String neptun;
+        final String date;
+        final long sessionId;
+        final int endOffset;
+
+        JournalEntry(String name, String major, String neptun, String date, long sessionId, int endOffset)
+        {
+            this.name = name;
+            this.major = major;
+            this.neptun = neptun;
+            this.date = date;
+            this.sessionId = sessionId;
+            this.endOffset = endOffset;
+        }
+
+        // Duplikáció kulcs: egy hallgató alkalmanként egyszer (0 = a nap alapértelmezett alkalma)
+        String key()
+        {
+            return ScanJournal.key(neptun, date, sessionId);
+        }
+    }
+
+    private final Path file;
+    private final DatabaseManager dbManager;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+
+    // Naplóba írt, de még nem alkalmazott bejegyzések száma (a napló zárja alatt); a napló
+    // elejére csak akkor tekerhetünk, ha ez 0
+    private int unapplied;
+
+    // Még nem alkalmazott bejegyzések (neptun|date|alkalom kulcs szerint) és sorrendjük
+    private final Map<String, JournalEntry> pending = new ConcurrentHashMap<>();
+    private final BlockingQueue<JournalEntry> replayQueue = new LinkedBlockingQueue<>();
+
+    // Az alkalmazás és a pending-ből törlés egy lépésként látszik a számlálók felé
+    private final ReentrantLock applyLock = new ReentrantLock();
+
+    private final Thread replayThread;
+    private volatile boolean running = true;
+
+    /**
+     * Napló megnyitása (vagy létrehozása) és a még nem alkalmazott bejegyzések visszaállítása
+     * @param file A napló fájl útvonala
+     * @param dbManager Ide játssza vissza a bejegyzéseket (már inicializált)
+     */
+    public ScanJournal(Path file, DatabaseManager dbManager) throws IOException
+    {
+        this.file = file;
+        this.dbManager = dbManager;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = Math.max(channel.size(), INITIAL_CAPACITY);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (buffer.getInt(0) != MAGIC)
+        {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putLong(APPLIED_OFFSET_POS, HEADER_SIZE);
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force(0, HEADER_SIZE + RECORD_HEADER_SIZE);
+        }
+
+        recover();
+
+        replayThread = new Thread(this::replayLoop, "journal-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    /**
+     * Beolvasás elfogadása: ha a hallgató az aktív alkalmon (ennek hiányában ma) még nem
+     * szerepelt, a bejegyzés tartósan a naplóba kerül, és a hívó azonnal visszajelezhet -
+     * a DB írás később történik.
+     * @return true ha új jelenlét, false ha ezen az alkalmon már be volt olvasva (DB-ben vagy a naplóban)
+     * @throws SQLException ha a duplikáció ellenőrzés lekérdezése sikertelen (semmi sem kerül a naplóba)
+     */
+    public boolean record(String name, String major, String neptun, String date) throws IOException, SQLException
+    {
+        return recordBatch(List.of(new AttendanceEvent(name, major, neptun, date)))[0];
+    }
+
+    /**
+     * Több beolvasás elfogadása egyszerre (pl. egy képkockán több QR kód)
+     * A duplikáció ellenőrzés egyetlen DB lekérdezés, a naplóba írás egyetlen lemezre írás.
+     * Az alkalom a beolvasás napján aktív alkalom (DatabaseManager.getActiveSessionId).
+     * @return Elemenként: true ha új jelenlét, false ha ezen az alkalmon már be volt olvasva
+     * @throws SQLException ha a duplikáció ellenőrzés lekérdezése sikertelen (semmi sem kerül a naplóba)
+     */
+    public boolean[] recordBatch(List<AttendanceEvent> scans) throws IOException, SQLException
+    {
+        boolean[] accepted = new boolean[scans.size()];
+        JournalEntry[] reservations = new JournalEntry[scans.size()];
+
+        // Először foglaljuk a kulcsokat, utána nézzük a DB-t: így két párhuzamos
+        // beolvasás közül csak az egyik juthat tovább
+        // Ellenőrzési csoportok (nap + alkalom) szerint: csoportonként egy lekérdezés
+        Map<String, List<JournalEntry>> groups = new HashMap<>();
+        for (int i = 0; i < scans.size(); i++)
+        {
+            AttendanceEvent scan = scans.get(i);
+            JournalEntry reservation = new JournalEntry(scan.getName(), scan.getMajor(), scan.getNeptun(),
+                    scan.getDate(), dbManager.getActiveSessionId(scan.getDate()), -1);
+            if (pending.putIfAbsent(reservation.key(), reservation) == null)
+            {
+                reservations[i] = reservation;
+                groups.computeIfAbsent(reservation.date + "|" + reservation.sessionId, g -> new ArrayList<>()).add(reservation);
+            }
+        }
+
+        Set<String> alreadyScanned = new HashSet<>();
+        try
+        {
+            for (List<JournalEntry> group : groups.values())
+            {
+                JournalEntry first = group.get(0);
+                Set<String> neptuns = new HashSet<>();
+                for (JournalEntry reservation : group)
+                {
+                    neptuns.add(reservation.neptun.toUpperCase());
+                }
+                for (String neptun : dbManager.findScanned(neptuns, first.date, first.sessionId))
+                {
+                    alreadyScanned.add(key(neptun, first.date, first.sessionId));
+                }
+            }
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            // Ellenőrzés nélkül nem fogadhatunk el: a foglalások felszabadulnak, a hívó hibát jelez
+            for (JournalEntry reservation : reservations)
+            {
+                if (reservation != null)
+                {
+                    pending.remove(reservation.key(), reservation);
+                }
+            }
+            throw e;
+        }
+
+        List<JournalEntry> toAppend = new ArrayList<>();
+        for (int i = 0; i < scans.size(); i++)
+        {
+            JournalEntry reservation = reservations[i];
+            if (reservation == null)
+            {
+                continue;
+            }
+            String key = reservation.key();
+            if (alreadyScanned.contains(key))
+            {
+                pending.remove(key, reservation);
+                reservations[i] = null;
+            }
+            else
+            {
+                toAppend.add(reservation);
+            }
+        }
+
+        if (toAppend.isEmpty())
+        {
+            return accepted;
+        }
+
+        try
+        {
+            append(toAppend);
+        }
+        catch (IOException | RuntimeException e)
+        {
+            for (JournalEntry reservation : toAppend)
+            {
+                pending.remove(reservation.key(), reservation);
+            }
+            throw e;
+        }
+
+        for (int i = 0; i < scans.size(); i++)
+        {
+            accepted[i] = reservations[i] != null;
+        }
+        return accepted;
+    }
+
+    /**
+     * Hallgató összes jelenléti alkalma: az adatbázisban lévők és a még csak naplózottak
+     */
+    public int getTotalScans(String neptun)
+    {
+        String prefix = neptun.toUpperCase() + "|";
+        applyLock.lock();
+        try
+        {
+            int pendingCount = 0;
+            for (String key : pending.keySet())
+            {
+                if (key.startsWith(prefix))
+                {
+                    pendingCount++;
+                }
+            }
+            return dbManager.getTotalScans(neptun) + pendingCount;
+        }
+        finally
+        {
+            applyLock.unlock();
+        }
+    }
+
+    /**
+     * Még nem alkalmazott bejegyzések száma
+     */
+    public int getPendingCount()
+    {
+        return replayQueue.size();
+    }
+
+    /**
+     * A még sorban álló bejegyzések alkalmazása (legfeljebb a megadott ideig), majd lezárás
+     * Ami nem fért bele, az a következő induláskor kerül visszajátszásra.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!replayQueue.isEmpty() && System.currentTimeMillis() < deadline)
+        {
+            try
+            {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        running = false;
+        replayThread.interrupt();
+        try
+        {
+            replayThread.join(1000);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this)
+        {
+            buffer.force();
+            channel.close();
+        }
+        System.out.println("Beolvasási napló lezárva: " + file);
+    }
+
+    // Rekordok hozzáfűzése és egyetlen lemezre írása (msync csak az érintett tartományra)
+    // A bejegyzések még a zár alatt kerülnek a visszajátszási sorba, így a sor sorrendje
+    // mindig a naplóbeli sorrend (a pozíció mentése erre épít)
+
+    private synchronized void append(List<JournalEntry> scans) throws IOException
+    {
+        byte[][] payloads = new byte[scans.size()][];
+        int[] offsets = new int[scans.size() + 1];
+        for (int i = 0; i < scans.size(); i++)
+        {
+            JournalEntry scan = scans.get(i);
+            payloads[i] = String.join(String.valueOf(SEPARATOR), scan.name, scan.major, scan.neptun, scan.date,
+                    Long.toString(scan.sessionId)).getBytes(StandardCharsets.UTF_8);
+            offsets[i + 1] = offsets[i] + RECORD_HEADER_SIZE + payloads[i].length;
+        }
+        int totalSize = offsets[scans.size()];
+
+        // A rekordok után mindig marad hely a lezáró 0 hossznak
+        ensureCapacity(writePosition + totalSize + RECORD_HEADER_SIZE);
+
+        int start = writePosition;
+        CRC32 crc = new CRC32();
+
+        // Hátulról írunk, és az első rekord hossza kerül be utoljára: ha a folyamat írás közben
+        // leáll, a batch-ből semmi sem látszik érvényesnek. Ez csak a folyamat összeomlása ellen véd
+        // (a leképezett lapok az OS-nél maradnak); áramszünetnél a force() nem garantál sorrendet a
+        // lapok között, így a batch eleje megmaradhat a vége nélkül. Ekkor a rekordonkénti CRC az első
+        // hiányos rekordnál zárja le a naplót: a batch egy része visszajátszódhat, de sérült adat nem.
+        buffer.putInt(start + totalSize, 0);
+        for (int i = scans.size() - 1; i >= 0; i--)
+        {
+            int position = start + offsets[i];
+            crc.reset();
+            crc.update(payloads[i]);
+            buffer.put(position + RECORD_HEADER_SIZE, payloads[i]);
+            buffer.putInt(position + 4, (int) crc.getValue());
+            buffer.putInt(position, payloads[i].length);
+        }
+        buffer.force(start, totalSize + RECORD_HEADER_SIZE);
+
+        writePosition = start + totalSize;
+        unapplied += scans.size();
+        for (int i = 0; i < scans.size(); i++)
+        {
+            JournalEntry reservation = scans.get(i);
+            JournalEntry entry = new JournalEntry(reservation.name, reservation.major, reservation.neptun,
+                    reservation.date, reservation.sessionId, start + offsets[i + 1]);
+            pending.replace(entry.key(), reservation, entry);
+            replayQueue.add(entry);
+        }
+    }
+
+    // Induláskor: az alkalmazott pozíciótól a naplóban maradt bejegyzések újra sorba állnak
+
+    private synchronized void recover()
+    {
+        int position = (int) buffer.getLong(APPLIED_OFFSET_POS);
+        int recovered = 0;
+
+        while (position + RECORD_HEADER_SIZE <= buffer.capacity())
+        {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity())
+            {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 4))
+            {
+                // Félbeszakadt írás: innentől nincs érvényes adat
+                System.err.println("Sérült napló rekord, a napló itt véget ér: " + position);
+                break;
+            }
+
+            String[] fields = new String(payload, StandardCharsets.UTF_8).split(String.valueOf(SEPARATOR), -1);
+            position += RECORD_HEADER_SIZE + length;
+            if (fields.length == 4 || fields.length == 5)
+            {
+                long sessionId = fields.length == 5 ? Long.parseLong(fields[4]) : 0;
+                JournalEntry entry = new JournalEntry(fields[0], fields[1], fields[2], fields[3], sessionId, position);
+                pending.put(entry.key(), entry);
+                replayQueue.add(entry);
+                recovered++;
+            }
+        }
+
+        writePosition = position;
+        unapplied = recovered;
+        if (recovered > 0)
+        {
+            System.out.println("Beolvasási napló: " + recovered + " nem alkalmazott bejegyzés visszajátszása");
+        }
+    }
+
+    // Háttérszál: a bejegyzések sorrendben kerülnek az adatbázisba, hiba esetén újrapróba
+
+    private void replayLoop()
+    {
+        while (running)
+        {
+            JournalEntry entry;
+            try
+            {
+                entry = replayQueue.poll(1, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+
+            if (entry == null)
+            {
+                continue;
+            }
+
+            while (running)
+            {
+                try
+                {
+                    apply(entry);
+                    break;
+                }
+                catch (SQLException e)
+                {
+                    System.err.println("Napló visszajátszási hiba, újrapróbálás: " + e.getMessage());
+                    try
+                    {
+                        Thread.sleep(RETRY_DELAY_MS);
+                    }
+                    catch (InterruptedException ie)
+                    {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void apply(JournalEntry entry) throws SQLException
+    {
+        applyLock.lock();
+        try
+        {
+            // Idempotens: ha már bent van (pl. összeomlás a pozíció mentése előtt), nem duplikál
+            dbManager.applyAttendance(entry.name, entry.major, entry.neptun, entry.date, entry.sessionId);
+            pending.remove(entry.key(), entry);
+        }
+        finally
+        {
+            applyLock.unlock();
+        }
+        markApplied(entry.endOffset);
+    }
+
+    // Alkalmazott pozíció mentése; ha minden naplózott bejegyzés alkalmazva van, a napló
+    // elejére tekerünk (folyamatban lévő hozzáfűzés a zár miatt ekkor nem lehet)
+
+    private synchronized void markApplied(int offset)
+    {
+        unapplied--;
+        if (unapplied == 0 && offset == writePosition)
+        {
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.putLong(APPLIED_OFFSET_POS, HEADER_SIZE);
+            buffer.force(0, HEADER_SIZE + RECORD_HEADER_SIZE);
+            writePosition = HEADER_SIZE;
+            return;
+        }
+
+        buffer.putLong(APPLIED_OFFSET_POS, offset);
+        buffer.force(APPLIED_OFFSET_POS, 8);
+    }
+
+    // Ha nem fér el a rekord, a fájl kétszeresére nő és újra leképezzük
+
+    private void ensureCapacity(int required) throws IOException
+    {
+        if (required <= buffer.capacity())
+        {
+            return;
+        }
+        long newSize = buffer.capacity();
+        while (newSize < required)
+        {
+            newSize *= 2;
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+    }
+
+    private static String key(String neptun, String date, long sessionId)
+    {
+        return neptun.toUpperCase() + "|" + date + "|" + sessionId;
+    }
+}
@@ -0,0 +1,65 @@
+package com.university.attendance;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Beolvasási metrikák a ScanEventBus-ról: forrásonként és eredményenként darabszám,
+ * valamint a közzététel -> kézbesítés késés (mennyit vár egy esemény a fogyasztóra)
+ */
+public class ScanMetrics implements Consumer<ScanEvent>
+{
+    private final LongAdder[][] counts =
+            new LongAdder[ScanEvent.Source.values().length][BarcodeScanner.ScanResult.Status.values().length];
+    private final LatencyRecorder deliveryLag = new LatencyRecorder(1024);
+
+    public ScanMetrics()
+    {
+        for (LongAdder[] row : counts)
+        {
+            for (int i = 0; i < row.length; i++)
+            {
+                row[i] = new LongAdder();
+            }
+        }
+    }
+
+    @Override
+    public void accept(ScanEvent event)
+    {
+        counts[event.getSource().ordinal()][event.getResult().getStatus().ordinal()].increment();
+        deliveryLag.record(System.nanoTime() - event.getPublishedNanos());
+    }
+
+    /**
+     * Adott forrásból adott eredménnyel érkezett beolvasások száma
+     */
+    public long getCount(ScanEvent.Source source, BarcodeScanner.ScanResult.Status status)
+    {
+        return counts[source.ordinal()][status.ordinal()].sum();
+    }
+
+    public LatencyRecorder getDeliveryLag()
+    {
+        return deliveryLag;
+    }
+
+    /**
+     * Forrásonkénti összesítő, pl. "Vonalkód: 12 (új: 10, ismételt: 2, ismeretlen: 0, hibás: 0)"
+     */
+    public String summary()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (ScanEvent.Source source : ScanEvent.Source.values())
+        {
+            long accepted = getCount(source, BarcodeScanner.ScanResult.Status.ACCEPTED);
+            long repeated = getCount(source, BarcodeScanner.ScanResult.Status.ALREADY_SCANNED);
+            long unknown = getCount(source, BarcodeScanner.ScanResult.Status.UNKNOWN_STUDENT);
+            long invalid = getCount(source, BarcodeScanner.ScanResult.Status.INVALID_FORMAT);
+            sb.append(String.format("  %-9s %,6d (új: %,d, ismételt: %,d, ismeretlen: %,d, hibás: %,d)%n",
+                    source.getLabel() + ":", accepted + repeated + unknown + invalid, accepted, repeated, unknown, invalid));
+        }
+        sb.append("  Kézbesítési késés: ").append(deliveryLag);
+        return sb.toString();
+    }
+}
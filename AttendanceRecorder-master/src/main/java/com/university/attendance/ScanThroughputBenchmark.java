@@ -0,0 +1,121 @@
+package com.university.attendance;
+
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Beolvasási áteresztés mérése a ScanExecutor virtuális szálain
+ *
+ * Ideiglenes adatbázisban létrehozza a hallgatókat, majd a lehető leggyorsabban beküld
+ * [beolvasások] darab kódot a BarcodeScanner.processCodeData-n keresztül, egyszerre legfeljebb
+ * [párhuzamos] feldolgozás alatt. A kódok véletlen hallgatók Neptun kódjai, így az első
+ * beolvasás új jelenlét, a többi ismételt. Kiírja a beolvasás/másodperc értéket és a
+ * beküldés -> visszaigazolás késés percentiliseit. Az alkalmazás konzol naplója az ideiglenes
+ * mappába kerül.
+ *
+ * Futtatás: java -cp ... com.university.attendance.ScanThroughputBenchmark [hallgatók] [beolvasások] [párhuzamos]
+ */
+public class ScanThroughputBenchmark
+{
+    public static void main(String[] args) throws Exception
+    {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int scans = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+        PrintStream out = System.out;
+        Path dir = Files.createTempDirectory("attendance-throughput");
+        PrintStream appLog = new PrintStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve("app.log"))),
+                false, "UTF-8");
+        System.setOut(appLog);
+
+        DatabaseManager dbManager = new DatabaseManager("jdbc:sqlite:" + dir.resolve("attendance.db"));
+        ScanExecutor scanExecutor = new ScanExecutor(DatabaseManager.READER_POOL_SIZE + 1);
+        ScanEventBus eventBus = new ScanEventBus();
+        ScanMetrics metrics = new ScanMetrics();
+        ScanJournal scanJournal = null;
+        try
+        {
+            dbManager.initDatabase();
+            String[] neptuns = new String[students];
+            for (int i = 0; i < students; i++)
+            {
+                neptuns[i] = String.format("TP%04d", i);
+                dbManager.insertStudent("Áteresztés Hallgató " + i, "Mérnökinformatikus", neptuns[i]);
+            }
+            dbManager.warmUp();
+
+            eventBus.subscribe("metrikák", 4096, ScanEventBus.OverflowPolicy.DROP_NEWEST, metrics);
+            scanJournal = new ScanJournal(dir.resolve("attendance.journal"), dbManager);
+            BarcodeScanner scanner = new BarcodeScanner(dbManager, scanJournal, scanExecutor, eventBus, message -> { });
+
+            boolean virtual = scanExecutor.submit(() -> Thread.currentThread().isVirtual()).join();
+            out.printf("%,d hallgató, %,d beolvasás, legfeljebb %d egyszerre (virtuális szálak: %s)%n",
+                    students, scans, concurrency, virtual ? "igen" : "nem");
+
+            // Bemelegítés (JIT, gyorsítótárak), nem számít bele a mérésbe
+            run(scanner, neptuns, Math.min(scans, 2000), concurrency, new Random(1), new LatencyRecorder(1));
+
+            LatencyRecorder latency = new LatencyRecorder(Math.max(1, scans));
+            long start = System.nanoTime();
+            long failed = run(scanner, neptuns, scans, concurrency, new Random(42), latency);
+            long elapsed = System.nanoTime() - start;
+
+            out.printf("Áteresztés: %,.0f beolvasás/s (%.2f s, hiba: %d)%n", scans * 1e9 / elapsed, elapsed / 1e9, failed);
+            out.printf("Késés (beküldés -> visszaigazolás): p50=%.2f ms, p99=%.2f ms, p99.9=%.2f ms, max=%.2f ms%n",
+                    latency.getPercentileMillis(50), latency.getPercentileMillis(99),
+                    latency.getPercentileMillis(99.9), latency.getMaxMillis());
+            out.printf("Napló várakozó bejegyzései a mérés végén: %d%n", scanJournal.getPendingCount());
+            out.println(metrics.summary());
+        }
+        finally
+        {
+            scanExecutor.close();
+            eventBus.close();
+            if (scanJournal != null)
+            {
+                scanJournal.close();
+            }
+            dbManager.close();
+            System.setOut(out);
+            appLog.close();
+            StorageBenchmark.deleteAll(dir.toFile());
+        }
+    }
+
+    // Beolvasások beküldése, egyszerre legfeljebb concurrency darab; visszaadja a hibák számát
+
+    private static long run(BarcodeScanner scanner, String[] neptuns, int scans, int concurrency, Random random,
+                            LatencyRecorder latency) throws InterruptedException
+    {
+        Semaphore inFlight = new Semaphore(concurrency);
+        CountDownLatch finished = new CountDownLatch(scans);
+        AtomicLong failed = new AtomicLong();
+        for (int i = 0; i < scans; i++)
+        {
+            inFlight.acquire();
+            long submitted = System.nanoTime();
+            CompletableFuture<Void> scan = scanner.processCodeData(neptuns[random.nextInt(neptuns.length)],
+                    ScanEvent.Source.BARCODE);
+            scan.whenComplete((v, error) ->
+            {
+                latency.record(System.nanoTime() - submitted);
+                if (error != null)
+                {
+                    failed.incrementAndGet();
+                }
+                inFlight.release();
+                finished.countDown();
+            });
+        }
+        finished.await();
+        return failed.get();
+    }
+}
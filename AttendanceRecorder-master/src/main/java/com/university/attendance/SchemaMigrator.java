@@ -0,0 +1,258 @@
+package com.university.attendance;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+/**
+ * Adatbázis séma verziókezelés
+ *
+ * A séma verzióját az SQLite PRAGMA user_version tárolja. Induláskor a hiányzó
+ * lépések sorban, egy-egy tranzakcióban futnak le, így a régi attendance.db fájlok
+ * is automatikusan átállnak az új szerkezetre.
+ */
+public class SchemaMigrator
+{
+    // Az aktuális (legújabb) séma verzió
+    public static final int CURRENT_VERSION = 5;
+
+    // Az átállításkor létrehozott alapértelmezett kurzus (a régi napi jelenlétekhez)
+    public static final String DEFAULT_COURSE_CODE = "ALTALANOS";
+
+    /**
+     * Hiányzó migrációs lépések futtatása
+     * @param connection Író kapcsolat (az alap táblák már léteznek)
+     */
+    public static void migrate(Connection connection) throws SQLException
+    {
+        int version = getVersion(connection);
+
+        while (version < CURRENT_VERSION)
+        {
+            int target = version + 1;
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try (Statement stmt = connection.createStatement())
+            {
+                switch (target)
+                {
+                    case 1:
+                        migrateToCourseSessions(stmt);
+                        break;
+                    case 2:
+                        migrateToNormalizedAttendance(stmt);
+                        break;
+                    case 3:
+                        migrateToReplication(stmt);
+                        break;
+                    case 4:
+                        backfillDefaultSessions(stmt);
+                        break;
+                    case 5:
+                        migrateToPendingBatches(stmt);
+                        break;
+                    default:
+                        throw new SQLException("Ismeretlen séma verzió: " + target);
+                }
+                stmt.execute("PRAGMA user_version = " + target);
+                connection.commit();
+                System.out.println("Adatbázis séma frissítve: v" + version + " -> v" + target);
+            }
+            catch (SQLException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(autoCommit);
+            }
+            version = target;
+        }
+    }
+
+    /**
+     * Aktuális séma verzió lekérdezése
+     */
+    public static int getVersion(Connection connection) throws SQLException
+    {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version"))
+        {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // v1: kurzusok, alkalmak és (session_id, student_id) kulcsú jelenlét
+    // A students tábla egész típusú kulcsot kap, a név és szak csak itt szerepel.
+    // A meglévő napi rekordokból egy alapértelmezett kurzus napi alkalmai lesznek.
+
+    private static void migrateToCourseSessions(Statement stmt) throws SQLException
+    {
+        // Students: egész surrogate kulcs, a Neptun kód egyedi marad
+        stmt.execute("""
+            CREATE TABLE students_v1 (
+                id INTEGER PRIMARY KEY,
+                neptun TEXT NOT NULL UNIQUE,
+                name TEXT NOT NULL,
+                major TEXT NOT NULL
+            )
+        """);
+        stmt.execute("INSERT INTO students_v1 (neptun, name, major) SELECT UPPER(neptun), name, major FROM students");
+
+        // Olyan hallgatók, akik csak QR-kóddal jelentkeztek, és nincsenek a students táblában
+        stmt.execute("""
+            INSERT OR IGNORE INTO students_v1 (neptun, name, major)
+            SELECT UPPER(neptun), name, major FROM attendance_records
+            GROUP BY UPPER(neptun)
+        """);
+        stmt.execute("DROP TABLE students");
+        stmt.execute("ALTER TABLE students_v1 RENAME TO students");
+
+        stmt.execute("""
+            CREATE TABLE courses (
+                id INTEGER PRIMARY KEY,
+                code TEXT NOT NULL UNIQUE,
+                name TEXT NOT NULL
+            )
+        """);
+
+        stmt.execute("""
+            CREATE TABLE sessions (
+                id INTEGER PRIMARY KEY,
+                course_id INTEGER NOT NULL REFERENCES courses(id),
+                date TEXT NOT NULL,
+                start_time TEXT NOT NULL DEFAULT '',
+                UNIQUE(course_id, date, start_time)
+            )
+        """);
+        stmt.execute("CREATE INDEX idx_sessions_date ON sessions(date)");
+
+        // A PRIMARY KEY (WITHOUT ROWID) egyben a "jelenlét alkalmanként" fedő index,
+        // a második index a "hallgató alkalmai" lekérdezést fedi le
+        stmt.execute("""
+            CREATE TABLE session_attendance (
+                session_id INTEGER NOT NULL REFERENCES sessions(id),
+                student_id INTEGER NOT NULL REFERENCES students(id),
+                scanned_at TEXT,
+                PRIMARY KEY (session_id, student_id)
+            ) WITHOUT ROWID
+        """);
+        stmt.execute("CREATE INDEX idx_session_attendance_student ON session_attendance(student_id, session_id)");
+
+        // Régi napi rekordok átvétele az alapértelmezett kurzus napi alkalmaiba
+        stmt.execute("INSERT INTO courses (code, name) VALUES ('" + DEFAULT_COURSE_CODE + "', 'Általános jelenlét')");
+        stmt.execute("""
+            INSERT INTO sessions (course_id, date)
+            SELECT c.id, a.date FROM courses c, (SELECT DISTINCT date FROM attendance_records) a
+            WHERE c.code = '""" + DEFAULT_COURSE_CODE + "'");
+        stmt.execute("""
+            INSERT OR IGNORE INTO session_attendance (session_id, student_id)
+            SELECT s.id, st.id
+            FROM attendance_records a
+            JOIN students st ON st.neptun = UPPER(a.neptun)
+            JOIN sessions s ON s.date = a.date
+            JOIN courses c ON c.id = s.course_id AND c.code = '""" + DEFAULT_COURSE_CODE + "'");
+    }
+
+    // v2: az attendance_records a név és szak másolása helyett a students kulcsára hivatkozik
+    // A (student_id, date) egyedi index a hallgató napjait, a (date, student_id) index
+    // a napi listákat és a dátum szerinti rendezést fedi le.
+
+    private static void migrateToNormalizedAttendance(Statement stmt) throws SQLException
+    {
+        // Időközben (v1 alatt) QR-kóddal érkezett, még ismeretlen hallgatók
+        stmt.execute("""
+            INSERT OR IGNORE INTO students (neptun, name, major)
+            SELECT UPPER(neptun), name, major FROM attendance_records
+            GROUP BY UPPER(neptun)
+        """);
+
+        stmt.execute("""
+            CREATE TABLE attendance_records_v2 (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                student_id INTEGER NOT NULL REFERENCES students(id),
+                date TEXT NOT NULL,
+                scans INTEGER DEFAULT 1,
+                UNIQUE(student_id, date)
+            )
+        """);
+        stmt.execute("""
+            INSERT OR IGNORE INTO attendance_records_v2 (id, student_id, date, scans)
+            SELECT a.id, st.id, a.date, a.scans
+            FROM attendance_records a
+            JOIN students st ON st.neptun = UPPER(a.neptun)
+            ORDER BY a.id
+        """);
+        stmt.execute("DROP TABLE attendance_records");
+        stmt.execute("ALTER TABLE attendance_records_v2 RENAME TO attendance_records");
+        stmt.execute("CREATE INDEX idx_attendance_date ON attendance_records(date, student_id)");
+    }
+
+    // v3: több kioszk közötti replikáció
+    // origin: NULL = helyben rögzített, egyébként a forrás kioszk azonosítója (nem exportáljuk újra).
+    // replication_state: kioszkonként az utoljára exportált / importált rekord azonosító (watermark).
+
+    private static void migrateToReplication(Statement stmt) throws SQLException
+    {
+        stmt.execute("ALTER TABLE attendance_records ADD COLUMN origin TEXT");
+
+        stmt.execute("""
+            CREATE TABLE settings (
+                key TEXT PRIMARY KEY,
+                value TEXT NOT NULL
+            )
+        """);
+        stmt.execute("INSERT INTO settings (key, value) VALUES ('kiosk_id', '"
+                + UUID.randomUUID().toString().substring(0, 8) + "')");
+
+        stmt.execute("""
+            CREATE TABLE replication_state (
+                peer TEXT PRIMARY KEY,
+                exported_id INTEGER NOT NULL DEFAULT 0,
+                imported_id INTEGER NOT NULL DEFAULT 0
+            )
+        """);
+    }
+
+    // v4: a jelenlét kulcsa a (session_id, student_id), az attendance_records napi összesítő.
+    // Azok a napi rekordok, amelyekhez az adott napon egy alkalom jelenlét sem tartozik
+    // (v1 után, de alkalom nélkül rögzítve), az alapértelmezett kurzus napi alkalmába kerülnek.
+
+    private static void backfillDefaultSessions(Statement stmt) throws SQLException
+    {
+        String missing = """
+            NOT EXISTS (SELECT 1 FROM session_attendance sa JOIN sessions s ON s.id = sa.session_id
+                        WHERE sa.student_id = a.student_id AND s.date = a.date)
+        """;
+        stmt.execute("INSERT OR IGNORE INTO courses (code, name) VALUES ('" + DEFAULT_COURSE_CODE + "', 'Általános jelenlét')");
+        stmt.execute("""
+            INSERT OR IGNORE INTO sessions (course_id, date)
+            SELECT DISTINCT c.id, a.date FROM attendance_records a, courses c
+            WHERE c.code = '""" + DEFAULT_COURSE_CODE + "' AND " + missing);
+        stmt.execute("""
+            INSERT OR IGNORE INTO session_attendance (session_id, student_id)
+            SELECT s.id, a.student_id
+            FROM attendance_records a
+            JOIN sessions s ON s.date = a.date AND s.start_time = ''
+            JOIN courses c ON c.id = s.course_id AND c.code = '""" + DEFAULT_COURSE_CODE + "' WHERE " + missing);
+    }
+
+    // v5: a watermark előtt (rés után) érkezett, már beolvasztott batch-ek tartományai.
+    // A rés pótlásakor az importált watermark ezeken is átlép, és a sorok törlődnek.
+
+    private static void migrateToPendingBatches(Statement stmt) throws SQLException
+    {
+        stmt.execute("""
+            CREATE TABLE replication_pending (
+                peer TEXT NOT NULL,
+                from_id INTEGER NOT NULL,
+                to_id INTEGER NOT NULL,
+                PRIMARY KEY (peer, to_id)
+            ) WITHOUT ROWID
+        """);
+    }
+}
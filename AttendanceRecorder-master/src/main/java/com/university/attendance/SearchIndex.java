@@ -0,0 +1,584 @@
+package com.university.attendance;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Memóriában tartott keresőindex a hallgatókra és jelenléti előzményeikre
+ *
+ * Név és Neptun kód szerint keres, kis- és nagybetűtől, valamint ékezettől függetlenül:
+ *   - 3 vagy több karakteres szórészlet: részszöveg keresés trigram indexszel
+ *   - 1-2 karakter: szó eleji (prefix) keresés rendezett szótárral
+ * Több szó esetén mindegyiknek illeszkednie kell. Szűrhető szakra és dátum intervallumra.
+ *
+ * Induláskor egyszer töltődik be, utána a jelenlét eseményekből frissül (mint a StatisticsEngine).
+ * Több szálról is használható: a keresések párhuzamosan futhatnak, a frissítés kizárólagos.
+ */
+public class SearchIndex
+{
+    private static final int GRAM = 3;
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Pattern WORDS = Pattern.compile("\\s+");
+    // Ennyiszer több jelölt felett éri meg a teljes névsorrendet bejárni a rendezés helyett
+    private static final int ORDER_WALK_FACTOR = 8;
+    private static final Comparator<Entry> BY_NAME = Comparator.comparing(entry -> entry.normalizedName);
+
+    // Egy hallgató az indexben; a napok (epochDay) növekvő sorrendben
+    private static class Entry
+    {
+        final int id;
+        final String neptun;
+        final String normalizedNeptun;
+        String name;
+        String major;
+        String normalizedName;
+        int[] days = new int[4];
+        int dayCount;
+
+        Entry(int id, String neptun)
+        {
+            this.id = id;
+            this.neptun = neptun;
+            this.normalizedNeptun = normalize(neptun);
+        }
+    }
+
+    // Növekvő azonosító lista (posting list)
+    private static class IntList
+    {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value)
+        {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0)
+            {
+                return;
+            }
+            index = -index - 1;
+            if (size == values.length)
+            {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        void remove(int value)
+        {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0)
+            {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int value)
+        {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+
+    /**
+     * Egy találat: a hallgató és a szűrt időszakban szerzett jelenlétei
+     */
+    public static class Result
+    {
+        private final String neptun;
+        private final String name;
+        private final String major;
+        private final int attendedDays;
+        private final String lastDate;
+
+        public Result(String neptun, String name, String major, int attendedDays, String lastDate)
+        {
+            this.neptun = neptun;
+            this.name = name;
+            this.major = major;
+            this.attendedDays = attendedDays;
+            this.lastDate = lastDate;
+        }
+
+        public String getNeptun()
+        {
+            return neptun;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getMajor()
+        {
+            return major;
+        }
+
+        /**
+         * Jelenléti napok száma a szűrt időszakban
+         */
+        public int getAttendedDays()
+        {
+            return attendedDays;
+        }
+
+        /**
+         * Utolsó jelenlét a szűrt időszakban (YYYY-MM-DD), vagy üres ha nincs
+         */
+        public String getLastDate()
+        {
+            return lastDate;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Entry> byNeptun = new HashMap<>();
+    private final Map<String, IntList> trigrams = new HashMap<>();
+    private final NavigableMap<String, IntList> words = new TreeMap<>();
+    private final Map<String, Integer> majorCounts = new HashMap<>();
+    private final Map<String, Integer> epochDays = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Hallgató azonosítók név szerinti sorrendben; új hallgató vagy névváltozás elavulttá teszi,
+    // a következő keresés építi újra
+    private int[] nameOrder = new int[0];
+    private volatile boolean orderDirty = false;
+
+    /**
+     * Egyszeri betöltés az adatbázisból (olvasó kapcsolaton)
+     * Ezután a {@link #onAttendanceRecorded} tartja naprakészen.
+     */
+    public void load(DatabaseManager dbManager)
+    {
+        long start = System.nanoTime();
+        dbManager.forEachStudent(this::onStudent);
+        dbManager.forEachAttendance(this::onAttendanceRecorded);
+        System.out.printf("Keresőindex betöltve: %d hallgató, %d trigram (%d ms)%n",
+                size(), trigramCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Új jelenlét beépítése (a DatabaseManager listenereként hívódik)
+     */
+    public void onAttendanceRecorded(AttendanceEvent event)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            // A dátumok ismétlődnek (egy nap sok beolvasás), ezért elemezni csak egyszer kell
+            int day = epochDays.computeIfAbsent(event.getDate(), date -> (int) LocalDate.parse(date).toEpochDay());
+            Entry entry = register(event.getNeptun(), event.getName(), event.getMajor());
+            addDay(entry, day);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Nyilvántartott hallgató felvétele vagy adatainak frissítése
+     */
+    public void onStudent(DatabaseManager.StudentInfo student)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            register(student.getNeptun(), student.getName(), student.getMajor());
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Keresés
+     * @param text Név vagy Neptun kód (részlet), üres szöveg esetén minden hallgató
+     * @param major Csak ez a szak, vagy null
+     * @param from Időszak eleje (bezárólag), vagy null
+     * @param to Időszak vége (bezárólag), vagy null
+     * @param limit Legfeljebb ennyi találat (név szerint rendezve)
+     */
+    public List<Result> search(String text, String major, LocalDate from, LocalDate to, int limit)
+    {
+        String[] terms = text == null ? new String[0] : WORDS.split(normalize(text).trim());
+        int fromDay = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int toDay = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+        boolean dateFiltered = from != null || to != null;
+
+        if (orderDirty)
+        {
+            rebuildNameOrder();
+        }
+
+        lock.readLock().lock();
+        try
+        {
+            BitSet candidates = null;
+            for (String term : terms)
+            {
+                if (term.isEmpty())
+                {
+                    continue;
+                }
+                BitSet matches = term.length() >= GRAM ? substringMatches(term) : prefixMatches(term);
+                if (candidates == null)
+                {
+                    candidates = matches;
+                }
+                else
+                {
+                    candidates.and(matches);
+                }
+            }
+            if (candidates == null)
+            {
+                candidates = new BitSet(entries.size());
+                candidates.set(0, entries.size());
+            }
+
+            List<Entry> selected = new ArrayList<>();
+            if (!orderDirty && candidates.cardinality() > limit * ORDER_WALK_FACTOR)
+            {
+                // Sok jelölt: név szerinti sorrendben haladunk, az első {@code limit} találatnál megállunk
+                for (int i = 0; i < nameOrder.length && selected.size() < limit; i++)
+                {
+                    Entry entry = entries.get(nameOrder[i]);
+                    if (candidates.get(entry.id) && matchesFilters(entry, major, dateFiltered, fromDay, toDay))
+                    {
+                        selected.add(entry);
+                    }
+                }
+            }
+            else
+            {
+                // Kevés jelölt, vagy a sorrend épp elavult: korlátos max-kupac a találatokon
+                PriorityQueue<Entry> top = new PriorityQueue<>(Math.max(1, limit), BY_NAME.reversed());
+                for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1))
+                {
+                    Entry entry = entries.get(id);
+                    if (!matchesFilters(entry, major, dateFiltered, fromDay, toDay))
+                    {
+                        continue;
+                    }
+                    if (top.size() < limit)
+                    {
+                        top.add(entry);
+                    }
+                    else if (limit > 0 && BY_NAME.compare(entry, top.peek()) < 0)
+                    {
+                        top.poll();
+                        top.add(entry);
+                    }
+                }
+                selected.addAll(top);
+                selected.sort(BY_NAME);
+            }
+
+            List<Result> results = new ArrayList<>(selected.size());
+            for (Entry entry : selected)
+            {
+                int first = lowerBound(entry, fromDay);
+                int last = upperBound(entry, toDay);
+                String lastDate = last > first ? LocalDate.ofEpochDay(entry.days[last - 1]).toString() : "";
+                results.add(new Result(entry.neptun, entry.name, entry.major, last - first, lastDate));
+            }
+            return results;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Az indexben szereplő szakok (ábécérendben)
+     */
+    public List<String> getMajors()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return new ArrayList<>(new TreeSet<>(majorCounts.keySet()));
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Hallgatók száma az indexben
+     */
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return entries.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int trigramCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return trigrams.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matchesFilters(Entry entry, String major, boolean dateFiltered, int fromDay, int toDay)
+    {
+        if (major != null && !major.equals(entry.major))
+        {
+            return false;
+        }
+        return !dateFiltered || lowerBound(entry, fromDay) < upperBound(entry, toDay);
+    }
+
+    // Név szerinti sorrend újraépítése; csak új hallgató vagy névváltozás után kell
+    // (a jelenlét események nem változtatnak rajta)
+
+    private void rebuildNameOrder()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if (!orderDirty)
+            {
+                return;
+            }
+            Entry[] sorted = entries.toArray(new Entry[0]);
+            Arrays.sort(sorted, BY_NAME);
+            int[] order = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++)
+            {
+                order[i] = sorted[i].id;
+            }
+            nameOrder = order;
+            orderDirty = false;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Részszöveg keresés: a szórészlet összes trigramját tartalmazó hallgatók, ellenőrzéssel
+    // (a trigramok egyezése nem garantálja, hogy sorrendben, egymás után szerepelnek)
+
+    private BitSet substringMatches(String term)
+    {
+        List<IntList> postings = new ArrayList<>();
+        for (String gram : grams(term))
+        {
+            IntList posting = trigrams.get(gram);
+            if (posting == null)
+            {
+                return new BitSet();
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(posting -> posting.size));
+
+        BitSet matches = new BitSet(entries.size());
+        IntList smallest = postings.get(0);
+        for (int i = 0; i < smallest.size; i++)
+        {
+            int id = smallest.values[i];
+            boolean inAll = true;
+            for (int p = 1; p < postings.size() && inAll; p++)
+            {
+                inAll = postings.get(p).contains(id);
+            }
+            Entry entry = entries.get(id);
+            if (inAll && (entry.normalizedName.contains(term) || entry.normalizedNeptun.contains(term)))
+            {
+                matches.set(id);
+            }
+        }
+        return matches;
+    }
+
+    // Prefix keresés: a szótárban a term-mel kezdődő szavak hallgatói
+
+    private BitSet prefixMatches(String term)
+    {
+        BitSet matches = new BitSet(entries.size());
+        for (IntList posting : words.subMap(term, true, term + Character.MAX_VALUE, false).values())
+        {
+            for (int i = 0; i < posting.size; i++)
+            {
+                matches.set(posting.values[i]);
+            }
+        }
+        return matches;
+    }
+
+    // Hallgató felvétele vagy frissítése; névváltozáskor az index bejegyzései cserélődnek
+    // (az üres név vagy szak nem írja felül a meglévőt, mint az adatbázisban)
+
+    private Entry register(String neptun, String name, String major)
+    {
+        String key = neptun.toUpperCase();
+        Entry entry = byNeptun.get(key);
+        if (entry == null)
+        {
+            entry = new Entry(entries.size(), key);
+            entries.add(entry);
+            byNeptun.put(key, entry);
+            entry.name = name;
+            entry.major = major;
+            entry.normalizedName = normalize(name);
+            majorCounts.merge(major, 1, Integer::sum);
+            indexText(entry, true);
+            orderDirty = true;
+            return entry;
+        }
+
+        if (!name.isEmpty() && !name.equals(entry.name))
+        {
+            indexText(entry, false);
+            entry.name = name;
+            entry.normalizedName = normalize(name);
+            indexText(entry, true);
+            orderDirty = true;
+        }
+        if (!major.isEmpty() && !major.equals(entry.major))
+        {
+            if (majorCounts.merge(entry.major, -1, Integer::sum) == 0)
+            {
+                majorCounts.remove(entry.major);
+            }
+            majorCounts.merge(major, 1, Integer::sum);
+            entry.major = major;
+        }
+        return entry;
+    }
+
+    // A név és a Neptun kód trigramjainak és szavainak felvétele / törlése
+
+    private void indexText(Entry entry, boolean add)
+    {
+        String neptun = entry.normalizedNeptun;
+        List<String> tokens = new ArrayList<>(Arrays.asList(WORDS.split(entry.normalizedName.trim())));
+        tokens.add(neptun);
+
+        for (String token : tokens)
+        {
+            if (token.isEmpty())
+            {
+                continue;
+            }
+            update(words, token, entry.id, add);
+        }
+        for (String gram : grams(entry.normalizedName))
+        {
+            update(trigrams, gram, entry.id, add);
+        }
+        for (String gram : grams(neptun))
+        {
+            update(trigrams, gram, entry.id, add);
+        }
+    }
+
+    private static void update(Map<String, IntList> index, String key, int id, boolean add)
+    {
+        if (add)
+        {
+            index.computeIfAbsent(key, k -> new IntList()).add(id);
+            return;
+        }
+        IntList posting = index.get(key);
+        if (posting != null)
+        {
+            posting.remove(id);
+            if (posting.size == 0)
+            {
+                index.remove(key);
+            }
+        }
+    }
+
+    // Jelenléti nap beszúrása a rendezett tömbbe (jellemzően a végére kerül)
+
+    private static void addDay(Entry entry, int day)
+    {
+        int index = Arrays.binarySearch(entry.days, 0, entry.dayCount, day);
+        if (index >= 0)
+        {
+            return;
+        }
+        index = -index - 1;
+        if (entry.dayCount == entry.days.length)
+        {
+            entry.days = Arrays.copyOf(entry.days, entry.dayCount * 2);
+        }
+        System.arraycopy(entry.days, index, entry.days, index + 1, entry.dayCount - index);
+        entry.days[index] = day;
+        entry.dayCount++;
+    }
+
+    // Az első nap indexe, amely > day
+
+    private static int upperBound(Entry entry, int day)
+    {
+        return day == Integer.MAX_VALUE ? entry.dayCount : lowerBound(entry, day + 1);
+    }
+
+    // Az első nap indexe, amely >= day
+
+    private static int lowerBound(Entry entry, int day)
+    {
+        int index = Arrays.binarySearch(entry.days, 0, entry.dayCount, day);
+        if (index < 0)
+        {
+            return -index - 1;
+        }
+        // Egyedi napok vannak, így a találat maga az alsó korlát
+        return index;
+    }
+
+    private static List<String> grams(String text)
+    {
+        List<String> grams = new ArrayList<>();
+        for (int i = 0; i + GRAM <= text.length(); i++)
+        {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    // Kisbetűs, ékezet nélküli alak (pl. "Árvíztűrő" -> "arvizturo")
+
+    static String normalize(String text)
+    {
+        return ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase();
+    }
+}
@@ -0,0 +1,99 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replikáció közös (hálózati) mappán keresztül
+ *
+ * Minden batch egy külön fájl: {@code <kioszk>-<watermark>.batch}. Az írás ideiglenes
+ * fájlba történik és atomikus átnevezéssel válik láthatóvá, így a többi kioszk
+ * soha nem olvas félkész batch-et. A már beolvasztott batch-eket a fájlnévből ismerjük fel
+ * (az adatbázis watermark-jai alapján), így újraindítás után sem olvassuk be újra a mappát.
+ */
+public class SharedFolderTransport implements ReplicationTransport
+{
+    private static final String SUFFIX = ".batch";
+
+    private final Path folder;
+
+    public SharedFolderTransport(Path folder) throws IOException
+    {
+        this.folder = folder;
+        Files.createDirectories(folder);
+    }
+
+    @Override
+    public synchronized void send(ChangeBatch batch) throws IOException
+    {
+        String name = String.format("%s-%019d%s", batch.getSourceKiosk(), batch.getToWatermark(), SUFFIX);
+        Path temp = folder.resolve(name + ".tmp");
+
+        try (OutputStream out = Files.newOutputStream(temp))
+        {
+            batch.writeTo(out);
+        }
+        Files.move(temp, folder.resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public synchronized List<ChangeBatch> receive(Consumed consumed) throws IOException
+    {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + SUFFIX))
+        {
+            for (Path file : stream)
+            {
+                if (!isConsumed(file.getFileName().toString(), consumed))
+                {
+                    files.add(file);
+                }
+            }
+        }
+        // A fájlnév kioszk + nullákkal kitöltött watermark, így a rendezés a batch-ek sorrendje
+        files.sort(null);
+
+        List<ChangeBatch> batches = new ArrayList<>();
+        for (Path file : files)
+        {
+            try (InputStream in = Files.newInputStream(file))
+            {
+                batches.add(ChangeBatch.readFrom(in));
+            }
+            catch (IOException e)
+            {
+                // Sérült fájl: a többit ettől még feldolgozzuk
+                System.err.println("Replikációs fájl olvasási hiba (" + file + "): " + e.getMessage());
+            }
+        }
+        return batches;
+    }
+
+    // A fájlnévből (kioszk-watermark.batch) eldönthető, hogy a batch már beolvadt;
+    // idegen nevű fájlt beolvasunk, a beolvasztás úgyis idempotens
+
+    private static boolean isConsumed(String name, Consumed consumed)
+    {
+        int separator = name.lastIndexOf('-');
+        if (separator <= 0)
+        {
+            return false;
+        }
+        try
+        {
+            long toWatermark = Long.parseLong(name.substring(separator + 1, name.length() - SUFFIX.length()));
+            return consumed.contains(name.substring(0, separator), toWatermark);
+        }
+        catch (NumberFormatException e)
+        {
+            return false;
+        }
+    }
+}
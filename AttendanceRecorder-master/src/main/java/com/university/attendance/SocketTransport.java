@@ -0,0 +1,139 @@
+package com.university.attendance;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Replikáció TCP socketen keresztül (helyi hálózat vagy localhost)
+ *
+ * Minden kioszk egy portot figyel; a küldés kapcsolatonként egy batch-et ír a megadott
+ * társ kioszkoknak. A beérkező batch-ek a {@link #receive()} hívásig sorban várnak.
+ */
+public class SocketTransport implements ReplicationTransport
+{
+    private static final int CONNECT_TIMEOUT_MS = 3000;
+
+    private final ServerSocket serverSocket;
+    private final List<InetSocketAddress> peers;
+    private final ConcurrentLinkedQueue<ChangeBatch> inbox = new ConcurrentLinkedQueue<>();
+    private final Thread acceptThread;
+
+    /**
+     * @param port Ezen a porton fogadjuk a többi kioszk batch-eit (0 = szabad port)
+     * @param peers A társ kioszkok címei
+     */
+    public SocketTransport(int port, List<InetSocketAddress> peers) throws IOException
+    {
+        this.serverSocket = new ServerSocket(port);
+        this.peers = new ArrayList<>(peers);
+        this.acceptThread = new Thread(this::acceptLoop, "replication-socket");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Társ kioszkok címlistájának feldolgozása
+     * @param peers Vesszővel elválasztott host:port párok (pl. "10.0.0.12:7070,10.0.0.13:7070")
+     * @throws IllegalArgumentException hibás cím esetén
+     */
+    public static List<InetSocketAddress> parsePeers(String peers)
+    {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String peer : peers.split(","))
+        {
+            String trimmed = peer.trim();
+            if (trimmed.isEmpty())
+            {
+                continue;
+            }
+            int separator = trimmed.lastIndexOf(':');
+            if (separator <= 0)
+            {
+                throw new IllegalArgumentException("Hibás társ kioszk cím (host:port): " + trimmed);
+            }
+            addresses.add(new InetSocketAddress(trimmed.substring(0, separator),
+                    Integer.parseInt(trimmed.substring(separator + 1))));
+        }
+        return addresses;
+    }
+
+    /**
+     * A ténylegesen figyelt port (0-val indítva is)
+     */
+    public int getLocalPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void send(ChangeBatch batch) throws IOException
+    {
+        IOException failure = null;
+        for (InetSocketAddress peer : peers)
+        {
+            try (Socket socket = new Socket())
+            {
+                socket.connect(peer, CONNECT_TIMEOUT_MS);
+                OutputStream out = socket.getOutputStream();
+                batch.writeTo(out);
+                out.flush();
+            }
+            catch (IOException e)
+            {
+                // Egy elérhetetlen társ nem akadályozza a többit; a watermark nem lép előre
+                failure = e;
+            }
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    @Override
+    public List<ChangeBatch> receive(Consumed consumed)
+    {
+        List<ChangeBatch> batches = new ArrayList<>();
+        ChangeBatch batch;
+        while ((batch = inbox.poll()) != null)
+        {
+            if (!consumed.contains(batch.getSourceKiosk(), batch.getToWatermark()))
+            {
+                batches.add(batch);
+            }
+        }
+        return batches;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        serverSocket.close();
+    }
+
+    private void acceptLoop()
+    {
+        while (!serverSocket.isClosed())
+        {
+            try (Socket socket = serverSocket.accept();
+                 InputStream in = socket.getInputStream())
+            {
+                inbox.add(ChangeBatch.readFrom(in));
+            }
+            catch (IOException e)
+            {
+                if (!serverSocket.isClosed())
+                {
+                    System.err.println("Replikációs fogadási hiba: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
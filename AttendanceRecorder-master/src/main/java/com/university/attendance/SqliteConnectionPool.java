@@ -0,0 +1,221 @@
+package com.university.attendance;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQLite kapcsolatkezelő: egy író, több olvasó
+ *
+ * Az SQLite egyszerre csak egy írót enged, ezért minden írás egyetlen dedikált
+ * kapcsolaton, egy saját szálon, sorban (queue) fut le. A lekérdezések (lista, export,
+ * statisztika) egy kis, csak olvasható kapcsolat-poolból kapnak kapcsolatot.
+ * WAL módban az olvasók nem blokkolják az írót, így egy hosszú riport
+ * sem lassítja a beolvasásokat.
+ */
+public class SqliteConnectionPool implements AutoCloseable
+{
+    // Ennyi ideig vár egy kapcsolat, ha az adatbázis zárolva van
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    /**
+     * Egy kapcsolaton végzett adatbázis munka
+     */
+    @FunctionalInterface
+    public interface SqlWork<T>
+    {
+        T apply(Connection connection) throws SQLException;
+    }
+
+    private final String dbUrl;
+    private final int readerCount;
+    private final ExecutorService writerThread;
+    private final BlockingQueue<Connection> readers;
+    private final List<Connection> allReaders = new ArrayList<>();
+    private Connection writer;
+
+    /**
+     * Konstruktor
+     * @param dbUrl JDBC URL (pl. jdbc:sqlite:attendance.db)
+     * @param readerCount Csak olvasható kapcsolatok száma
+     */
+    public SqliteConnectionPool(String dbUrl, int readerCount)
+    {
+        this.dbUrl = dbUrl;
+        this.readerCount = readerCount;
+        this.readers = new ArrayBlockingQueue<>(readerCount);
+        this.writerThread = Executors.newSingleThreadExecutor(ScanExecutor.daemonFactory("db-writer"));
+    }
+
+    /**
+     * Író kapcsolat megnyitása WAL módban
+     * Az olvasókat csak a séma létrehozása után érdemes megnyitni ({@link #openReaders()})
+     */
+    public void openWriter() throws SQLException
+    {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout(BUSY_TIMEOUT_MS);
+        writer = config.createConnection(dbUrl);
+    }
+
+    /**
+     * Csak olvasható kapcsolatok megnyitása
+     */
+    public void openReaders() throws SQLException
+    {
+        for (int i = 0; i < readerCount; i++)
+        {
+            SQLiteConfig config = new SQLiteConfig();
+            config.setReadOnly(true);
+            config.setBusyTimeout(BUSY_TIMEOUT_MS);
+            Connection reader = config.createConnection(dbUrl);
+            allReaders.add(reader);
+            readers.add(reader);
+        }
+    }
+
+    /**
+     * Írás végrehajtása az író szálon, a hívó megvárja az eredményt
+     */
+    public <T> T write(SqlWork<T> work) throws SQLException
+    {
+        Future<T> result = writerThread.submit(() -> work.apply(writer));
+        try
+        {
+            return result.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Megszakított írás", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof SQLException)
+            {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    /**
+     * Több írás egyetlen tranzakcióban (egy commit, egy fsync) az író szálon
+     */
+    public <T> T transaction(SqlWork<T> work) throws SQLException
+    {
+        return write(connection ->
+        {
+            connection.setAutoCommit(false);
+            try
+            {
+                T result = work.apply(connection);
+                connection.commit();
+                return result;
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    /**
+     * Lekérdezés egy szabad olvasó kapcsolaton
+     * Ha minden olvasó foglalt, a hívó megvárja, amíg egy felszabadul
+     */
+    public <T> T read(SqlWork<T> work) throws SQLException
+    {
+        // Olvasók nélkül (pl. megnyitás előtt) az író szálon futunk
+        if (allReaders.isEmpty())
+        {
+            return write(work);
+        }
+
+        Connection reader;
+        try
+        {
+            reader = readers.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Megszakított lekérdezés", e);
+        }
+
+        try
+        {
+            return work.apply(reader);
+        }
+        finally
+        {
+            readers.add(reader);
+        }
+    }
+
+    /**
+     * Olvasó kapcsolatok száma
+     */
+    public int getReaderCount()
+    {
+        return readerCount;
+    }
+
+    /**
+     * Összes kapcsolat lezárása, a sorban álló írások még lefutnak
+     */
+    @Override
+    public void close() throws SQLException
+    {
+        writerThread.shutdown();
+        try
+        {
+            writerThread.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        SQLException failure = null;
+        for (Connection reader : allReaders)
+        {
+            try
+            {
+                reader.close();
+            }
+            catch (SQLException e)
+            {
+                failure = e;
+            }
+        }
+        allReaders.clear();
+        readers.clear();
+
+        if (writer != null && !writer.isClosed())
+        {
+            writer.close();
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+}
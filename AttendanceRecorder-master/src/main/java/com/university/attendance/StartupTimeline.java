@@ -0,0 +1,64 @@
+package com.university.attendance;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Indulási idővonal: a főbb lépések ideje a JVM indulásához képest
+ *
+ * A két fő mérőszám az ablak megjelenése és az első lehetséges beolvasás
+ * (DB, napló és beolvasó kész). A lépések több szálról is jelezhetnek.
+ */
+public final class StartupTimeline
+{
+    public static final String WINDOW_SHOWN = "Ablak megjelent";
+    public static final String READY_TO_SCAN = "Első beolvasás lehetséges";
+
+    private static final long JVM_START_MILLIS = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> times = new ArrayList<>();
+
+    private StartupTimeline()
+    {
+    }
+
+    /**
+     * Egy lépés befejezésének jelzése
+     */
+    public static synchronized void mark(String phase)
+    {
+        phases.add(phase + " [" + Thread.currentThread().getName() + "]");
+        times.add(System.currentTimeMillis() - JVM_START_MILLIS);
+    }
+
+    /**
+     * Egy lépés ideje a JVM indulásától ezredmásodpercben, vagy -1 ha még nem történt meg
+     */
+    public static synchronized long getMillis(String phase)
+    {
+        for (int i = 0; i < phases.size(); i++)
+        {
+            if (phases.get(i).startsWith(phase + " ["))
+            {
+                return times.get(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Az idővonal szöveges összesítője
+     */
+    public static synchronized String report()
+    {
+        StringBuilder report = new StringBuilder("Indulási idővonal (JVM indulástól):\n");
+        for (int i = 0; i < phases.size(); i++)
+        {
+            report.append(String.format("  %6d ms  %s%n", times.get(i), phases.get(i)));
+        }
+        report.append(String.format("Ablakig: %d ms, első lehetséges beolvasásig: %d ms",
+                getMillis(WINDOW_SHOWN), getMillis(READY_TO_SCAN)));
+        return report.toString();
+    }
+}
@@ -0,0 +1,160 @@
+package com.university.attendance;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memóriában tartott, inkrementálisan frissülő jelenléti statisztika
+ *
+ * Induláskor egyszer betölti az attendance_records és students táblát, utána
+ * minden új jelenlét eseményből frissíti a számlálókat - táblaszintű újralekérdezés nélkül.
+ * A {@link #snapshot()} olcsó, változatlan állapotnál a korábbi pillanatképet adja vissza,
+ * így a dashboard akár másodpercenként frissíthet.
+ */
+public class StatisticsEngine
+{
+    // Hallgatónkénti számláló
+    private static class StudentCounter
+    {
+        String name;
+        String major;
+        int days;
+
+        StudentCounter(String name, String major)
+        {
+            this.name = name;
+            this.major = major;
+        }
+    }
+
+    // Szakonkénti aggregátum: hallgatók száma és összes jelenléti nap
+    private static class MajorCounter
+    {
+        int students;
+        long attendedDays;
+    }
+
+    private final Map<String, StudentCounter> students = new HashMap<>();
+    private final Map<String, MajorCounter> majors = new HashMap<>();
+    private final Map<String, Integer> headcountByDate = new HashMap<>();
+
+    // Minden változás növeli, a pillanatkép ez alapján cache-elhető
+    private long version = 0;
+    private StatisticsSnapshot cachedSnapshot;
+
+    /**
+     * Egyszeri betöltés az adatbázisból (olvasó kapcsolaton)
+     * Ezután a {@link #onAttendanceRecorded} tartja naprakészen.
+     */
+    public void load(DatabaseManager dbManager)
+    {
+        long start = System.nanoTime();
+        dbManager.forEachStudent(this::onStudent);
+        dbManager.forEachAttendance(this::onAttendanceRecorded);
+
+        synchronized (this)
+        {
+            System.out.printf("Statisztika betöltve: %d hallgató, %d alkalom (%d ms)%n",
+                    students.size(), headcountByDate.size(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Új jelenlét beépítése (a DatabaseManager listenereként hívódik)
+     */
+    public synchronized void onAttendanceRecorded(AttendanceEvent event)
+    {
+        StudentCounter student = registerStudent(event.getNeptun(), event.getName(), event.getMajor());
+
+        student.days++;
+        majors.get(student.major).attendedDays++;
+        headcountByDate.merge(event.getDate(), 1, Integer::sum);
+        version++;
+    }
+
+    /**
+     * Nyilvántartott hallgató felvétele (még jelenlét nélkül is beleszámít a szak létszámába)
+     */
+    public synchronized void onStudent(DatabaseManager.StudentInfo student)
+    {
+        registerStudent(student.getNeptun(), student.getName(), student.getMajor());
+    }
+
+    /**
+     * Aktuális állapot pillanatképe (a mai nap szerint)
+     */
+    public synchronized StatisticsSnapshot snapshot()
+    {
+        String today = LocalDate.now().toString();
+        if (cachedSnapshot != null && cachedSnapshot.getVersion() == version && cachedSnapshot.getDate().equals(today))
+        {
+            return cachedSnapshot;
+        }
+
+        int sessionDays = headcountByDate.size();
+
+        Map<String, Double> majorRates = new HashMap<>();
+        for (Map.Entry<String, MajorCounter> entry : majors.entrySet())
+        {
+            MajorCounter counter = entry.getValue();
+            long possible = (long) counter.students * sessionDays;
+            majorRates.put(entry.getKey(), possible == 0 ? 0.0 : 100.0 * counter.attendedDays / possible);
+        }
+
+        List<StatisticsSnapshot.StudentStatistics> studentStats = new ArrayList<>(students.size());
+        for (Map.Entry<String, StudentCounter> entry : students.entrySet())
+        {
+            StudentCounter counter = entry.getValue();
+            double percentage = sessionDays == 0 ? 0.0 : 100.0 * counter.days / sessionDays;
+            studentStats.add(new StatisticsSnapshot.StudentStatistics(
+                    entry.getKey(), counter.name, counter.major, counter.days, percentage));
+        }
+
+        cachedSnapshot = new StatisticsSnapshot(version, today, headcountByDate.getOrDefault(today, 0),
+                sessionDays, majorRates, studentStats);
+        return cachedSnapshot;
+    }
+
+    // Hallgató felvétele vagy adatainak frissítése; szakváltásnál a számlálók átkerülnek
+
+    private StudentCounter registerStudent(String neptun, String name, String major)
+    {
+        String key = neptun.toUpperCase();
+        StudentCounter student = students.get(key);
+
+        if (student == null)
+        {
+            student = new StudentCounter(name, major);
+            students.put(key, student);
+            majors.computeIfAbsent(major, m -> new MajorCounter()).students++;
+            version++;
+            return student;
+        }
+
+        if (!name.isEmpty() && !name.equals(student.name))
+        {
+            student.name = name;
+            version++;
+        }
+        if (!major.isEmpty() && !major.equals(student.major))
+        {
+            MajorCounter previous = majors.get(student.major);
+            previous.students--;
+            previous.attendedDays -= student.days;
+            if (previous.students == 0)
+            {
+                majors.remove(student.major);
+            }
+
+            MajorCounter current = majors.computeIfAbsent(major, m -> new MajorCounter());
+            current.students++;
+            current.attendedDays += student.days;
+            student.major = major;
+            version++;
+        }
+        return student;
+    }
+}
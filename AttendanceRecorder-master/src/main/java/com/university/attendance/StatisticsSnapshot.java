@@ -0,0 +1,157 @@
+package com.university.attendance;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A StatisticsEngine változatlan pillanatképe
+ *
+ * Szabadon átadható más szálaknak (pl. a JavaFX szálnak), a motor további
+ * frissítései nem módosítják.
+ */
+public class StatisticsSnapshot
+{
+    private final long version;
+    private final String date;
+    private final int todayHeadcount;
+    private final int sessionDays;
+    private final Map<String, Double> majorRates;
+    private final List<StudentStatistics> students;
+
+    public StatisticsSnapshot(long version, String date, int todayHeadcount, int sessionDays,
+                              Map<String, Double> majorRates, List<StudentStatistics> students)
+    {
+        this.version = version;
+        this.date = date;
+        this.todayHeadcount = todayHeadcount;
+        this.sessionDays = sessionDays;
+        this.majorRates = Collections.unmodifiableMap(majorRates);
+        this.students = Collections.unmodifiableList(students);
+    }
+
+    public long getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * A pillanatkép napja (YYYY-MM-DD)
+     */
+    public String getDate()
+    {
+        return date;
+    }
+
+    /**
+     * Mai létszám: hány hallgató jelentkezett be a pillanatkép napján
+     */
+    public int getTodayHeadcount()
+    {
+        return todayHeadcount;
+    }
+
+    /**
+     * Alkalmak (jelenléttel rendelkező napok) száma
+     */
+    public int getSessionDays()
+    {
+        return sessionDays;
+    }
+
+    /**
+     * Szakonkénti jelenléti arány százalékban
+     */
+    public Map<String, Double> getMajorRates()
+    {
+        return majorRates;
+    }
+
+    public List<StudentStatistics> getStudents()
+    {
+        return students;
+    }
+
+    /**
+     * Egy hallgató statisztikája, vagy null ha nem ismert
+     */
+    public StudentStatistics getStudent(String neptun)
+    {
+        String key = neptun.toUpperCase();
+        for (StudentStatistics student : students)
+        {
+            if (student.getNeptun().equals(key))
+            {
+                return student;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Veszélyeztetett hallgatók: jelenlét a küszöb alatt, legrosszabb elöl
+     * @param thresholdPercent Küszöb százalékban (pl. 70.0)
+     */
+    public List<StudentStatistics> getStudentsAtRisk(double thresholdPercent)
+    {
+        List<StudentStatistics> atRisk = new ArrayList<>();
+        for (StudentStatistics student : students)
+        {
+            if (student.getPercentage() < thresholdPercent)
+            {
+                atRisk.add(student);
+            }
+        }
+        atRisk.sort(Comparator.comparingDouble(StudentStatistics::getPercentage)
+                .thenComparing(StudentStatistics::getName));
+        return atRisk;
+    }
+
+    /**
+     * Egy hallgató jelenléti adatai
+     */
+    public static class StudentStatistics
+    {
+        private final String neptun;
+        private final String name;
+        private final String major;
+        private final int attendedDays;
+        private final double percentage;
+
+        public StudentStatistics(String neptun, String name, String major, int attendedDays, double percentage)
+        {
+            this.neptun = neptun;
+            this.name = name;
+            this.major = major;
+            this.attendedDays = attendedDays;
+            this.percentage = percentage;
+        }
+
+        public String getNeptun()
+        {
+            return neptun;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public String getMajor()
+        {
+            return major;
+        }
+
+        public int getAttendedDays()
+        {
+            return attendedDays;
+        }
+
+        public double getPercentage()
+        {
+            return percentage;
+        }
+    }
+}
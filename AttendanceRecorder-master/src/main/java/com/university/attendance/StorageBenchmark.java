@@ -0,0 +1,198 @@
+package com.university.attendance;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Tárolási benchmark egy szintetikus félév adataival
+ *
+ * Létrehoz egy régi (név és szak minden sorban) szerkezetű adatbázist, lemásolja,
+ * a másolatot a DatabaseManager a normalizált sémára migrálja, majd összeveti
+ * a két fájl méretét és a teljes tábla bejárásának idejét.
+ *
+ * Futtatás: java -cp ... com.university.attendance.StorageBenchmark [hallgatók] [napok]
+ */
+public class StorageBenchmark
+{
+    private static final String[] MAJORS = {
+        "Mérnökinformatikus", "Gazdaságinformatikus", "Villamosmérnök",
+        "Gépészmérnök", "Programtervező informatikus"
+    };
+
+    public static void main(String[] args) throws Exception
+    {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 70;
+
+        Path dir = Files.createTempDirectory("attendance-bench");
+        Path legacy = dir.resolve("legacy.db");
+        Path normalized = dir.resolve("normalized.db");
+
+        System.out.printf("Szintetikus félév: %d hallgató, %d nap%n", students, days);
+        long rows = createLegacyDatabase(legacy, students, days);
+        System.out.printf("Sorok: %d%n", rows);
+
+        Files.copy(legacy, normalized, StandardCopyOption.REPLACE_EXISTING);
+        DatabaseManager dbManager = new DatabaseManager("jdbc:sqlite:" + normalized);
+        dbManager.initDatabase();
+        dbManager.close();
+
+        vacuum(legacy);
+        vacuum(normalized);
+
+        long legacySize = legacy.toFile().length();
+        long normalizedSize = normalized.toFile().length();
+        System.out.printf("Fájl méret - régi: %,d bájt, normalizált: %,d bájt (kurzus alkalmakkal együtt)%n",
+                legacySize, normalizedSize);
+
+        long legacyTable = attendanceTableBytes(legacy);
+        long normalizedTable = attendanceTableBytes(normalized);
+        System.out.printf("attendance_records + indexek - régi: %,d bájt, normalizált: %,d bájt (%.1f%%)%n",
+                legacyTable, normalizedTable, 100.0 * normalizedTable / legacyTable);
+
+        String legacyScan = "SELECT id, name, major, neptun, date, scans FROM attendance_records ORDER BY date DESC, id DESC";
+        String normalizedScan = """
+            SELECT a.id, st.name, st.major, st.neptun, a.date, a.scans
+            FROM attendance_records a JOIN students st ON st.id = a.student_id
+            ORDER BY a.date DESC, a.id DESC
+        """;
+        System.out.printf("Teljes bejárás - régi: %.1f ms, normalizált: %.1f ms%n",
+                timeScan(legacy, legacyScan), timeScan(normalized, normalizedScan));
+
+        deleteAll(dir.toFile());
+    }
+
+    // Régi szerkezetű adatbázis feltöltése egyetlen tranzakcióban
+
+    private static long createLegacyDatabase(Path file, int students, int days) throws SQLException
+    {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2026, 9, 1);
+        long rows = 0;
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file))
+        {
+            try (Statement stmt = connection.createStatement())
+            {
+                stmt.execute("""
+                    CREATE TABLE attendance_records (
+                        id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        name TEXT NOT NULL,
+                        major TEXT NOT NULL,
+                        neptun TEXT NOT NULL,
+                        date TEXT NOT NULL,
+                        scans INTEGER DEFAULT 1,
+                        UNIQUE(neptun, date)
+                    )
+                """);
+                stmt.execute("CREATE TABLE students (neptun TEXT PRIMARY KEY, name TEXT NOT NULL, major TEXT NOT NULL)");
+            }
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO attendance_records (name, major, neptun, date, scans) VALUES (?, ?, ?, ?, 1)"))
+            {
+                for (int day = 0; day < days; day++)
+                {
+                    String date = start.plusDays(day).toString();
+                    for (int s = 0; s < students; s++)
+                    {
+                        // kb. 80% jelenlét
+                        if (random.nextInt(100) >= 80)
+                        {
+                            continue;
+                        }
+                        pstmt.setString(1, "Hallgató " + s + " Példa");
+                        pstmt.setString(2, MAJORS[s % MAJORS.length]);
+                        pstmt.setString(3, String.format("N%05d", s));
+                        pstmt.setString(4, date);
+                        pstmt.addBatch();
+                        rows++;
+                    }
+                    pstmt.executeBatch();
+                }
+            }
+            connection.commit();
+        }
+        return rows;
+    }
+
+    private static void vacuum(Path file) throws SQLException
+    {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+             Statement stmt = connection.createStatement())
+        {
+            stmt.execute("PRAGMA journal_mode = DELETE");
+            stmt.execute("VACUUM");
+        }
+    }
+
+    // Az attendance_records tábla és indexeinek lapjai (dbstat virtuális tábla)
+
+    private static long attendanceTableBytes(Path file) throws SQLException
+    {
+        String query = """
+            SELECT SUM(pgsize) FROM dbstat
+            WHERE name IN (SELECT name FROM sqlite_schema WHERE tbl_name = 'attendance_records')
+        """;
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file);
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(query))
+        {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    // Teljes tábla bejárása (bemelegítés után 5 futás átlaga)
+
+    private static double timeScan(Path file, String query) throws SQLException
+    {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file))
+        {
+            scan(connection, query);
+            long start = System.nanoTime();
+            for (int i = 0; i < 5; i++)
+            {
+                scan(connection, query);
+            }
+            return (System.nanoTime() - start) / 5 / 1_000_000.0;
+        }
+    }
+
+    private static long scan(Connection connection, String query) throws SQLException
+    {
+        long checksum = 0;
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(query))
+        {
+            while (rs.next())
+            {
+                checksum += rs.getInt(1) + rs.getString(2).length() + rs.getString(3).length();
+            }
+        }
+        return checksum;
+    }
+
+    static void deleteAll(File dir)
+    {
+        File[] files = dir.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
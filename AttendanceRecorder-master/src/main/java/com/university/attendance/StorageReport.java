@@ -0,0 +1,154 @@
+package com.university.attendance;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Az adatbázis fájl tárhely jelentése
+ *
+ * Szabad lap: törölt sorok után üresen maradt lap, amit az SQLite újrahasznosít, de a fájl
+ * nem lesz tőle kisebb (inkrementális VACUUM adja vissza). Kihasználatlan bájt: a
+ * használt lapokon belüli üres hely (pl. sok törlés vagy véletlen sorrendű beszúrás után).
+ */
+public class StorageReport
+{
+    private final long pageSize;
+    private final long pageCount;
+    private final long freePages;
+    private final long walBytes;
+    private final boolean incrementalVacuum;
+    private final List<TableUsage> tables;
+
+    public StorageReport(long pageSize, long pageCount, long freePages, long walBytes,
+                         boolean incrementalVacuum, List<TableUsage> tables)
+    {
+        this.pageSize = pageSize;
+        this.pageCount = pageCount;
+        this.freePages = freePages;
+        this.walBytes = walBytes;
+        this.incrementalVacuum = incrementalVacuum;
+        this.tables = Collections.unmodifiableList(tables);
+    }
+
+    /**
+     * Az adatbázis fájl mérete (WAL nélkül)
+     */
+    public long getFileBytes()
+    {
+        return pageSize * pageCount;
+    }
+
+    public long getWalBytes()
+    {
+        return walBytes;
+    }
+
+    public long getFreePages()
+    {
+        return freePages;
+    }
+
+    public long getFreeBytes()
+    {
+        return pageSize * freePages;
+    }
+
+    public boolean isIncrementalVacuum()
+    {
+        return incrementalVacuum;
+    }
+
+    /**
+     * Táblánkénti / indexenkénti kihasználtság (üres, ha az SQLite dbstat nem érhető el)
+     */
+    public List<TableUsage> getTables()
+    {
+        return tables;
+    }
+
+    /**
+     * Töredezettség: a szabad lapok és a lapokon belüli üres hely aránya a fájlméreten belül
+     */
+    public double getFragmentation()
+    {
+        long unused = 0;
+        for (TableUsage table : tables)
+        {
+            unused += table.getUnusedBytes();
+        }
+        return getFileBytes() == 0 ? 0 : (double) (getFreeBytes() + unused) / getFileBytes();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Fájlméret: %s (WAL: %s)%n", formatBytes(getFileBytes()), formatBytes(walBytes)));
+        sb.append(String.format("Szabad lapok: %d (%s)%n", freePages, formatBytes(getFreeBytes())));
+        sb.append(String.format("Töredezettség: %.1f%%%n", getFragmentation() * 100));
+        sb.append("Inkrementális VACUUM: ").append(incrementalVacuum ? "be" : "ki").append("\n");
+        if (!tables.isEmpty())
+        {
+            sb.append(String.format("%n%-40s %10s %8s%n", "Tábla / index", "Méret", "Üres"));
+            for (TableUsage table : tables)
+            {
+                sb.append(String.format("%-40s %10s %7.1f%%%n", table.getName(),
+                        formatBytes(table.getBytes()), table.getUnusedRatio() * 100));
+            }
+        }
+        return sb.toString();
+    }
+
+    static String formatBytes(long bytes)
+    {
+        if (bytes < 1024 * 1024)
+        {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+
+    /**
+     * Egy tábla vagy index lapjai
+     */
+    public static class TableUsage
+    {
+        private final String name;
+        private final long pages;
+        private final long bytes;
+        private final long unusedBytes;
+
+        public TableUsage(String name, long pages, long bytes, long unusedBytes)
+        {
+            this.name = name;
+            this.pages = pages;
+            this.bytes = bytes;
+            this.unusedBytes = unusedBytes;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public long getPages()
+        {
+            return pages;
+        }
+
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public long getUnusedBytes()
+        {
+            return unusedBytes;
+        }
+
+        public double getUnusedRatio()
+        {
+            return bytes == 0 ? 0 : (double) unusedBytes / bytes;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.university.attendance;
 
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -17,14 +18,17 @@ import javafx.stage.Stage;
 public class StudentManager
 {
     private DatabaseManager dbManager;
+    private ScanExecutor scanExecutor;
 
     /**
      * Konstruktor
      * @param dbManager Adatbázis kezelő
+     * @param scanExecutor Háttér végrehajtó a DB műveletekhez
      */
-    public StudentManager(DatabaseManager dbManager)
+    public StudentManager(DatabaseManager dbManager, ScanExecutor scanExecutor)
     {
         this.dbManager = dbManager;
+        this.scanExecutor = scanExecutor;
     }
 
     /**
@@ -91,18 +95,33 @@ public class StudentManager
                 return;
             }
 
-            // Ellenőrzés, hogy már létezik-e
-            if (dbManager.hasStudent(neptun))
+            // Ellenőrzés és hozzáadás háttérszálon, az eredmény az FX szálon jelenik meg
+            saveButton.setDisable(true);
+            scanExecutor.submit(() ->
             {
-                showAlert("Már létezik", "Ez a Neptun kód már szerepel a rendszerben: " + neptun);
-                return;
-            }
-
-            // Hozzáadás az adatbázishoz
-            dbManager.insertStudent(name, major, neptun);
-
-            showAlert("Siker", "Hallgató hozzáadva: " + name + " (" + neptun + ")");
-            formStage.close();
+                if (dbManager.hasStudent(neptun))
+                {
+                    return false;
+                }
+                dbManager.insertStudent(name, major, neptun);
+                return true;
+            }).whenComplete((added, error) -> Platform.runLater(() ->
+            {
+                saveButton.setDisable(false);
+                if (error != null)
+                {
+                    showAlert("Hiba", "A hallgató mentése nem sikerült: " + error.getMessage());
+                }
+                else if (!added)
+                {
+                    showAlert("Már létezik", "Ez a Neptun kód már szerepel a rendszerben: " + neptun);
+                }
+                else
+                {
+                    showAlert("Siker", "Hallgató hozzáadva: " + name + " (" + neptun + ")");
+                    formStage.close();
+                }
+            }));
         });
 
         cancelButton.setOnAction(e -> formStage.close());
@@ -0,0 +1,307 @@
+package com.university.attendance;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Folyamatos (streaming) XLSX író
+ *
+ * Az XLSX egy ZIP csomag XML fájlokkal. A munkalap XML-t soronként írjuk közvetlenül a
+ * ZIP bejegyzésbe, a szövegek a cellában (inlineStr) szerepelnek, így nincs közös
+ * szövegtábla, ami a sorok számával nőne. A workbook leírók a végén kerülnek ki, amikor
+ * már tudjuk a munkalapok számát. Ha egy munkalap eléri az Excel sorkorlátját, a jelentés
+ * a következő munkalapon folytatódik.
+ */
+public class XlsxReportWriter implements ReportWriter
+{
+    // Az Excel sorkorlátja munkalaponként
+    private static final int MAX_ROWS = 1_048_576;
+
+    // Stílusok (styles.xml cellXfs sorrend): 0 = normál, 1 = félkövér, 2 = félkövér nagy cím
+    private static final int STYLE_BOLD = 1;
+    private static final int STYLE_TITLE = 2;
+
+    private final OutputStream out;
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private final String sheetName;
+    private final int[] columnWidths;
+
+    private int sheetCount;
+    private int rowIndex;
+    private boolean sheetOpen;
+
+    // Az aktuális szakasz (új munkalapon megismételjük)
+    private String sectionTitle;
+    private List<String> sectionHeaders;
+
+    /**
+     * @param out A cél adatfolyam (a close() lezárja)
+     * @param sheetName A munkalapok neve (a további lapok sorszámot kapnak)
+     * @param columnWidths Oszlopszélességek karakterben
+     */
+    public XlsxReportWriter(OutputStream out, String sheetName, int[] columnWidths)
+    {
+        this.out = out;
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+        this.sheetName = sheetName;
+        this.columnWidths = columnWidths;
+    }
+
+    @Override
+    public void beginSection(String title, List<String> headers) throws IOException
+    {
+        sectionTitle = title;
+        sectionHeaders = headers;
+        ensureRoom(3);
+        if (rowIndex > 0)
+        {
+            rowIndex++; // üres sor a szakaszok között
+        }
+        writeSectionHeader(title);
+    }
+
+    @Override
+    public void writeRow(Object... cells) throws IOException
+    {
+        if (ensureRoom(1))
+        {
+            // Új munkalapon a szakasz címe és fejléce is megismétlődik
+            writeSectionHeader(sectionTitle + " (folyt.)");
+        }
+        row(0, cells);
+    }
+
+    @Override
+    public void endSection(String summary) throws IOException
+    {
+        if (summary != null)
+        {
+            ensureRoom(1);
+            row(STYLE_BOLD, summary);
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (sheetCount == 0)
+        {
+            openSheet(); // üres jelentés is érvényes munkafüzet legyen
+        }
+        closeSheet();
+        writePackageParts();
+        writer.flush();
+        zip.finish();
+        zip.close();
+    }
+
+    @Override
+    public void abort()
+    {
+        // A ZIP központi könyvtára nem íródik ki, így a csonka csomag nem nyitható meg
+        try
+        {
+            out.close();
+        }
+        catch (IOException e)
+        {
+            System.err.println("XLSX megszakítási hiba: " + e.getMessage());
+        }
+    }
+
+    // Munkalap váltás, ha a következő {@code rows} sor már nem férne el.
+    // true, ha új munkalap nyílt
+
+    private boolean ensureRoom(int rows) throws IOException
+    {
+        if (sheetOpen && rowIndex + rows <= MAX_ROWS)
+        {
+            return false;
+        }
+        closeSheet();
+        openSheet();
+        return sheetCount > 1;
+    }
+
+    private void writeSectionHeader(String title) throws IOException
+    {
+        row(STYLE_TITLE, title);
+        if (sectionHeaders != null)
+        {
+            row(STYLE_BOLD, sectionHeaders.toArray());
+        }
+    }
+
+    private void openSheet() throws IOException
+    {
+        sheetCount++;
+        rowIndex = 0;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetCount + ".xml"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        writer.write("<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+        if (columnWidths.length > 0)
+        {
+            writer.write("<cols>");
+            for (int i = 0; i < columnWidths.length; i++)
+            {
+                writer.write("<col min=\"" + (i + 1) + "\" max=\"" + (i + 1) + "\" width=\"" + columnWidths[i]
+                        + "\" customWidth=\"1\"/>");
+            }
+            writer.write("</cols>");
+        }
+        writer.write("<sheetData>");
+        sheetOpen = true;
+    }
+
+    private void closeSheet() throws IOException
+    {
+        if (!sheetOpen)
+        {
+            return;
+        }
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        sheetOpen = false;
+    }
+
+    private void row(int style, Object... cells) throws IOException
+    {
+        rowIndex++;
+        writer.write("<row r=\"" + rowIndex + "\">");
+        for (int i = 0; i < cells.length; i++)
+        {
+            Object cell = cells[i];
+            if (cell == null)
+            {
+                continue;
+            }
+            String ref = columnName(i) + rowIndex;
+            String styleAttr = style != 0 ? " s=\"" + style + "\"" : "";
+            if (cell instanceof Number)
+            {
+                writer.write("<c r=\"" + ref + "\"" + styleAttr + "><v>" + cell + "</v></c>");
+            }
+            else
+            {
+                writer.write("<c r=\"" + ref + "\" t=\"inlineStr\"" + styleAttr + "><is><t xml:space=\"preserve\">");
+                escape(cell.toString());
+                writer.write("</t></is></c>");
+            }
+        }
+        writer.write("</row>");
+    }
+
+    // XML escape; az XML 1.0-ban nem megengedett vezérlőkaraktereket kihagyjuk
+
+    private void escape(String text) throws IOException
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            switch (c)
+            {
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r')
+                    {
+                        writer.write(c);
+                    }
+            }
+        }
+    }
+
+    // Oszlop betűjele (0 -> A, 25 -> Z, 26 -> AA)
+
+    private static String columnName(int index)
+    {
+        StringBuilder name = new StringBuilder();
+        for (int i = index + 1; i > 0; i = (i - 1) / 26)
+        {
+            name.insert(0, (char) ('A' + (i - 1) % 26));
+        }
+        return name.toString();
+    }
+
+    // Munkafüzet leírók: tartalomtípusok, kapcsolatok, munkalap lista, stílusok
+
+    private void writePackageParts() throws IOException
+    {
+        StringBuilder overrides = new StringBuilder();
+        StringBuilder sheets = new StringBuilder();
+        StringBuilder relations = new StringBuilder();
+        for (int i = 1; i <= sheetCount; i++)
+        {
+            overrides.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            sheets.append("<sheet name=\"").append(i == 1 ? sheetName : sheetName + " " + i)
+                    .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+            relations.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                    .append(i).append(".xml\"/>");
+        }
+
+        part("[Content_Types].xml",
+                "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+                + overrides
+                + "</Types>");
+        part("_rels/.rels",
+                "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        part("xl/workbook.xml",
+                "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+                + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                + "<sheets>" + sheets + "</sheets></workbook>");
+        part("xl/_rels/workbook.xml.rels",
+                "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + relations
+                + "<Relationship Id=\"rId" + (sheetCount + 1) + "\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>"
+                + "</Relationships>");
+        part("xl/styles.xml",
+                "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                + "<fonts count=\"3\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+                + "<font><b/><sz val=\"13\"/><name val=\"Calibri\"/></font></fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"3\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"2\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>"
+                + "</styleSheet>");
+    }
+
+    private void part(String name, String xml) throws IOException
+    {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        writer.write(xml);
+        writer.flush();
+        zip.closeEntry();
+    }
+}
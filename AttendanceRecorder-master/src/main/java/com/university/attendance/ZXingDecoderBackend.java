@@ -0,0 +1,34 @@
+package com.university.attendance;
+
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import org.opencv.core.Mat;
+
+/**
+ * ZXing alapú dekódolás: a Mat-ot Java heap képpé másolja, majd binarizálja
+ */
+public class ZXingDecoderBackend implements QRDecoderBackend
+{
+    // A MultiFormatReader nem szálbiztos, ezért szálanként egy példány
+    private final ThreadLocal<MultiFormatReader> readers = ThreadLocal.withInitial(MultiFormatReader::new);
+
+    @Override
+    public String getName()
+    {
+        return "zxing";
+    }
+
+    @Override
+    public String decode(Mat frame)
+    {
+        try
+        {
+            return readers.get().decode(QRCodeDecoder.toBitmap(frame)).getText();
+        }
+        catch (NotFoundException e)
+        {
+            // Nincs QR kód
+            return null;
+        }
+    }
+}